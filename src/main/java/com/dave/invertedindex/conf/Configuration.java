@@ -20,6 +20,8 @@ public class Configuration{
     public static final String KEY_MAX_LENGTH_FILTER = "MAX_LENGTH_FILTER";
     public static final String KEY_INDEX_PATH = "INDEX_PATH";
     public static final String KEY_INDEX_NAME = "INDEX_NAME";
+    public static final String KEY_RAM_BUFFER_SIZE_MB = "RAM_BUFFER_SIZE_MB";
+    public static final String KEY_OFF_HEAP = "OFF_HEAP";
 
 
     protected HashMap<String, Object> data = new HashMap<String, Object>();
@@ -142,6 +144,22 @@ public class Configuration{
         return get(KEY_INDEX_NAME);
     }
 
+    public Configuration setRamBufferSizeMB(Integer ramBufferSizeMB){
+        return set(KEY_RAM_BUFFER_SIZE_MB, ramBufferSizeMB);
+    }
+
+    public Integer getRamBufferSizeMB() {
+        return get(KEY_RAM_BUFFER_SIZE_MB);
+    }
+
+    public Configuration setOffHeap(Boolean offHeap){
+        return set(KEY_OFF_HEAP, offHeap);
+    }
+
+    public Boolean getOffHeap() {
+        return get(KEY_OFF_HEAP);
+    }
+
     private static Configuration defaultConf = null;
 
     private static Object configLock = new Object();
@@ -160,6 +178,8 @@ public class Configuration{
                     defaultConf.set(KEY_MAX_LENGTH_FILTER, Config.MAX_LENGTH_FILTER);
                     defaultConf.set(KEY_INDEX_PATH, Config.INDEX_PATH);
                     defaultConf.set(KEY_INDEX_NAME, Config.INDEX_NAME);
+                    defaultConf.set(KEY_RAM_BUFFER_SIZE_MB, Config.RAM_BUFFER_SIZE_MB);
+                    defaultConf.set(KEY_OFF_HEAP, Config.OFF_HEAP);
 
                 }
             }
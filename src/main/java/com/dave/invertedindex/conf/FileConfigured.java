@@ -19,6 +19,9 @@ public class FileConfigured extends CommonConfigured {
         configuration.setIndexPath(ConfigUtil.getStringParameterWithDefault("INDEX_PATH",".")) ;
         configuration.setIndexName(ConfigUtil.getStringParameterWithDefault("INDEX_NAME","index")) ;
 
+        configuration.setRamBufferSizeMB(ConfigUtil.getIntParameterWithDefault("RAM_BUFFER_SIZE_MB",0));
+        configuration.setOffHeap(ConfigUtil.getBooleanParameterWithDefault("OFF_HEAP",false));
+
         setConf(configuration);
 
     }
@@ -64,6 +64,14 @@ public class Field {
         return options.isTokenized();
     }
 
+    public boolean hasPositions() {
+        return options.hasPositions();
+    }
+
+    public boolean hasDocValues() {
+        return options.hasDocValues();
+    }
+
     public void setData(String data) {
         this.data = data;
     }
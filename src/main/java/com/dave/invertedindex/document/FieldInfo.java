@@ -15,6 +15,16 @@ public class FieldInfo {
     public static final String INDEXED = "indexed";
     public static final String STORED = "stored";
 
+    /**
+     * string representation for the indexed fields which keep the positions of the terms
+     */
+    public static final String POSITIONS = "positions";
+
+    /**
+     * string representation for the fields which keep a column of their values by document, to sort and facet
+     */
+    public static final String DOC_VALUES = "docvalues";
+
 
     /**
      * default value for this.indexed
@@ -47,6 +57,16 @@ public class FieldInfo {
      */
     protected boolean tokenized;
 
+    /**
+     * are the positions of the terms indexed, to search phrases?
+     */
+    protected boolean positions = false;
+
+    /**
+     * is the value of every document kept in a column, to sort or facet by it?
+     */
+    protected boolean docValues = false;
+
     /**
      * tokenizer used to analyze/tokenize/normalize the data
      */
@@ -86,12 +106,34 @@ public class FieldInfo {
         }
     }
 
+    /**
+     * @param indexed is the field being indexed?
+     * @param stored is the field being stored?
+     * @param tokenizer in case the field is indexed, a tokenizer needs to be defined
+     * @param positions are the positions of the terms indexed? needed to search phrases in the field
+     */
+    public FieldInfo(boolean indexed, boolean stored, Class tokenizer, boolean positions) {
+        this(indexed, stored, tokenizer);
+        this.positions = positions;
+    }
+
     public FieldInfo(boolean indexed, boolean stored) {
         this.indexed = indexed;
         this.stored = stored;
         this.tokenized = false;
     }
 
+    /**
+     * only fields which are not tokenized can have doc values, their whole content is the value
+     * @param indexed is the field being indexed?
+     * @param stored is the field being stored?
+     * @param docValues is the value of every document kept in a column? needed to sort or facet by the field
+     */
+    public FieldInfo(boolean indexed, boolean stored, boolean docValues) {
+        this(indexed, stored);
+        this.docValues = docValues;
+    }
+
 
     public boolean isIndexed() {
         return this.indexed;
@@ -105,6 +147,14 @@ public class FieldInfo {
         return this.tokenized;
     }
 
+    public boolean hasPositions() {
+        return this.positions;
+    }
+
+    public boolean hasDocValues() {
+        return this.docValues;
+    }
+
     public Class getTokenizer() {
         return tokenizer;
     }
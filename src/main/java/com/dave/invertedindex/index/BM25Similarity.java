@@ -0,0 +1,73 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Okapi BM25. The score of a term is
+ *
+ *  idf * tf / (tf + k1 * (1 - b + b * norm / avgNorm))
+ *  idf = log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5))
+ *
+ * Rare terms weigh more than common ones, the score saturates as the term frequency grows, controlled by k1, and
+ * long documents are penalized relative to the average, controlled by b.
+ *
+ * For every term the inverse of k1 * (1 - b + b * norm / avgNorm) is computed for the 256 encoded norms, then the
+ * score is rewritten as idf - idf / (1 + tf * table[norm]), so scoring a posting is a lookup plus a few float operations
+ */
+public class BM25Similarity implements Similarity {
+
+    public static final float DEFAULT_K1 = 1.2f;
+
+    public static final float DEFAULT_B = 0.75f;
+
+    protected final float k1;
+
+    protected final float b;
+
+    public BM25Similarity() {
+        this(DEFAULT_K1, DEFAULT_B);
+    }
+
+    /**
+     * @param k1 saturation of the term frequency, positive
+     * @param b length normalization, from 0 (none) to 1 (full)
+     */
+    public BM25Similarity(final float k1, final float b) {
+        if (!(k1 > 0)) {
+            throw new IllegalArgumentException("k1 must be positive: " + k1);
+        }
+        if (!(b >= 0 && b <= 1)) {
+            throw new IllegalArgumentException("b must be in [0, 1]: " + b);
+        }
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * @param docFreq number of documents of the term
+     * @param docCount number of documents of the field
+     * @return inverse document frequency, always positive
+     */
+    public static float idf(final long docFreq, final long docCount) {
+        return (float) Math.log(1 + (docCount - docFreq + 0.5d) / (docFreq + 0.5d));
+    }
+
+    @Override
+    public SimScorer scorer(final FieldStatistics field, final int... docFreqs) {
+        float idf = 0;
+        //the documents still in memory are counted in docFreq, docCount can't be lower
+        for (int docFreq : docFreqs) {
+            idf += idf(docFreq, Math.max(field.docCount(), docFreq));
+        }
+        float averageLength = field.averageFieldLength();
+        float[] cache = new float[256];
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = 1f / (k1 * ((1 - b) + b * ByteNorms.DECODE_TABLE[i] / averageLength));
+        }
+        final float weight = idf;
+        return (frequency, norm) -> weight - weight / (1f + frequency * cache[norm & 0xFF]);
+    }
+
+    @Override
+    public String toString() {
+        return "BM25(k1=" + k1 + ",b=" + b + ")";
+    }
+}
@@ -0,0 +1,202 @@
+package com.dave.invertedindex.index;
+
+import java.util.List;
+
+/**
+ * Matches the documents matched by any of its scorers, as DisjunctionScorer, but skips the documents which can't
+ * score the minimum competitive score, with the Block-Max WAND algorithm.
+ *
+ * Scorers are kept sorted by their current document. Adding up their max scores in that order, the pivot is the first
+ * scorer reaching the minimum competitive score: the documents before the pivot document can only be matched by the
+ * scorers before it, so they can't be competitive. Then the bounds of the blocks containing the pivot document are
+ * added up too, and if they can't reach the minimum, all the documents up to the end of the first of those blocks are
+ * skipped as well, without reading the postings of the blocks in between. Only the documents passing both bounds are
+ * scored.
+ *
+ * Until a minimum is set, every document is matched. The score of a document returned is always the sum of the scores
+ * of all the scorers matching it
+ */
+public class BlockMaxWandScorer extends Scorer {
+
+    /**
+     * sorted by current document
+     */
+    protected final Scorer[] scorers;
+
+    /**
+     * current document of every scorer, and its max score, at the same positions, so they are compared without calling
+     * the scorers
+     */
+    protected final int[] docIds;
+
+    protected final float[] maxScores;
+
+    /**
+     * bounds of the blocks of the scorers up to the pivot, at the same positions
+     */
+    protected final float[] blockMaxScores;
+
+    protected float minCompetitiveScore = Float.NEGATIVE_INFINITY;
+
+    protected int docId = -1;
+
+    protected float score;
+
+    /**
+     * @param scorers at least one scorer, all of them with a finite max score
+     */
+    public BlockMaxWandScorer(final List<Scorer> scorers) {
+        this.scorers = scorers.toArray(new Scorer[0]);
+        this.docIds = new int[this.scorers.length];
+        this.maxScores = new float[this.scorers.length];
+        this.blockMaxScores = new float[this.scorers.length];
+        for (int i = 0; i < this.scorers.length; i++) {
+            docIds[i] = this.scorers[i].docId();
+            maxScores[i] = this.scorers[i].maxScore();
+        }
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int nextDoc() {
+        return docId == NO_MORE_DOCS ? NO_MORE_DOCS : doNext(docId + 1);
+    }
+
+    @Override
+    public int advance(final int target) {
+        return doNext(target);
+    }
+
+    /**
+     * @param target lowest document id to consider
+     * @return first competitive document from target
+     */
+    protected int doNext(int target) {
+        while (target != NO_MORE_DOCS) {
+            for (int i = 0; i < scorers.length; i++) {
+                if (docIds[i] < target) {
+                    docIds[i] = scorers[i].advance(target);
+                }
+            }
+            sortByDocId();
+
+            //the pivot is the first scorer whose max score, added to the ones before it, reaches the minimum
+            int pivot = -1;
+            double sumMaxScores = 0;
+            for (int i = 0; i < scorers.length && docIds[i] != NO_MORE_DOCS; i++) {
+                sumMaxScores += maxScores[i];
+                if (sumMaxScores >= minCompetitiveScore) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot == -1) {
+                break;
+            }
+            int pivotDocId = docIds[pivot];
+            while (pivot + 1 < scorers.length && docIds[pivot + 1] == pivotDocId) {
+                pivot++;
+            }
+
+            //bound the documents from the pivot one to the end of the shortest block
+            int blockEnd = NO_MORE_DOCS;
+            double sumBlockMaxScores = 0;
+            for (int i = 0; i <= pivot; i++) {
+                blockEnd = Math.min(blockEnd, scorers[i].advanceShallow(pivotDocId));
+                blockMaxScores[i] = scorers[i].blockMaxScore();
+                sumBlockMaxScores += blockMaxScores[i];
+            }
+            if (sumBlockMaxScores < minCompetitiveScore) {
+                //no document up to the end of the block, or up to the next scorer, can be competitive
+                int next = pivot + 1 < scorers.length ? docIds[pivot + 1] : NO_MORE_DOCS;
+                target = blockEnd == NO_MORE_DOCS ? next : Math.min(blockEnd + 1, next);
+                continue;
+            }
+
+            //the scorers behind are moved to the pivot document, the ones going past it don't match it
+            double bound = 0;
+            for (int i = 0; i <= pivot; i++) {
+                if (docIds[i] < pivotDocId) {
+                    docIds[i] = scorers[i].advance(pivotDocId);
+                }
+                if (docIds[i] == pivotDocId) {
+                    bound += blockMaxScores[i];
+                }
+            }
+            float pivotScore = 0;
+            for (int i = 0; i <= pivot && bound >= minCompetitiveScore; i++) {
+                if (docIds[i] == pivotDocId) {
+                    float scorerScore = scorers[i].score();
+                    pivotScore += scorerScore;
+                    //the bound gets closer to the score as the scorers are scored
+                    bound -= blockMaxScores[i] - scorerScore;
+                }
+            }
+            if (bound < minCompetitiveScore) {
+                target = pivotDocId + 1;
+                continue;
+            }
+            score = pivotScore;
+            docId = pivotDocId;
+            return docId;
+        }
+        docId = NO_MORE_DOCS;
+        return docId;
+    }
+
+    /**
+     * insertion sort, scorers are almost sorted since only the ones before the pivot move
+     */
+    protected void sortByDocId() {
+        for (int i = 1; i < scorers.length; i++) {
+            int scorerDocId = docIds[i];
+            if (scorerDocId >= docIds[i - 1]) {
+                continue;
+            }
+            Scorer scorer = scorers[i];
+            float maxScore = maxScores[i];
+            int j = i - 1;
+            while (j >= 0 && docIds[j] > scorerDocId) {
+                scorers[j + 1] = scorers[j];
+                docIds[j + 1] = docIds[j];
+                maxScores[j + 1] = maxScores[j];
+                j--;
+            }
+            scorers[j + 1] = scorer;
+            docIds[j + 1] = scorerDocId;
+            maxScores[j + 1] = maxScore;
+        }
+    }
+
+    @Override
+    public float score() {
+        return score;
+    }
+
+    @Override
+    public void setMinCompetitiveScore(final float minScore) {
+        minCompetitiveScore = minScore;
+    }
+
+    @Override
+    public float maxScore() {
+        double sum = 0;
+        for (float maxScore : maxScores) {
+            sum += maxScore;
+        }
+        return (float) sum;
+    }
+
+    @Override
+    public long cost() {
+        long cost = 0;
+        for (Scorer scorer : scorers) {
+            cost += scorer.cost();
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,219 @@
+package com.dave.invertedindex.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Combines other queries:
+ * - MUST clauses are required, the query matches the documents matched by all of them (AND)
+ * - SHOULD clauses are optional if there is some MUST clause, they only add their scores. If there is none, the query
+ *   matches the documents matched by any of them (OR)
+ * - MUST_NOT clauses exclude the documents they match (NOT). A query with only MUST_NOT clauses matches nothing
+ *
+ * The score of a document is the sum of the scores of the MUST and SHOULD clauses matching it
+ *
+ *  Query query = new BooleanQuery.Builder()
+ *          .add(new TermQuery("body", "apple"), BooleanQuery.Occur.MUST)
+ *          .add(new TermQuery("body", "pie"), BooleanQuery.Occur.MUST_NOT)
+ *          .build();
+ */
+public class BooleanQuery extends Query {
+
+    public enum Occur {
+        MUST, SHOULD, MUST_NOT
+    }
+
+    /**
+     * a query and how it occurs in the boolean query
+     */
+    public static class Clause {
+
+        protected final Query query;
+
+        protected final Occur occur;
+
+        public Clause(final Query query, final Occur occur) {
+            this.query = query;
+            this.occur = occur;
+        }
+
+        public Query getQuery() {
+            return query;
+        }
+
+        public Occur getOccur() {
+            return occur;
+        }
+    }
+
+    protected final List<Clause> clauses;
+
+    protected BooleanQuery(final List<Clause> clauses) {
+        this.clauses = Collections.unmodifiableList(new ArrayList<>(clauses));
+    }
+
+    public List<Clause> clauses() {
+        return clauses;
+    }
+
+    @Override
+    protected Scorer scorer(final IndexReader reader) throws IOException, CorruptIndexException {
+        return scorer(reader, true);
+    }
+
+    /**
+     * optional clauses are iterated as a plain disjunction, without scoring the candidates to skip the ones that
+     * can't be competitive
+     */
+    @Override
+    protected Scorer matcher(final IndexReader reader) throws IOException, CorruptIndexException {
+        return scorer(reader, false);
+    }
+
+    /**
+     * a single clause which is not excluded matches the same documents as the query
+     */
+    @Override
+    protected int count(final IndexReader reader) throws IOException, CorruptIndexException {
+        if (clauses.size() == 1 && clauses.get(0).occur != Occur.MUST_NOT) {
+            return clauses.get(0).query.count(reader);
+        }
+        return super.count(reader);
+    }
+
+    /**
+     * @param scores false if the scores won't be read, so the clauses only need to match
+     */
+    protected Scorer scorer(final IndexReader reader, final boolean scores) throws IOException, CorruptIndexException {
+        List<Scorer> required = new ArrayList<>();
+        List<Scorer> optional = new ArrayList<>();
+        List<Scorer> excluded = new ArrayList<>();
+        List<Query> queries = new ArrayList<>(clauses.size());
+        for (Clause clause : clauses) {
+            queries.add(clause.query);
+        }
+        //postings of the clauses are read in parallel if the reader has an executor
+        List<Scorer> scorers = reader.scorers(queries, scores);
+        for (int i = 0; i < clauses.size(); i++) {
+            Clause clause = clauses.get(i);
+            Scorer scorer = scorers.get(i);
+            if (scorer == null) {
+                if (clause.occur == Occur.MUST) {
+                    //a required clause matches nothing, so the query doesn't
+                    return null;
+                }
+                continue;
+            }
+            if (clause.occur == Occur.MUST) {
+                required.add(scorer);
+            } else if (clause.occur == Occur.SHOULD) {
+                optional.add(scorer);
+            } else {
+                excluded.add(scorer);
+            }
+        }
+
+        Scorer scorer;
+        if (required.isEmpty()) {
+            if (optional.isEmpty()) {
+                return null;
+            }
+            scorer = scores ? disjunction(optional, reader.isBlockMaxWand()) : matcher(optional);
+        } else {
+            scorer = required.size() == 1 ? required.get(0) : new ConjunctionScorer(required);
+            if (!optional.isEmpty()) {
+                if (scores) {
+                    scorer = new ReqOptScorer(scorer, disjunction(optional, reader.isBlockMaxWand()));
+                }
+                //otherwise optional clauses don't change the documents matched
+            }
+        }
+        if (!excluded.isEmpty()) {
+            scorer = new ReqExclScorer(scorer, scores ? disjunction(excluded, false) : matcher(excluded));
+        }
+        return scorer;
+    }
+
+    /**
+     * @return iterator over the documents matched by any of the scorers, which doesn't bound their scores
+     */
+    protected static Scorer matcher(final List<Scorer> scorers) {
+        return scorers.size() == 1 ? scorers.get(0) : new DisjunctionScorer(scorers);
+    }
+
+    /**
+     * @param blockMaxWand true to skip the documents block by block with Block-Max WAND, if the scorers are read in
+     * blocks, instead of MaxScore
+     * @return scorer of the documents matched by any of the scorers. If all of them can bound their scores, it skips
+     * the documents that can't be competitive
+     */
+    protected static Scorer disjunction(final List<Scorer> scorers, final boolean blockMaxWand) {
+        if (scorers.size() == 1) {
+            return scorers.get(0);
+        }
+        for (Scorer scorer : scorers) {
+            if (scorer.maxScore() == Float.POSITIVE_INFINITY) {
+                return new DisjunctionScorer(scorers);
+            }
+        }
+        if (blockMaxWand) {
+            for (Scorer scorer : scorers) {
+                if (scorer.advanceShallow(0) != Scorer.NO_MORE_DOCS) {
+                    return new BlockMaxWandScorer(scorers);
+                }
+            }
+        }
+        return new MaxScoreScorer(scorers);
+    }
+
+    /**
+     * the order of the clauses doesn't change the documents matched, so they are sorted
+     */
+    @Override
+    protected String cacheKey() {
+        List<String> keys = new ArrayList<>(clauses.size());
+        for (Clause clause : clauses) {
+            keys.add(clause.occur.name().concat(" ").concat(clause.query.cacheKey()));
+        }
+        Collections.sort(keys);
+        return keys.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("(");
+        for (Clause clause : clauses) {
+            if (sb.length() > 1) {
+                sb.append(' ');
+            }
+            if (clause.occur == Occur.MUST) {
+                sb.append('+');
+            } else if (clause.occur == Occur.MUST_NOT) {
+                sb.append('-');
+            }
+            sb.append(clause.query);
+        }
+        return sb.append(')').toString();
+    }
+
+    public static class Builder {
+
+        protected final List<Clause> clauses = new ArrayList<>();
+
+        public Builder add(final Query query, final Occur occur) {
+            clauses.add(new Clause(query, occur));
+            return this;
+        }
+
+        public Builder add(final Clause clause) {
+            clauses.add(clause);
+            return this;
+        }
+
+        public BooleanQuery build() {
+            return new BooleanQuery(clauses);
+        }
+    }
+}
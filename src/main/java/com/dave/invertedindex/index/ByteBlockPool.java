@@ -0,0 +1,344 @@
+package com.dave.invertedindex.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Arena of bytes, made of big pages (blocks) which are filled one after the other. Addresses are ints, the high bits
+ * select the block and the low bits the offset inside it, so a pool can hold up to 2GB; the index is flushed long
+ * before that.
+ *
+ * Besides plain byte ranges, the pool holds slices, which are used to append a stream of bytes of unknown length to
+ * the pool, ie, the postings of a term, while other streams are being appended too. A stream starts with a small slice,
+ * and when it's full a bigger one is allocated, whose address is written in the last 4 bytes of the previous one.
+ * The end of a slice is marked by a non zero byte, which encodes the level of the slice, so blocks have to be zero
+ * filled before being reused.
+ *
+ * Blocks are kept when the pool is reset, so the same memory is reused after every flush. They can be allocated
+ * off-heap, as direct ByteBuffers, so the data doesn't take heap space and isn't traversed by the garbage collector
+ */
+public class ByteBlockPool {
+
+    public static final int BLOCK_SHIFT = 15;
+
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    public static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * size of the slices of every level, and the level that comes after every level
+     */
+    protected static final int[] LEVEL_SIZE = {5, 14, 20, 30, 40, 40, 80, 80, 120, 200};
+
+    protected static final int[] NEXT_LEVEL = {1, 2, 3, 4, 5, 6, 7, 8, 9, 9};
+
+    /**
+     * size of the first slice of a stream
+     */
+    public static final int FIRST_LEVEL_SIZE = LEVEL_SIZE[0];
+
+    /**
+     * are blocks allocated off-heap?
+     */
+    protected final boolean direct;
+
+    protected ByteBuffer[] blocks = new ByteBuffer[8];
+
+    /**
+     * index of the block being filled, -1 if none has been used
+     */
+    protected int blockUpto = -1;
+
+    /**
+     * block being filled
+     */
+    protected ByteBuffer block;
+
+    /**
+     * first free position in the current block
+     */
+    protected int byteUpto = BLOCK_SIZE;
+
+    /**
+     * address of the first byte of the current block
+     */
+    protected int blockOffset = -BLOCK_SIZE;
+
+    public ByteBlockPool() {
+        this(false);
+    }
+
+    /**
+     * @param direct true to allocate the blocks off-heap
+     */
+    public ByteBlockPool(final boolean direct) {
+        this.direct = direct;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * move to the next block, reusing it if it was already allocated
+     */
+    protected void nextBlock() {
+        if (blockUpto + 1 == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blocks.length << 1);
+        }
+        blockUpto++;
+        if (blocks[blockUpto] == null) {
+            blocks[blockUpto] = direct ? ByteBuffer.allocateDirect(BLOCK_SIZE) : ByteBuffer.allocate(BLOCK_SIZE);
+        }
+        block = blocks[blockUpto];
+        byteUpto = 0;
+        blockOffset += BLOCK_SIZE;
+    }
+
+    /**
+     * reserve a range of bytes that doesn't cross blocks
+     * @param size number of bytes, up to BLOCK_SIZE
+     * @return address of the range
+     */
+    public int allocate(final int size) {
+        if (byteUpto + size > BLOCK_SIZE) {
+            nextBlock();
+        }
+        int address = blockOffset + byteUpto;
+        byteUpto += size;
+        return address;
+    }
+
+    /**
+     * @param address any address of the pool
+     * @return the byte at the address
+     */
+    public byte readByte(final int address) {
+        return blocks[address >>> BLOCK_SHIFT].get(address & BLOCK_MASK);
+    }
+
+    /**
+     * @param address any address of the pool
+     * @param b value of the byte at the address
+     */
+    public void setByte(final int address, final byte b) {
+        blocks[address >>> BLOCK_SHIFT].put(address & BLOCK_MASK, b);
+    }
+
+    /**
+     * copy bytes to a range allocated with allocate()
+     */
+    public void setBytes(final int address, final byte[] bytes, final int offset, final int length) {
+        ByteBuffer b = blocks[address >>> BLOCK_SHIFT];
+        int upto = address & BLOCK_MASK;
+        for (int i = 0; i < length; i++) {
+            b.put(upto + i, bytes[offset + i]);
+        }
+    }
+
+    /**
+     * copy bytes from a range allocated with allocate()
+     */
+    public void readBytes(final int address, final byte[] bytes, final int offset, final int length) {
+        ByteBuffer b = blocks[address >>> BLOCK_SHIFT];
+        int upto = address & BLOCK_MASK;
+        for (int i = 0; i < length; i++) {
+            bytes[offset + i] = b.get(upto + i);
+        }
+    }
+
+    /**
+     * start a new stream
+     * @return address of the first slice
+     */
+    public int newSlice() {
+        int address = allocate(FIRST_LEVEL_SIZE);
+        //end marker of level 0
+        block.put(byteUpto - 1, (byte) 16);
+        return address;
+    }
+
+    /**
+     * append a byte to a stream, allocating a new slice when the current one is full
+     * @param address position where the byte has to be written
+     * @param b the byte
+     * @return position of the next byte of the stream
+     */
+    public int writeByte(int address, final byte b) {
+        ByteBuffer slice = blocks[address >>> BLOCK_SHIFT];
+        int offset = address & BLOCK_MASK;
+        if (slice.get(offset) != 0) {
+            //reached the end marker
+            offset = nextSlice(slice, offset);
+            slice = block;
+            address = blockOffset + offset;
+        }
+        slice.put(offset, b);
+        return address + 1;
+    }
+
+    /**
+     * write a variable length int to a stream
+     * @return position of the next byte of the stream
+     */
+    public int writeVInt(int address, int value) {
+        while ((value & ~0x7F) != 0) {
+            address = writeByte(address, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        return writeByte(address, (byte) value);
+    }
+
+    /**
+     * allocate the next slice of a stream, and link the full one to it. The last 3 bytes of the full slice are
+     * moved to the new one, to make room for the address
+     * @param slice block of the full slice
+     * @param upto position of its end marker
+     * @return position in the current block where the stream goes on
+     */
+    protected int nextSlice(final ByteBuffer slice, final int upto) {
+        int level = slice.get(upto) & 15;
+        int newLevel = NEXT_LEVEL[level];
+        int newSize = LEVEL_SIZE[newLevel];
+        int address = allocate(newSize);
+        int newUpto = address & BLOCK_MASK;
+        block.put(newUpto, slice.get(upto - 3));
+        block.put(newUpto + 1, slice.get(upto - 2));
+        block.put(newUpto + 2, slice.get(upto - 1));
+        slice.putInt(upto - 3, address);
+        block.put(byteUpto - 1, (byte) (16 | newLevel));
+        return newUpto + 3;
+    }
+
+    /**
+     * @return bytes used by the data in the pool
+     */
+    public long bytesUsed() {
+        return (long) (blockUpto + 1) * BLOCK_SIZE - (BLOCK_SIZE - byteUpto);
+    }
+
+    /**
+     * @return bytes allocated by the pool, including the free blocks
+     */
+    public long bytesAllocated() {
+        long bytes = 0;
+        for (ByteBuffer b : blocks) {
+            if (b != null) {
+                bytes += BLOCK_SIZE;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * forget all the data, blocks are cleared to be reused
+     */
+    public void reset() {
+        for (int i = 0; i < blockUpto; i++) {
+            clear(blocks[i], BLOCK_SIZE);
+        }
+        if (blockUpto >= 0) {
+            clear(blocks[blockUpto], byteUpto);
+        }
+        blockUpto = -1;
+        block = null;
+        byteUpto = BLOCK_SIZE;
+        blockOffset = -BLOCK_SIZE;
+    }
+
+    /**
+     * zero fill the first bytes of a block
+     */
+    protected static void clear(final ByteBuffer b, final int length) {
+        if (b.hasArray()) {
+            Arrays.fill(b.array(), b.arrayOffset(), b.arrayOffset() + length, (byte) 0);
+            return;
+        }
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            b.putLong(i, 0L);
+        }
+        for (; i < length; i++) {
+            b.put(i, (byte) 0);
+        }
+    }
+
+    /**
+     * Reads the bytes of a stream, following the links from every slice to the next one. Bytes are read in place,
+     * also from direct blocks
+     */
+    public class SliceReader {
+
+        protected ByteBuffer slice;
+
+        protected int blockOffset;
+
+        protected int upto;
+
+        /**
+         * position of the end of the data in the current slice
+         */
+        protected int limit;
+
+        protected int level;
+
+        /**
+         * address where the stream ends
+         */
+        protected final int end;
+
+        /**
+         * @param start address of the first slice
+         * @param end address after the last byte written to the stream
+         */
+        public SliceReader(final int start, final int end) {
+            this.end = end;
+            this.level = 0;
+            this.slice = blocks[start >>> BLOCK_SHIFT];
+            this.blockOffset = start & ~BLOCK_MASK;
+            this.upto = start & BLOCK_MASK;
+            if (start + FIRST_LEVEL_SIZE >= end) {
+                //the stream ends inside this slice
+                this.limit = end & BLOCK_MASK;
+            } else {
+                this.limit = upto + FIRST_LEVEL_SIZE - 4;
+            }
+        }
+
+        public boolean eof() {
+            return upto + blockOffset == end;
+        }
+
+        public byte readByte() {
+            if (upto == limit) {
+                nextSlice();
+            }
+            return slice.get(upto++);
+        }
+
+        public int readVInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        protected void nextSlice() {
+            int next = slice.getInt(limit);
+            level = NEXT_LEVEL[level];
+            int size = LEVEL_SIZE[level];
+            slice = blocks[next >>> BLOCK_SHIFT];
+            blockOffset = next & ~BLOCK_MASK;
+            upto = next & BLOCK_MASK;
+            if (next + size >= end) {
+                limit = end - blockOffset;
+            } else {
+                limit = upto + size - 4;
+            }
+        }
+    }
+}
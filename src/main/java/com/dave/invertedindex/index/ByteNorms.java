@@ -0,0 +1,127 @@
+package com.dave.invertedindex.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Norms of a field written to the directory: one byte per document, at the position given by its id. The buffer can
+ * be a file mapped in memory, or the bytes read from a db, so loading the norms of a field is a single call, whatever
+ * the number of documents.
+ *
+ * A norm is quantized to a byte, with a 4 bits float: lengths up to 23 are exact, longer ones keep 3 bits of precision
+ * and are rounded down. 0 means the document has no norm. Decoding is a lookup in a table of 256 ints
+ */
+public class ByteNorms implements Norms {
+
+    /**
+     * norms below this value are encoded as they are
+     */
+    protected static final int NUM_FREE_VALUES = 255 - longToInt4(Integer.MAX_VALUE);
+
+    protected static final int[] DECODE_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < DECODE_TABLE.length; i++) {
+            DECODE_TABLE[i] = decode((byte) i);
+        }
+    }
+
+    protected final ByteBuffer norms;
+
+    /**
+     * @param norms one encoded norm per document id, starting at document 0
+     */
+    public ByteNorms(final ByteBuffer norms) {
+        this.norms = norms;
+    }
+
+    @Override
+    public int norm(final int docId) {
+        if (docId < 0 || docId >= norms.limit()) {
+            return 0;
+        }
+        return DECODE_TABLE[norms.get(docId) & 0xFF];
+    }
+
+    @Override
+    public byte encodedNorm(final int docId) {
+        if (docId < 0 || docId >= norms.limit()) {
+            return 0;
+        }
+        return norms.get(docId);
+    }
+
+    /**
+     * @return number of document ids with room in the buffer, including the ones with no norm
+     */
+    public int size() {
+        return norms.limit();
+    }
+
+    /**
+     * @param norm a norm, not negative
+     * @return the byte storing it
+     */
+    public static byte encode(final int norm) {
+        if (norm < 0) {
+            throw new IllegalArgumentException("norm can't be negative: " + norm);
+        }
+        if (norm < NUM_FREE_VALUES) {
+            return (byte) norm;
+        }
+        return (byte) (NUM_FREE_VALUES + longToInt4(norm - NUM_FREE_VALUES));
+    }
+
+    /**
+     * @param b a byte returned by encode
+     * @return the norm, rounded down
+     */
+    public static int decode(final byte b) {
+        int i = b & 0xFF;
+        if (i < NUM_FREE_VALUES) {
+            return i;
+        }
+        return (int) (NUM_FREE_VALUES + int4ToLong(i - NUM_FREE_VALUES));
+    }
+
+    /**
+     * add norms to the ones already encoded
+     * @param written encoded norms of the documents already written, null if there are none
+     * @param norms norms of the documents in memory, by document id
+     * @return the encoded norms of all the documents, written is reused if it's big enough
+     */
+    public static byte[] encode(final byte[] written, final Map<Integer, Integer> norms) {
+        int maxDocId = -1;
+        for (Integer docId : norms.keySet()) {
+            maxDocId = Math.max(maxDocId, docId);
+        }
+        byte[] encoded = written == null ? new byte[0] : written;
+        if (maxDocId >= encoded.length) {
+            encoded = Arrays.copyOf(encoded, maxDocId + 1);
+        }
+        for (Map.Entry<Integer, Integer> entry : norms.entrySet()) {
+            encoded[entry.getKey()] = encode(entry.getValue());
+        }
+        return encoded;
+    }
+
+    /**
+     * float with 3 bits of mantissa, the leading 1 is implicit, and the rest for the exponent
+     */
+    protected static int longToInt4(final long i) {
+        int numBits = 64 - Long.numberOfLeadingZeros(i);
+        if (numBits < 4) {
+            return (int) i;
+        }
+        int shift = numBits - 4;
+        int encoded = (int) (i >>> shift) & 0x07;
+        return encoded | ((shift + 1) << 3);
+    }
+
+    protected static long int4ToLong(final int i) {
+        long bits = i & 0x07;
+        int shift = (i >>> 3) - 1;
+        return shift == -1 ? bits : (bits | 0x08) << shift;
+    }
+}
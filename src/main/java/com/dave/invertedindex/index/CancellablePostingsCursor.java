@@ -0,0 +1,76 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Reads the postings of other cursor, checking a CancellationToken every CHECK_INTERVAL moves, so scorers which read
+ * many postings before returning a document, eg, to skip the ones that can't be competitive, stop too. Positions and
+ * impacts are read from the wrapped cursor as they are
+ */
+class CancellablePostingsCursor extends PostingsCursor {
+
+    protected static final int CHECK_MASK = CancellationToken.CHECK_INTERVAL - 1;
+
+    protected final PostingsCursor in;
+
+    protected final CancellationToken token;
+
+    /**
+     * moves since the cursor was created
+     */
+    protected int moves = 0;
+
+    CancellablePostingsCursor(final PostingsCursor in, final CancellationToken token) {
+        this.in = in;
+        this.token = token;
+    }
+
+    @Override
+    public int nextDoc() {
+        if ((++moves & CHECK_MASK) == 0) {
+            token.check();
+        }
+        return in.nextDoc();
+    }
+
+    @Override
+    public int advance(final int target) {
+        if ((++moves & CHECK_MASK) == 0) {
+            token.check();
+        }
+        return in.advance(target);
+    }
+
+    @Override
+    public int docId() {
+        return in.docId();
+    }
+
+    @Override
+    public int termFrequency() {
+        return in.termFrequency();
+    }
+
+    @Override
+    public int size() {
+        return in.size();
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return in.hasPositions();
+    }
+
+    @Override
+    public int nextPosition() {
+        return in.nextPosition();
+    }
+
+    @Override
+    public int advanceShallow(final int target) {
+        return in.advanceShallow(target);
+    }
+
+    @Override
+    public Impact blockImpact() {
+        return in.blockImpact();
+    }
+}
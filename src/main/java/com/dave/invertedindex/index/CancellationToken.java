@@ -0,0 +1,102 @@
+package com.dave.invertedindex.index;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops a search before it ends, once its deadline has passed or it has been cancelled from other thread. The search
+ * checks the token every CHECK_INTERVAL postings read and every CHECK_INTERVAL documents collected, so a query on a
+ * very common term stops soon after its deadline, with the hits collected until then
+ *
+ *  CancellationToken token = CancellationToken.timeout(100);
+ *  TopHits hits = reader.search(query, 10, token);
+ *  if (hits.isTimedOut()) {
+ *      //hits are the best of the documents read before the deadline
+ *  }
+ *
+ * A token can be shared by several searches, eg, the ones of a request, to stop all of them at once
+ */
+public class CancellationToken {
+
+    /**
+     * number of postings or documents between two checks, a power of two. Reading the clock every time would cost
+     * more than scoring a posting
+     */
+    public static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * System.nanoTime when the token expires, only if hasDeadline
+     */
+    protected final long deadline;
+
+    protected final boolean hasDeadline;
+
+    protected volatile boolean cancelled = false;
+
+    /**
+     * a token with no deadline, which only stops the search when cancel is called
+     */
+    public CancellationToken() {
+        this.deadline = 0;
+        this.hasDeadline = false;
+    }
+
+    protected CancellationToken(final long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * @param millis time the search can run, from now
+     * @return a token which expires after that time, and can also be cancelled before
+     */
+    public static CancellationToken timeout(final long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("timeout can't be negative: " + millis);
+        }
+        return new CancellationToken(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * stop the searches using this token, they return the hits collected so far
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the token has been cancelled or its deadline has passed
+     */
+    public boolean isCancelled() {
+        if (cancelled) {
+            return true;
+        }
+        //nanoTime can overflow, so only the difference is compared
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @throws Cancelled if the token is cancelled, it's caught by the search, which returns the hits it has
+     */
+    void check() {
+        if (isCancelled()) {
+            throw new Cancelled();
+        }
+    }
+
+    /**
+     * unwinds the scorers and cursors of a search from wherever it's checked, up to IndexReader.search. It has no
+     * stack trace, since it's expected and only used to stop
+     */
+    static class Cancelled extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super("search cancelled", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Receives the documents matched by a search, with their scores, as they are found. Documents are not collected in
+ * any particular order
+ */
+public interface Collector {
+
+    /**
+     * @param docId internal id of a matching document
+     * @param score score of the document
+     */
+    void collect(int docId, float score);
+
+    /**
+     * the search skips the documents which score less than this, if its scorer can bound the scores
+     * @return lowest score a document needs to be collected, negative infinity if all of them are
+     */
+    default float minCompetitiveScore() {
+        return Float.NEGATIVE_INFINITY;
+    }
+}
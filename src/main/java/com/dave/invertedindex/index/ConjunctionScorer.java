@@ -0,0 +1,93 @@
+package com.dave.invertedindex.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Matches the documents matched by all its scorers, the score is the sum of their scores.
+ *
+ * The scorer with the lowest cost leads: for every one of its documents the others are advanced to it, and if one
+ * of them goes past it, the leader is advanced to that document instead. Since cursors skip postings on advance, an
+ * intersection of a rare term with a common one costs about the length of the rare one
+ */
+public class ConjunctionScorer extends Scorer {
+
+    protected final Scorer lead;
+
+    protected final Scorer[] others;
+
+    protected final Scorer[] scorers;
+
+    /**
+     * @param scorers at least two scorers
+     */
+    public ConjunctionScorer(final List<Scorer> scorers) {
+        List<Scorer> sorted = new ArrayList<>(scorers);
+        sorted.sort(Comparator.comparingLong(Scorer::cost));
+        this.scorers = sorted.toArray(new Scorer[0]);
+        this.lead = this.scorers[0];
+        this.others = sorted.subList(1, sorted.size()).toArray(new Scorer[0]);
+    }
+
+    @Override
+    public int docId() {
+        return lead.docId();
+    }
+
+    @Override
+    public int nextDoc() {
+        return doNext(lead.nextDoc());
+    }
+
+    @Override
+    public int advance(final int target) {
+        return doNext(lead.advance(target));
+    }
+
+    /**
+     * @param docId candidate document, where the leader is
+     * @return first document from the candidate where all the scorers are
+     */
+    protected int doNext(int docId) {
+        candidates:
+        while (docId != NO_MORE_DOCS) {
+            for (Scorer other : others) {
+                int otherDocId = other.docId();
+                if (otherDocId < docId) {
+                    otherDocId = other.advance(docId);
+                }
+                if (otherDocId > docId) {
+                    //the candidate is not in this scorer, try with the next one it has
+                    docId = lead.advance(otherDocId);
+                    continue candidates;
+                }
+            }
+            return docId;
+        }
+        return NO_MORE_DOCS;
+    }
+
+    @Override
+    public float score() {
+        float score = 0;
+        for (Scorer scorer : scorers) {
+            score += scorer.score();
+        }
+        return score;
+    }
+
+    @Override
+    public float maxScore() {
+        float maxScore = 0;
+        for (Scorer scorer : scorers) {
+            maxScore += scorer.maxScore();
+        }
+        return maxScore;
+    }
+
+    @Override
+    public long cost() {
+        return lead.cost();
+    }
+}
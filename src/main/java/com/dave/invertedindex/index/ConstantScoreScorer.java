@@ -0,0 +1,59 @@
+package com.dave.invertedindex.index;
+
+import java.util.BitSet;
+
+/**
+ * Matches the documents of a set of document ids, all of them with the same score
+ */
+public class ConstantScoreScorer extends Scorer {
+
+    protected final BitSet docIds;
+
+    protected final float score;
+
+    protected final long cost;
+
+    protected int docId = -1;
+
+    /**
+     * @param docIds ids of the documents matched
+     * @param score score of every document
+     */
+    public ConstantScoreScorer(final BitSet docIds, final float score) {
+        this.docIds = docIds;
+        this.score = score;
+        this.cost = docIds.cardinality();
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int nextDoc() {
+        return docId == NO_MORE_DOCS ? NO_MORE_DOCS : advance(docId + 1);
+    }
+
+    @Override
+    public int advance(final int target) {
+        int next = docIds.nextSetBit(target);
+        docId = next < 0 ? NO_MORE_DOCS : next;
+        return docId;
+    }
+
+    @Override
+    public float score() {
+        return score;
+    }
+
+    @Override
+    public long cost() {
+        return cost;
+    }
+
+    @Override
+    public float maxScore() {
+        return score;
+    }
+}
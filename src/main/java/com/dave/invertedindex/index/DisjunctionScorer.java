@@ -0,0 +1,84 @@
+package com.dave.invertedindex.index;
+
+import java.util.List;
+
+/**
+ * Matches the documents matched by any of its scorers, the score is the sum of the scores of the ones matching.
+ * The current document is the lowest of the scorers, which are checked one by one, so it's meant for a few clauses
+ */
+public class DisjunctionScorer extends Scorer {
+
+    protected final Scorer[] scorers;
+
+    protected int docId = -1;
+
+    /**
+     * @param scorers at least one scorer
+     */
+    public DisjunctionScorer(final List<Scorer> scorers) {
+        this.scorers = scorers.toArray(new Scorer[0]);
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int nextDoc() {
+        int next = NO_MORE_DOCS;
+        for (Scorer scorer : scorers) {
+            int scorerDocId = scorer.docId();
+            if (scorerDocId == docId) {
+                //every scorer on the current document, or all of them before the first call
+                scorerDocId = scorer.nextDoc();
+            }
+            next = Math.min(next, scorerDocId);
+        }
+        docId = next;
+        return docId;
+    }
+
+    @Override
+    public int advance(final int target) {
+        int next = NO_MORE_DOCS;
+        for (Scorer scorer : scorers) {
+            int scorerDocId = scorer.docId();
+            if (scorerDocId < target) {
+                scorerDocId = scorer.advance(target);
+            }
+            next = Math.min(next, scorerDocId);
+        }
+        docId = next;
+        return docId;
+    }
+
+    @Override
+    public float score() {
+        float score = 0;
+        for (Scorer scorer : scorers) {
+            if (scorer.docId() == docId) {
+                score += scorer.score();
+            }
+        }
+        return score;
+    }
+
+    @Override
+    public float maxScore() {
+        float maxScore = 0;
+        for (Scorer scorer : scorers) {
+            maxScore += scorer.maxScore();
+        }
+        return maxScore;
+    }
+
+    @Override
+    public long cost() {
+        long cost = 0;
+        for (Scorer scorer : scorers) {
+            cost += scorer.cost();
+        }
+        return cost;
+    }
+}
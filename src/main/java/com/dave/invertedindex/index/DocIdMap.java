@@ -0,0 +1,228 @@
+package com.dave.invertedindex.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps the dense int document ids used internally by the index to the external ids of the documents.
+ * Postings, norms and stored fields are all keyed by the internal id, which is much cheaper to keep in memory and
+ * to compare than the external id; the external id is only needed when the results are returned to the user
+ *
+ * Internal ids are assigned sequentially, starting at 0, in the same order the documents are added to the index
+ * Access is synchronized, since documents can be added by several threads at the same time. Ids can also be
+ * reserved without locking, and mapped later, which is used by the per-thread buffers of IndexWriter
+ */
+public class DocIdMap {
+
+    /**
+     * internal id -> external id
+     */
+    protected Map<Integer, String> externalIds;
+
+    /**
+     * external id -> internal id
+     */
+    protected Map<String, Integer> internalIds;
+
+    /**
+     * internal id -> external id of the documents removed. Kept even when the mappings are released, since the
+     * number of documents of the terms written still counts them, and written by the directories with the table
+     */
+    protected final Map<Integer, String> removedIds = new HashMap<>();
+
+    /**
+     * next internal id that will be assigned
+     */
+    protected final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * ids lower than this one have already been written to the directory
+     */
+    protected int writtenId = 0;
+
+    public DocIdMap() {
+        this(new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * build the map on top of already existing data, ie, read from disk
+     * @param externalIds internal id -> external id
+     * @param internalIds external id -> internal id
+     */
+    public DocIdMap(final Map<Integer, String> externalIds, final Map<String, Integer> internalIds) {
+        this(externalIds, internalIds, Collections.emptyMap());
+    }
+
+    /**
+     * build the map on top of already existing data, ie, read from disk
+     * @param externalIds internal id -> external id
+     * @param internalIds external id -> internal id, without the documents removed
+     * @param removedIds internal id -> external id of the documents removed
+     */
+    public DocIdMap(final Map<Integer, String> externalIds, final Map<String, Integer> internalIds,
+                    final Map<Integer, String> removedIds) {
+        this.externalIds = externalIds;
+        this.internalIds = internalIds;
+        this.removedIds.putAll(removedIds);
+        //entries are never removed from externalIds, so its size is the next id
+        this.nextId.set(externalIds.size());
+        this.writtenId = this.nextId.get();
+    }
+
+    /**
+     * assign a new internal id to the document
+     * @param externalId id of the document given by the user
+     * @return the internal id
+     */
+    public synchronized int add(final String externalId) {
+        int docId = reserve();
+        put(docId, externalId);
+        return docId;
+    }
+
+    /**
+     * take the next internal id, without mapping it yet
+     * @return the internal id
+     */
+    public int reserve() {
+        return this.nextId.getAndIncrement();
+    }
+
+    /**
+     * make sure the ids assigned from now on are not lower than the given one, eg, when documents are added to an
+     * index already written
+     * @param docId lowest id that can be assigned
+     */
+    public void skipTo(final int docId) {
+        this.nextId.accumulateAndGet(docId, Math::max);
+    }
+
+    /**
+     * map an internal id, either reserved from this map or from other one sharing the same ids
+     * @param docId internal id
+     * @param externalId id of the document given by the user
+     */
+    public synchronized void put(final int docId, final String externalId) {
+        this.externalIds.put(docId, externalId);
+        this.internalIds.put(externalId, docId);
+        this.nextId.accumulateAndGet(docId + 1, Math::max);
+    }
+
+    /**
+     * add all the mappings of other map
+     * @param other map whose ids don't collide with the ones in this map
+     */
+    public synchronized void putAll(final DocIdMap other) {
+        for (Map.Entry<Integer, String> entry : other.externalIds.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * the external id is unmapped, but the internal id is not reused, so ids remain dense and sequential
+     * @param docId internal id of the document being removed
+     */
+    public synchronized void remove(final int docId) {
+        String externalId = this.externalIds.get(docId);
+        if (externalId != null) {
+            remove(docId, externalId);
+        }
+    }
+
+    /**
+     * remove a document which may not be mapped in memory, ie, found in the table of ids of the directory
+     * @param docId internal id of the document being removed
+     * @param externalId id of the document given by the user
+     */
+    public synchronized void remove(final int docId, final String externalId) {
+        this.internalIds.remove(externalId, docId);
+        this.removedIds.put(docId, externalId);
+    }
+
+    /**
+     * @param docId internal id
+     * @return external id of the document, null if the id is unknown
+     */
+    public synchronized String externalId(final int docId) {
+        return this.externalIds.get(docId);
+    }
+
+    /**
+     * @param externalId external id
+     * @return internal id of the document, -1 if the document is not in the index
+     */
+    public synchronized int docId(final String externalId) {
+        Integer docId = this.internalIds.get(externalId);
+        return docId == null ? -1 : docId;
+    }
+
+    /**
+     * @return true if some document has been removed, ie, some internal id has no external id mapped to it anymore
+     */
+    public synchronized boolean hasDeletions() {
+        return !this.removedIds.isEmpty() || this.internalIds.size() < this.externalIds.size();
+    }
+
+    /**
+     * @return internal id -> external id of the documents removed, also the ones whose mappings have been released
+     */
+    public synchronized Map<Integer, String> getRemovedIds() {
+        return new HashMap<>(removedIds);
+    }
+
+    /**
+     * @return internal id -> external id of the documents added since the ids were written, see setWritten
+     */
+    public synchronized Map<Integer, String> getUnwrittenIds() {
+        Map<Integer, String> unwritten = new HashMap<>();
+        //ids are dense, so only the new ones are looked up
+        for (int docId = this.writtenId; docId < this.nextId.get(); docId++) {
+            String externalId = this.externalIds.get(docId);
+            if (externalId != null) {
+                unwritten.put(docId, externalId);
+            }
+        }
+        return unwritten;
+    }
+
+    /**
+     * mark all the ids assigned until now as written to the directory
+     */
+    public synchronized void setWritten() {
+        this.writtenId = this.nextId.get();
+    }
+
+    public int getNextId() {
+        return nextId.get();
+    }
+
+    public Map<Integer, String> getExternalIds() {
+        return externalIds;
+    }
+
+    public Map<String, Integer> getInternalIds() {
+        return internalIds;
+    }
+
+    /**
+     * release the mappings kept in memory, but keep the id counter, so new documents don't reuse ids, and the
+     * documents removed. Used by the buffers of IndexWriter once their ids are moved to the index
+     * maps are replaced rather than cleared, since they could be backed by the files of a Directory
+     */
+    public synchronized void clear() {
+        this.externalIds = new HashMap<>();
+        this.internalIds = new HashMap<>();
+    }
+
+    /**
+     * back to the initial state
+     */
+    public synchronized void reset() {
+        clear();
+        this.removedIds.clear();
+        this.nextId.set(0);
+        this.writtenId = 0;
+    }
+}
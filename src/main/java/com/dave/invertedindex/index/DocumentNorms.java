@@ -0,0 +1,226 @@
+package com.dave.invertedindex.index;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Norms of a field for the documents indexed in memory, kept in a dense array of ints indexed by document id, instead
+ * of a map of boxed Integers. The array starts at the lowest document id seen, since after every flush ids go on
+ * from the last one. It can be allocated off-heap, in a direct buffer.
+ *
+ * It's still a Map, so it can be written by the Directories like any other norms, and its methods are synchronized,
+ * since norms are added by every indexer thread in concurrent mode. Norms are kept exact, they are only quantized
+ * when written
+ */
+public class DocumentNorms extends AbstractMap<Integer, Integer> implements Norms {
+
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * value of the documents with no norm
+     */
+    protected static final int MISSING = -1;
+
+    protected final boolean direct;
+
+    protected IntBuffer norms;
+
+    /**
+     * document id of the first position of norms
+     */
+    protected int base = -1;
+
+    protected int size = 0;
+
+    public DocumentNorms() {
+        this(false);
+    }
+
+    /**
+     * @param direct true to keep the norms off-heap
+     */
+    public DocumentNorms(final boolean direct) {
+        this.direct = direct;
+        this.norms = allocate(0);
+    }
+
+    /**
+     * @param docId document id
+     * @return the norm of the document, -1 if there is none
+     */
+    public synchronized int getNorm(final int docId) {
+        int index = docId - base;
+        if (base < 0 || index < 0 || index >= norms.capacity()) {
+            return MISSING;
+        }
+        return norms.get(index);
+    }
+
+    @Override
+    public int norm(final int docId) {
+        return Math.max(getNorm(docId), 0);
+    }
+
+    /**
+     * @param docId document id
+     * @param norm the norm, not negative
+     * @return the previous norm of the document, -1 if there was none
+     */
+    public synchronized int putNorm(final int docId, final int norm) {
+        if (base < 0 || docId < base || docId - base >= norms.capacity()) {
+            grow(docId);
+        }
+        int previous = norms.get(docId - base);
+        norms.put(docId - base, norm);
+        if (previous == MISSING) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * @return memory used by the norms, in bytes
+     */
+    public synchronized long ramBytesUsed() {
+        return 4L * norms.capacity();
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public Integer get(final Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int norm = getNorm((Integer) key);
+        return norm == MISSING ? null : norm;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Integer put(final Integer key, final Integer value) {
+        int previous = putNorm(key, value);
+        return previous == MISSING ? null : previous;
+    }
+
+    @Override
+    public synchronized Integer remove(final Object key) {
+        Integer previous = get(key);
+        if (previous != null) {
+            norms.put((Integer) key - base, MISSING);
+            size--;
+        }
+        return previous;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void clear() {
+        norms = allocate(0);
+        base = -1;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Integer>> entrySet() {
+        return new AbstractSet<Map.Entry<Integer, Integer>>() {
+            @Override
+            public Iterator<Map.Entry<Integer, Integer>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return DocumentNorms.this.size();
+            }
+        };
+    }
+
+    /**
+     * make room for docId, at least doubling the capacity
+     */
+    protected void grow(final int docId) {
+        if (base < 0) {
+            norms = allocate(INITIAL_CAPACITY);
+            base = docId;
+            return;
+        }
+        int first = Math.min(base, docId);
+        int last = Math.max(base + norms.capacity(), docId + 1);
+        int capacity = Math.max(last - first, norms.capacity() << 1);
+        IntBuffer grown = allocate(capacity);
+        for (int i = 0; i < norms.capacity(); i++) {
+            grown.put(base - first + i, norms.get(i));
+        }
+        norms = grown;
+        base = first;
+    }
+
+    protected IntBuffer allocate(final int capacity) {
+        IntBuffer buffer = direct ? ByteBuffer.allocateDirect(capacity * 4).asIntBuffer() : IntBuffer.allocate(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buffer.put(i, MISSING);
+        }
+        return buffer;
+    }
+
+    protected class EntryIterator implements Iterator<Map.Entry<Integer, Integer>> {
+
+        protected int next = -1;
+
+        protected int current = -1;
+
+        protected EntryIterator() {
+            advance();
+        }
+
+        protected void advance() {
+            synchronized (DocumentNorms.this) {
+                do {
+                    next++;
+                } while (next < norms.capacity() && norms.get(next) == MISSING);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < norms.capacity();
+        }
+
+        @Override
+        public Map.Entry<Integer, Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            Map.Entry<Integer, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(base + next, norms.get(next));
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            DocumentNorms.this.remove(base + current);
+            current = -1;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dave.invertedindex.index;
+
+/**
+ * The values of a field found most often in the documents matched by a query, with the number of documents having
+ * every value, most frequent first
+ */
+public class FacetResult {
+
+    protected final String fieldName;
+
+    protected final String[] values;
+
+    protected final int[] counts;
+
+    /**
+     * number of documents matched with some value in the field
+     */
+    protected final int totalCount;
+
+    /**
+     * number of distinct values in the documents matched, including the ones not returned
+     */
+    protected final int valueCount;
+
+    public FacetResult(final String fieldName, final String[] values, final int[] counts, final int totalCount,
+                       final int valueCount) {
+        this.fieldName = fieldName;
+        this.values = values;
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.valueCount = valueCount;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return number of values returned
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param i from 0, the most frequent, to size() - 1
+     */
+    public String value(final int i) {
+        return values[i];
+    }
+
+    /**
+     * @param i from 0, the most frequent, to size() - 1
+     * @return number of documents matched with that value
+     */
+    public int count(final int i) {
+        return counts[i];
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(fieldName).append(':');
+        for (int i = 0; i < values.length; i++) {
+            sb.append(' ').append(values[i]).append('=').append(counts[i]);
+        }
+        return sb.toString();
+    }
+}
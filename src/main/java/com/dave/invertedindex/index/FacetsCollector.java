@@ -0,0 +1,168 @@
+package com.dave.invertedindex.index;
+
+import java.util.Arrays;
+
+/**
+ * Counts the values of some fields in all the documents matched by a search, in a single pass. Values are read from
+ * the doc values of the fields and counted in an array of ints per field, indexed by ordinal, so collecting a
+ * document is an array increment per field, and values are only read for the most frequent ones, once the search
+ * is done.
+ *
+ * Counts need every matching document, so it never tells the search to skip any
+ */
+public class FacetsCollector implements Collector {
+
+    protected final String[] fieldNames;
+
+    protected final SortedDocValues[] values;
+
+    /**
+     * number of documents with every ordinal, of every field
+     */
+    protected final int[][] counts;
+
+    protected int totalHits = 0;
+
+    /**
+     * @param fieldNames fields whose values are counted
+     * @param values doc values of every field, in the same order
+     */
+    public FacetsCollector(final String[] fieldNames, final SortedDocValues[] values) {
+        if (fieldNames.length != values.length) {
+            throw new IllegalArgumentException("every field needs its doc values");
+        }
+        this.fieldNames = fieldNames.clone();
+        this.values = values.clone();
+        this.counts = new int[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            this.counts[i] = new int[values[i].valueCount()];
+        }
+    }
+
+    @Override
+    public void collect(final int docId, final float score) {
+        totalHits++;
+        for (int i = 0; i < values.length; i++) {
+            int ord = values[i].ord(docId);
+            if (ord >= 0) {
+                counts[i][ord]++;
+            }
+        }
+    }
+
+    /**
+     * @return number of documents collected
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @param fieldName a field counted
+     * @param value a value
+     * @return number of documents collected with the value in the field
+     */
+    public int count(final String fieldName, final String value) {
+        int field = field(fieldName);
+        int ord = values[field].lookupTerm(value);
+        return ord < 0 ? 0 : counts[field][ord];
+    }
+
+    /**
+     * @param fieldName a field counted
+     * @param n maximum number of values
+     * @return the n values of the field found in most documents, values with the same count in dictionary order
+     */
+    public FacetResult getTopValues(final String fieldName, final int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        int field = field(fieldName);
+        int[] fieldCounts = counts[field];
+        //min-heap of the ordinals, the worst at the top
+        int[] heap = new int[Math.min(n, 16)];
+        int size = 0;
+        int totalCount = 0;
+        int valueCount = 0;
+        for (int ord = 0; ord < fieldCounts.length; ord++) {
+            int count = fieldCounts[ord];
+            if (count == 0) {
+                continue;
+            }
+            totalCount += count;
+            valueCount++;
+            if (size < n) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, (int) Math.min(n, (long) size << 1));
+                }
+                heap[size] = ord;
+                upHeap(heap, fieldCounts, size++);
+            } else if (worse(fieldCounts, heap[0], ord)) {
+                heap[0] = ord;
+                downHeap(heap, fieldCounts, size, 0);
+            }
+        }
+        String[] topValues = new String[size];
+        int[] topCounts = new int[size];
+        //the top of the heap is the worst value, so the arrays are filled from the end
+        for (int i = size - 1; i >= 0; i--) {
+            topValues[i] = values[field].lookupOrd(heap[0]);
+            topCounts[i] = fieldCounts[heap[0]];
+            heap[0] = heap[i];
+            downHeap(heap, fieldCounts, i, 0);
+        }
+        return new FacetResult(fieldName, topValues, topCounts, totalCount, valueCount);
+    }
+
+    protected int field(final String fieldName) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(fieldName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("field is not counted: ".concat(fieldName));
+    }
+
+    /**
+     * @return true if the first ordinal goes after the second one
+     */
+    protected static boolean worse(final int[] counts, final int ordA, final int ordB) {
+        if (counts[ordA] != counts[ordB]) {
+            return counts[ordA] < counts[ordB];
+        }
+        return ordA > ordB;
+    }
+
+    protected static void upHeap(final int[] heap, final int[] counts, int i) {
+        int ord = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(counts, ord, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = ord;
+    }
+
+    protected static void downHeap(final int[] heap, final int[] counts, final int size, int i) {
+        int ord = heap[i];
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            int right = child + 1;
+            if (right < size && worse(counts, heap[right], heap[child])) {
+                child = right;
+            }
+            if (!worse(counts, heap[child], ord)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = ord;
+    }
+}
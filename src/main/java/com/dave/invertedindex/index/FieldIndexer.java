@@ -5,6 +5,7 @@ import com.dave.invertedindex.document.Term;
 import com.dave.invertedindex.parse.DataStream;
 import com.dave.invertedindex.parse.Parser;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,20 +25,43 @@ public class FieldIndexer {
      * add the contents of one field to the index. There are 2 possible strategies:
      * 1. extract terms one by one from documents and add them directly to the postings list
      * 2. build inverted list for a document, then merge this list with the postings list
-     * first approach is slightly faster, since it's saving a loop. nevertheless, this approach wouldn't be valid if
-     * we wanted to use several indexer threads in parallel, (explained in PostingsDictionary.addTerm)
+     * first approach is slightly faster, since it's saving a loop, and it's used when there's a single indexer thread.
+     * nevertheless, it isn't valid when several threads are indexing in parallel (explained in
+     * PostingsDictionary.addToken), so in concurrent mode every document is inverted first, and then its postings are
+     * merged, one per term
+     * Positions of the terms are the number of tokens before them in the field. Once a field is indexed with positions,
+     * all its documents are indexed with them
      * @param field
      * @param documentId
      */
-    public void addField(final String documentId, final Field field) {
+    public void addField(final int documentId, final Field field) {
         int docTermsCount = 0;
         int newTermsCount = 0;
-        //identifiers or keywords can be indexed without being tokenized
-        if (!field.isTokenized()) {
-            //just put the content inside a term and add it to the index
-            Term term = new Term(field.name(), field.data());
-            PostingsDictionary dictionary = index.getPostingsDictionary(term.getFieldName());
-            if (dictionary.addTerm(documentId, term)) {
+        PostingsDictionary dictionary = index.getPostingsDictionary(field.name());
+        if (field.hasPositions()) {
+            dictionary.setPositions(true);
+        }
+        if (dictionary.isConcurrent() && dictionary.hasPositions()) {
+            Map<String, PostingsList> invertedList = invertPositions(documentId, field);
+            newTermsCount = dictionary.mergePositions(invertedList);
+            for (PostingsList postings : invertedList.values()) {
+                docTermsCount += postings.termFrequency(0);
+            }
+        } else if (dictionary.isConcurrent()) {
+            Map<String, Integer> invertedList;
+            if (!field.isTokenized()) {
+                invertedList = Collections.singletonMap(field.data(), 1);
+            } else {
+                invertedList = invert(field);
+            }
+            newTermsCount = dictionary.mergePostings(documentId, invertedList);
+            for (Integer tf : invertedList.values()) {
+                docTermsCount += tf;
+            }
+        } else if (!field.isTokenized()) {
+            //identifiers or keywords can be indexed without being tokenized
+            //just add the content as a term to the index
+            if (dictionary.addToken(documentId, field.data())) {
                 newTermsCount++;
             }
             docTermsCount = 1;
@@ -50,30 +74,22 @@ public class FieldIndexer {
             while (stream.hasMoreTokens()) {
                 String token = stream.out();
                 if (token.length() > 0) {
-                    Term term = new Term(field.name(), token);
-                    PostingsDictionary dictionary = index.getPostingsDictionary(term.getFieldName());
-                    //add term to postings
-                    if (dictionary.addTerm(documentId, term)) {
+                    //add term to postings, no Term object is needed, the dictionary copies the token to its pages
+                    //the number of tokens before this one is its position
+                    if (dictionary.addToken(documentId, token, docTermsCount)) {
                         newTermsCount++;
                     }
                     docTermsCount++;
                 }
             }
-
-			/*
-			this snippet shows how would work the alternative indexing strategy
-			Map<String, Short> invertedList = invert(field);
-			PostingsDictionary dictionary = index.getPostingsDictionary(field.name());
-			newTermsCount += dictionary.mergePostings(documentId, invertedList);
-			docTermsCount = invertedList.size();
-			*/
         }
-        index.numTerms +=  newTermsCount;
+        index.addTerms(newTermsCount);
         //save the norm of this doc-field
-        index.getDocumentNorms(field.name()).put(documentId, docTermsCount);
+        index.putNorm(field.name(), documentId, docTermsCount);
+        dictionary.addStatistics(docTermsCount);
     }
 
-    public void removeField(final String documentId, final Field field) {
+    public void removeField(final int documentId, final Field field) {
         if (field.isStored()) {
             index.getStoredDocuments(field.name()).remove(documentId);
         }else if(field.isIndexed()){
@@ -104,6 +120,10 @@ public class FieldIndexer {
 
 
         index.getDocumentNorms(field.name()).remove(documentId);
+        //as norms, the value written is left, no posting points to the document anymore
+        if (field.hasDocValues()) {
+            index.getDocValuesDocuments(field.name()).remove(documentId);
+        }
     }
 
     /**
@@ -111,8 +131,8 @@ public class FieldIndexer {
      * @param field
      * @return
      */
-    public Map<String, Short> invert(final Field field) {
-        Map<String, Short> invertedDoc = new HashMap<>();
+    public Map<String, Integer> invert(final Field field) {
+        Map<String, Integer> invertedDoc = new HashMap<>();
         Parser parser = field.getParser();
         DataStream stream = parser.dataStream(field.name(), field.data());
         stream.start();
@@ -120,12 +140,34 @@ public class FieldIndexer {
         while (stream.hasMoreTokens()) {
             String token = stream.out();
             if (token.length() > 0) {
-                Short tf = invertedDoc.get(token);
-                int tfVal = 1;
-                if (tf != null) {
-                    tfVal = tf.intValue() + 1;
-                }
-                invertedDoc.put(token, (short) tfVal);
+                invertedDoc.merge(token, 1, Integer::sum);
+            }
+        }
+        return invertedDoc;
+    }
+
+    /**
+     * Build an inverted list for the terms contained by this Field, with their positions
+     * @param documentId
+     * @param field
+     * @return a postings list for every term, with the posting of this document
+     */
+    public Map<String, PostingsList> invertPositions(final int documentId, final Field field) {
+        Map<String, PostingsList> invertedDoc = new HashMap<>();
+        if (!field.isTokenized()) {
+            PostingsList postings = new PostingsList(1, true);
+            postings.addPosition(documentId, 0);
+            invertedDoc.put(field.data(), postings);
+            return invertedDoc;
+        }
+        Parser parser = field.getParser();
+        DataStream stream = parser.dataStream(field.name(), field.data());
+        stream.start();
+        int position = 0;
+        while (stream.hasMoreTokens()) {
+            String token = stream.out();
+            if (token.length() > 0) {
+                invertedDoc.computeIfAbsent(token, k -> new PostingsList(1, true)).addPosition(documentId, position++);
             }
         }
         return invertedDoc;
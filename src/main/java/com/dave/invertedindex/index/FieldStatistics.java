@@ -0,0 +1,36 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Statistics of an indexed field over the whole collection, the documents written and the ones still in memory.
+ * Similarities use them to normalize the scores of the terms of the field
+ */
+public class FieldStatistics {
+
+    protected final long docCount;
+
+    protected final long sumTotalTermFreq;
+
+    /**
+     * @param docCount number of documents with some term in the field
+     * @param sumTotalTermFreq number of tokens of the field, in all the documents
+     */
+    public FieldStatistics(final long docCount, final long sumTotalTermFreq) {
+        this.docCount = docCount;
+        this.sumTotalTermFreq = sumTotalTermFreq;
+    }
+
+    public long docCount() {
+        return docCount;
+    }
+
+    public long sumTotalTermFreq() {
+        return sumTotalTermFreq;
+    }
+
+    /**
+     * @return average number of tokens of the field per document, 1 if there are no documents
+     */
+    public float averageFieldLength() {
+        return docCount == 0 ? 1f : (float) ((double) sumTotalTermFreq / docCount);
+    }
+}
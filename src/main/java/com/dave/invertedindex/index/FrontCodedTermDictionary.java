@@ -0,0 +1,497 @@
+package com.dave.invertedindex.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable TermDictionary where the sorted terms are front coded: terms are grouped in blocks of BLOCK_SIZE terms,
+ * the first term of every block is written in full, and every other term only writes the length of the prefix it
+ * shares with the previous term and the remaining suffix. All the terms are kept as UTF-8 bytes inside a single
+ * array, so the dictionary costs a few bytes per term instead of a String and a map entry.
+ *
+ * To lookup a term, a binary search over the first terms of the blocks finds the block, which is then scanned
+ *
+ * The format of every block is:
+ * {length}{termBytes}{pointer}{docFreq}{maxTermFrequency}{minNorm}{prefixLength}{suffixLength}{suffixBytes}{pointer}...
+ * all the numbers are variable length ints, but the norm, a byte
+ */
+public class FrontCodedTermDictionary implements TermDictionary {
+
+    /**
+     * number of terms per block. Bigger blocks use less memory but need longer scans
+     */
+    protected static final int BLOCK_SIZE = 16;
+
+    /**
+     * encoded terms
+     */
+    protected final byte[] data;
+
+    /**
+     * offset in data where every block starts
+     */
+    protected final int[] blockOffsets;
+
+    /**
+     * number of terms
+     */
+    protected final int size;
+
+    protected final long docCount;
+
+    protected final long sumTotalTermFreq;
+
+    protected FrontCodedTermDictionary(final byte[] data, final int[] blockOffsets, final int size,
+                                       final long docCount, final long sumTotalTermFreq) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+        this.docCount = docCount;
+        this.sumTotalTermFreq = sumTotalTermFreq;
+    }
+
+    /**
+     * @return a dictionary with no terms
+     */
+    public static FrontCodedTermDictionary empty() {
+        return new FrontCodedTermDictionary(new byte[0], new int[0], 0, 0, 0);
+    }
+
+    @Override
+    public long get(final String term) {
+        Enum e = seekExact(term);
+        return e == null ? NOT_FOUND : e.pointer;
+    }
+
+    @Override
+    public int docFreq(final String term) {
+        Enum e = seekExact(term);
+        return e == null ? 0 : e.docFreq;
+    }
+
+    @Override
+    public Impact impact(final String term) {
+        Enum e = seekExact(term);
+        return e == null ? Impact.NONE : e.impact();
+    }
+
+    /**
+     * @return an enum positioned on the term, null if it's not in the dictionary
+     */
+    protected Enum seekExact(final String term) {
+        Enum e = new Enum(null, false);
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        if (e.seekCeil(key) && e.compareTo(key) == 0) {
+            return e;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long docCount() {
+        return docCount;
+    }
+
+    @Override
+    public long sumTotalTermFreq() {
+        return sumTotalTermFreq;
+    }
+
+    @Override
+    public TermsEnum iterator() {
+        return new Enum(null, false);
+    }
+
+    @Override
+    public TermsEnum range(final String lower, final boolean includeLower, final String upper, final boolean includeUpper) {
+        Enum e = new Enum(upper == null ? null : upper.getBytes(StandardCharsets.UTF_8), includeUpper);
+        if (lower != null) {
+            byte[] key = lower.getBytes(StandardCharsets.UTF_8);
+            //position on the first term of the range, the first call to next() will return it
+            if (e.seekCeil(key) && !includeLower && e.compareTo(key) == 0) {
+                e.next();
+            }
+            e.pending = true;
+        }
+        return e;
+    }
+
+    /**
+     * write the dictionary, it can be read back with read()
+     * @param out output
+     * @throws IOException
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeLong(docCount);
+        out.writeLong(sumTotalTermFreq);
+        out.writeInt(blockOffsets.length);
+        for (int offset : blockOffsets) {
+            out.writeInt(offset);
+        }
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * @param in input, positioned where write() started writing
+     * @return the dictionary read
+     * @throws IOException
+     */
+    public static FrontCodedTermDictionary read(final DataInput in) throws IOException {
+        int size = in.readInt();
+        long docCount = in.readLong();
+        long sumTotalTermFreq = in.readLong();
+        int[] blockOffsets = new int[in.readInt()];
+        for (int i = 0; i < blockOffsets.length; i++) {
+            blockOffsets[i] = in.readInt();
+        }
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new FrontCodedTermDictionary(data, blockOffsets, size, docCount, sumTotalTermFreq);
+    }
+
+    /**
+     * @return memory used by the dictionary, in bytes (approximately)
+     */
+    public long sizeInBytes() {
+        return data.length + 4L * blockOffsets.length;
+    }
+
+    /**
+     * decode a variable length int at data[pos[0]], and move pos forward
+     */
+    protected int readVInt(final int[] pos) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    protected long readVLong(final int[] pos) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * compare key with the first term of the block
+     */
+    protected int compareFirstTerm(final int block, final byte[] key) {
+        int[] pos = {blockOffsets[block]};
+        int length = readVInt(pos);
+        return Arrays.compareUnsigned(data, pos[0], pos[0] + length, key, 0, key.length);
+    }
+
+    /**
+     * @return the last block whose first term is smaller than or equal to key, -1 if key is smaller than all terms
+     */
+    protected int findBlock(final byte[] key) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareFirstTerm(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * TermsEnum decoding the blocks of the dictionary. The current term is rebuilt in a reusable buffer, a String is
+     * only created when term() is called
+     */
+    protected class Enum implements TermsEnum {
+
+        /**
+         * upper bound of the range, null if there is none
+         */
+        protected final byte[] upper;
+
+        protected final boolean includeUpper;
+
+        protected byte[] term = new byte[32];
+
+        protected int termLength = 0;
+
+        protected long pointer = NOT_FOUND;
+
+        protected int docFreq = 0;
+
+        protected int maxTermFrequency = 0;
+
+        protected byte minNorm = 0;
+
+        protected int block = -1;
+
+        /**
+         * position of the current term in the block
+         */
+        protected int indexInBlock = -1;
+
+        /**
+         * read position in data
+         */
+        protected final int[] pos = {0};
+
+        protected boolean exhausted = false;
+
+        /**
+         * the enum is already positioned on a term, which next() has to return before moving
+         */
+        protected boolean pending = false;
+
+        protected Enum(final byte[] upper, final boolean includeUpper) {
+            this.upper = upper;
+            this.includeUpper = includeUpper;
+            if (size == 0) {
+                exhausted = true;
+            }
+        }
+
+        @Override
+        public boolean next() {
+            if (pending) {
+                pending = false;
+                return !exhausted;
+            }
+            if (exhausted) {
+                return false;
+            }
+            if (block < 0 || !readNextInBlock()) {
+                if (block + 1 >= blockOffsets.length) {
+                    return exhaust();
+                }
+                positionAtBlock(block + 1);
+                readNextInBlock();
+            }
+            return checkUpper();
+        }
+
+        @Override
+        public boolean seekCeil(final String target) {
+            pending = false;
+            return seekCeil(target.getBytes(StandardCharsets.UTF_8));
+        }
+
+        protected boolean seekCeil(final byte[] key) {
+            if (exhausted) {
+                return false;
+            }
+            if (indexInBlock >= 0 && compareTo(key) >= 0) {
+                //already there
+                return true;
+            }
+            //don't move backwards, only jump to the block of key if it's after the current one
+            int target = findBlock(key);
+            if (target > block) {
+                positionAtBlock(target);
+            }
+            while (next()) {
+                if (compareTo(key) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String term() {
+            return new String(term, 0, termLength, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long pointer() {
+            return pointer;
+        }
+
+        @Override
+        public int docFreq() {
+            return docFreq;
+        }
+
+        @Override
+        public Impact impact() {
+            return new Impact(maxTermFrequency, minNorm);
+        }
+
+        /**
+         * @return comparison of the current term with key
+         */
+        protected int compareTo(final byte[] key) {
+            return Arrays.compareUnsigned(term, 0, termLength, key, 0, key.length);
+        }
+
+        protected void positionAtBlock(final int block) {
+            this.block = block;
+            this.indexInBlock = -1;
+            this.pos[0] = blockOffsets[block];
+        }
+
+        /**
+         * decode the next term of the current block
+         * @return false if the block has no more terms
+         */
+        protected boolean readNextInBlock() {
+            int termsInBlock = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+            if (indexInBlock + 1 >= termsInBlock) {
+                return false;
+            }
+            int prefix = 0;
+            if (indexInBlock >= 0) {
+                prefix = readVInt(pos);
+            }
+            int suffix = readVInt(pos);
+            if (prefix + suffix > term.length) {
+                term = Arrays.copyOf(term, Math.max(term.length << 1, prefix + suffix));
+            }
+            System.arraycopy(data, pos[0], term, prefix, suffix);
+            pos[0] += suffix;
+            termLength = prefix + suffix;
+            pointer = readVLong(pos);
+            docFreq = readVInt(pos);
+            maxTermFrequency = readVInt(pos);
+            minNorm = data[pos[0]++];
+            indexInBlock++;
+            return true;
+        }
+
+        protected boolean checkUpper() {
+            if (upper != null) {
+                int cmp = compareTo(upper);
+                if (cmp > 0 || (cmp == 0 && !includeUpper)) {
+                    return exhaust();
+                }
+            }
+            return true;
+        }
+
+        protected boolean exhaust() {
+            exhausted = true;
+            return false;
+        }
+    }
+
+    /**
+     * Builds a FrontCodedTermDictionary. Terms have to be added in dictionary order
+     */
+    public static class Builder {
+
+        protected byte[] data = new byte[1024];
+
+        protected int length = 0;
+
+        protected int[] blockOffsets = new int[16];
+
+        protected int size = 0;
+
+        protected byte[] previous = new byte[0];
+
+        protected long docCount = 0;
+
+        protected long sumTotalTermFreq = 0;
+
+        /**
+         * @param term next term, has to be greater than the previous one
+         * @param pointer pointer to the postings of the term
+         * @param docFreq number of documents containing the term
+         * @param impact bound of the postings of the term
+         */
+        public Builder add(final String term, final long pointer, final int docFreq, final Impact impact) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            if (size > 0 && Arrays.compareUnsigned(bytes, previous) <= 0) {
+                throw new IllegalArgumentException("terms must be added in order: ".concat(term));
+            }
+            if (size % BLOCK_SIZE == 0) {
+                //first term of the block, written in full
+                if (size / BLOCK_SIZE == blockOffsets.length) {
+                    blockOffsets = Arrays.copyOf(blockOffsets, blockOffsets.length << 1);
+                }
+                blockOffsets[size / BLOCK_SIZE] = length;
+                writeVInt(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            } else {
+                int prefix = Arrays.mismatch(bytes, previous);
+                writeVInt(prefix);
+                writeVInt(bytes.length - prefix);
+                writeBytes(bytes, prefix, bytes.length - prefix);
+            }
+            writeVLong(pointer);
+            writeVInt(docFreq);
+            writeVInt(impact.termFrequency());
+            writeByte(impact.norm());
+            previous = bytes;
+            size++;
+            return this;
+        }
+
+        /**
+         * @param docCount number of documents with some term in the field
+         * @param sumTotalTermFreq number of tokens of the field, in all the documents
+         */
+        public Builder statistics(final long docCount, final long sumTotalTermFreq) {
+            this.docCount = docCount;
+            this.sumTotalTermFreq = sumTotalTermFreq;
+            return this;
+        }
+
+        public FrontCodedTermDictionary build() {
+            int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return new FrontCodedTermDictionary(Arrays.copyOf(data, length), Arrays.copyOf(blockOffsets, blocks), size,
+                    docCount, sumTotalTermFreq);
+        }
+
+        protected void writeBytes(final byte[] bytes, final int offset, final int count) {
+            if (length + count > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length << 1, length + count));
+            }
+            System.arraycopy(bytes, offset, data, length, count);
+            length += count;
+        }
+
+        protected void writeByte(final byte b) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length << 1);
+            }
+            data[length++] = b;
+        }
+
+        protected void writeVInt(final int value) {
+            writeVLong(value & 0xFFFFFFFFL);
+        }
+
+        protected void writeVLong(long value) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length << 1);
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.dave.invertedindex.index;
+
+import java.util.List;
+
+/**
+ * Matches the documents containing any term of a field within a number of edits of a token, ie, insertions, deletions
+ * or substitutions of a character. The terms are found by intersecting a LevenshteinAutomaton with the sorted
+ * TermDictionary, so only the terms close to the token in dictionary order are read, however big the dictionary is
+ *
+ *  Query query = new FuzzyQuery("body", "aple", 1);
+ */
+public class FuzzyQuery extends MultiTermQuery {
+
+    public static final int DEFAULT_MAX_EDITS = LevenshteinAutomaton.MAX_EDITS;
+
+    protected final String token;
+
+    protected final int maxEdits;
+
+    protected final LevenshteinAutomaton automaton;
+
+    public FuzzyQuery(final String fieldName, final String token) {
+        this(fieldName, token, DEFAULT_MAX_EDITS);
+    }
+
+    /**
+     * @param fieldName name of the field
+     * @param token token searched
+     * @param maxEdits max number of edits, from 0 to 2
+     */
+    public FuzzyQuery(final String fieldName, final String token, final int maxEdits) {
+        super(fieldName);
+        this.token = token;
+        this.maxEdits = maxEdits;
+        this.automaton = new LevenshteinAutomaton(token, maxEdits);
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getMaxEdits() {
+        return maxEdits;
+    }
+
+    @Override
+    protected String prefix() {
+        return "";
+    }
+
+    @Override
+    protected boolean accept(final String term) {
+        return automaton.accepts(term);
+    }
+
+    @Override
+    protected List<String> terms(final IndexReader reader) {
+        return reader.terms(fieldName, automaton);
+    }
+
+    @Override
+    public String toString() {
+        return fieldName.concat(":").concat(token).concat("~") + maxEdits;
+    }
+}
@@ -4,28 +4,74 @@ import com.dave.invertedindex.document.Document;
 
 /**
  * Represents one document hit when searching for a term in the index
+ *
+ * A hit is only the internal id of the document and its score. The stored fields are read when the document is
+ * requested for the first time, or in one go for the hits which are returned, with IndexReader.loadDocuments, so no
+ * document is built for the hits that are discarded
  */
 public class Hit implements Comparable<Hit> {
 
     /**
-     * document that has been hit
+     * internal id of the document that has been hit
      */
-    private Document document;
+    private final int docId;
 
     /**
      * score assigned to this document (used for document retrieval)
      */
     private float score;
 
-    public Hit(final Document doc, final float score) {
-        this.document = doc;
+    /**
+     * index where the stored fields of the document are read from, null if the document can't be loaded lazily
+     */
+    private final Index index;
+
+    /**
+     * the document, null until it's loaded
+     */
+    private Document document;
+
+    public Hit(final int docId, final float score) {
+        this(docId, score, null);
+    }
+
+    /**
+     * @param docId internal id of the document
+     * @param score score of the document
+     * @param index where the document is read from when it's requested
+     */
+    public Hit(final int docId, final float score, final Index index) {
+        this.docId = docId;
         this.score = score;
+        this.index = index;
+    }
+
+    public int docId() {
+        return this.docId;
     }
 
+    /**
+     * @return the document, with all its stored fields if it has not been loaded before
+     */
     public Document document() {
+        if (this.document == null && this.index != null) {
+            this.document = this.index.document(this.docId);
+        }
         return this.document;
     }
 
+    /**
+     * @return true if the document has already been read
+     */
+    public boolean isLoaded() {
+        return this.document != null;
+    }
+
+    public Hit setDocument(final Document document) {
+        this.document = document;
+        return this;
+    }
+
     public float score() {
         return score;
     }
@@ -35,13 +81,15 @@ public class Hit implements Comparable<Hit> {
         return this;
     }
 
+    /**
+     * hits are ordered by score, and hits with the same score by docId, the lower the better, so two different
+     * documents are never equal
+     */
     @Override
     public int compareTo(Hit hit) {
-        if (this.score == hit.score) {
-            return 0;
-        } else if (this.score > hit.score) {
-            return 1;
+        if (this.score != hit.score) {
+            return this.score > hit.score ? 1 : -1;
         }
-        return -1;
+        return Integer.compare(hit.docId, this.docId);
     }
-}
\ No newline at end of file
+}
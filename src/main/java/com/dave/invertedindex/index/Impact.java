@@ -0,0 +1,69 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Bound of the postings of a term: the highest term frequency and the lowest norm of its documents, encoded by
+ * ByteNorms. They don't need to come from the same document. Since similarities score higher with more occurrences
+ * and shorter documents, the score of an impact is an upper bound of the score of every posting it covers, whatever
+ * the similarity and the statistics of the collection when the query is run
+ */
+public class Impact {
+
+    /**
+     * impact of no postings, it bounds nothing
+     */
+    public static final Impact NONE = new Impact(0, (byte) 0xFF);
+
+    protected final int termFrequency;
+
+    protected final byte norm;
+
+    /**
+     * @param termFrequency highest term frequency
+     * @param norm lowest norm, encoded
+     */
+    public Impact(final int termFrequency, final byte norm) {
+        this.termFrequency = termFrequency;
+        this.norm = norm;
+    }
+
+    public int termFrequency() {
+        return termFrequency;
+    }
+
+    public byte norm() {
+        return norm;
+    }
+
+    /**
+     * @param other other impact
+     * @return the impact bounding the postings of both
+     */
+    public Impact merge(final Impact other) {
+        if (other.termFrequency <= termFrequency && Byte.toUnsignedInt(other.norm) >= Byte.toUnsignedInt(norm)) {
+            return this;
+        }
+        return new Impact(Math.max(termFrequency, other.termFrequency),
+                (byte) Math.min(Byte.toUnsignedInt(norm), Byte.toUnsignedInt(other.norm)));
+    }
+
+    /**
+     * read all the postings of a cursor to find their impact
+     * @param postings cursor positioned before the first posting
+     * @param norms norms of the field
+     * @return the impact of the postings
+     */
+    public static Impact of(final PostingsCursor postings, final Norms norms) {
+        int termFrequency = 0;
+        int norm = 0xFF;
+        while (postings.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+            termFrequency = Math.max(termFrequency, postings.termFrequency());
+            norm = Math.min(norm, Byte.toUnsignedInt(norms.encodedNorm(postings.docId())));
+        }
+        return new Impact(termFrequency, (byte) norm);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + termFrequency + "," + Byte.toUnsignedInt(norm) + ")";
+    }
+}
@@ -3,14 +3,25 @@ package com.dave.invertedindex.index;
 import com.dave.invertedindex.document.Document;
 import com.dave.invertedindex.document.Field;
 import com.dave.invertedindex.document.FieldInfo;
+import com.dave.invertedindex.util.RamUsage;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Inverted Index, modeled using a postings lists,  which  maps terms occurrences to documents
+ *
+ * In concurrent mode several threads can add documents at the same time: field data is kept in concurrent maps,
+ * and every field gets a concurrent PostingsDictionary
+ *
+ * In off-heap mode, the postings being indexed and the norms are kept in direct memory, out of the heap
  */
 public class Index {
     /**
@@ -23,67 +34,232 @@ public class Index {
      * A postings dictionary keep list of terms-postings list
      * In a terms-postings list,for every indexed Term we keep a list of Postings
      */
-    protected Map<String, PostingsDictionary> postingsDictionary = new HashMap<>();
+    protected Map<String, PostingsDictionary> postingsDictionary = new ConcurrentHashMap<>();
 
     /**
      * norms of every docId-fieldName
      */
-    protected Map<String, Map<String, Integer>> normsByDocument = new HashMap<>();
+    protected Map<String, Map<Integer, Integer>> normsByDocument = new ConcurrentHashMap<>();
+
+    /**
+     * norms of the documents already written to the directory, every field is loaded in one go
+     */
+    protected Map<String, Norms> writtenNorms = new ConcurrentHashMap<>();
 
     /**
      * For every stored field, we have a HashMap with documentId as key and the stored field as value
      */
-    protected Map<String, Map<String, String>> storedByDocument = new HashMap<>();
+    protected Map<String, Map<Integer, String>> storedByDocument = new ConcurrentHashMap<>();
+
+    /**
+     * stored fields of the documents already written to the directory, read one document at a time
+     */
+    protected Map<String, StoredFields> writtenStored = new ConcurrentHashMap<>();
+
+    /**
+     * values of the fields with doc values, by docId, of the documents in memory
+     */
+    protected Map<String, Map<Integer, String>> docValuesByDocument = new ConcurrentHashMap<>();
+
+    /**
+     * doc values of the documents already written to the directory, every field is loaded in one go
+     */
+    protected Map<String, SortedDocValues> writtenDocValues = new ConcurrentHashMap<>();
+
+    /**
+     * doc values of the written documents and the ones in memory together, built once per generation
+     */
+    protected Map<String, MergedDocValues> mergedDocValues = new ConcurrentHashMap<>();
+
+    /**
+     * maps the internal int ids, used by postings, norms and stored fields, to the external document ids
+     */
+    protected volatile DocIdMap docIdMap = new DocIdMap();
 
 
     /**
      * number of documents indexed. used to assign unique Ids to the documents
      */
-    protected long numDocs = 0;
+    protected final AtomicLong numDocs = new AtomicLong();
 
     /**
      * number of terms indexed
      */
-    protected long numTerms = 0;
+    protected final AtomicLong numTerms = new AtomicLong();
+
+    /**
+     * estimated memory used by norms, stored fields and document ids. Postings dictionaries keep their own count
+     */
+    protected final LongAdder ramBytesUsed = new LongAdder();
+
+    /**
+     * incremented whenever the data of the index changes, so results computed on older data can be told apart
+     */
+    protected final AtomicLong generation = new AtomicLong();
+
+    /**
+     * can several threads add documents at the same time?
+     */
+    protected volatile boolean concurrent = false;
+
+    /**
+     * are postings and norms kept off-heap?
+     */
+    protected volatile boolean offHeap = false;
 
 
     private static Index instance = null;
 
     /**
-     * use singleton to have only one instance of the Index, just in case both IndexWriter and IndexReader
-     * are used simultaneously, they should access the same data
+     * shared instance, used by the IndexWriter and IndexReader which are not given their own Index, so when both
+     * are used simultaneously they access the same data
      * @return
      */
-    public static Index getInstance() {
+    public static synchronized Index getInstance() {
         if (instance == null) {
             instance = new Index();
         }
         return instance;
     }
 
-    private Index() {
-        //to protect from direct instantiation
+    /**
+     * a new empty index, independent of the shared instance. Used for the per-thread buffers of IndexWriter, or
+     * to have several indexes in the same JVM
+     */
+    public Index() {
     }
 
 
     public long getNumDocs() {
-        return numDocs;
+        return numDocs.get();
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * mark the data of the index as changed, ie, documents have been added or removed, or data read from disk
+     * @return the new generation
+     */
+    public long changed() {
+        return generation.incrementAndGet();
     }
 
     public long getNumTerms() {
-        return numTerms;
+        return numTerms.get();
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * enable or disable concurrent mode. It only applies to the fields that still have no data in memory, so it
+     * has to be set before starting to add documents
+     * @param concurrent true if several threads will add documents at the same time
+     */
+    public void setConcurrent(final boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * keep postings and norms off-heap. As setConcurrent, it only applies to the fields with no data in memory
+     * @param offHeap true to use direct memory
+     */
+    public void setOffHeap(final boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * when a new doc is added, increase numDocs and assign the next internal id to the document
+     * @param externalId id of the document given by the user
+     * @return the internal id, which will be used to reference the document inside the index
+     */
+    public int nextDocumentId(final String externalId) {
+        this.numDocs.incrementAndGet();
+        this.ramBytesUsed.add(docIdBytes(externalId));
+        return this.docIdMap.add(externalId);
+    }
+
+    /**
+     * add a document whose internal id has been already assigned, ie, reserved from other index
+     * @param docId internal id
+     * @param externalId id of the document given by the user
+     */
+    public void addDocumentId(final int docId, final String externalId) {
+        this.numDocs.incrementAndGet();
+        this.ramBytesUsed.add(docIdBytes(externalId));
+        this.docIdMap.put(docId, externalId);
+    }
+
+    /**
+     * @return estimated memory used by the entries of a document in the ids table
+     */
+    protected static long docIdBytes(final String externalId) {
+        return 2 * (RamUsage.MAP_ENTRY + RamUsage.INTEGER) + (externalId == null ? 0 : RamUsage.sizeOf(externalId));
+    }
+
+    /**
+     * @return estimated memory, in bytes, used by the data indexed in memory
+     */
+    public long ramBytesUsed() {
+        long bytes = this.ramBytesUsed.sum();
+        for (PostingsDictionary dictionary : this.postingsDictionary.values()) {
+            bytes += dictionary.ramBytesUsed();
+        }
+        for (Map<Integer, Integer> norms : this.normsByDocument.values()) {
+            if (norms instanceof DocumentNorms) {
+                bytes += ((DocumentNorms) norms).ramBytesUsed();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * save the norm of a document field
+     * @param fieldName field
+     * @param documentId internal id of the document
+     * @param norm number of terms of the field
+     */
+    public void putNorm(final String fieldName, final int documentId, final int norm) {
+        Map<Integer, Integer> norms = getDocumentNorms(fieldName);
+        if (norms instanceof DocumentNorms) {
+            ((DocumentNorms) norms).putNorm(documentId, norm);
+        } else {
+            norms.put(documentId, norm);
+            this.ramBytesUsed.add(RamUsage.NORM);
+        }
     }
 
     /**
-     * when a new doc is created, increase numDocs and return the value as Id
-     * @return new value for the count, which will be used as Id for next document
+     * save the content of a stored field
+     * @param fieldName field
+     * @param documentId internal id of the document
+     * @param data content of the field
      */
-    public long nextDocumentId() {
-        return ++this.numDocs;
+    public void putStored(final String fieldName, final int documentId, final String data) {
+        getStoredDocuments(fieldName).put(documentId, data);
+        this.ramBytesUsed.add(RamUsage.MAP_ENTRY + RamUsage.INTEGER + RamUsage.sizeOf(data));
+    }
+
+    /**
+     * save the value of a field with doc values
+     * @param fieldName field
+     * @param documentId internal id of the document
+     * @param value content of the field
+     */
+    public void putDocValue(final String fieldName, final int documentId, final String value) {
+        getDocValuesDocuments(fieldName).put(documentId, value);
+        this.ramBytesUsed.add(RamUsage.MAP_ENTRY + RamUsage.INTEGER + RamUsage.sizeOf(value));
     }
 
     public void setNumDocs(long numDocs) {
-        this.numDocs = numDocs;
+        this.numDocs.set(numDocs);
     }
 
     /**
@@ -91,7 +267,16 @@ public class Index {
      * @return the new value for the count
      */
     public long newTerm() {
-        return ++this.numTerms;
+        return this.numTerms.incrementAndGet();
+    }
+
+    /**
+     * increase the counter of terms
+     * @param count number of new terms added to the dictionary
+     * @return the new value for the count
+     */
+    public long addTerms(final long count) {
+        return this.numTerms.addAndGet(count);
     }
 
     /**
@@ -101,7 +286,7 @@ public class Index {
      * @return
      */
     public PostingsDictionary getPostingsDictionary(final String fieldName) {
-        PostingsDictionary dictionary = this.postingsDictionary.computeIfAbsent(fieldName, k -> new PostingsDictionary());
+        PostingsDictionary dictionary = this.postingsDictionary.computeIfAbsent(fieldName, k -> new PostingsDictionary(this.concurrent, this.offHeap));
         return dictionary;
     }
 
@@ -112,22 +297,133 @@ public class Index {
      * @param fieldName
      * @return
      */
-    public Map<String, Integer> getDocumentNorms(final String fieldName) {
-        Map<String, Integer> norms = this.normsByDocument.computeIfAbsent(fieldName, k -> new HashMap<>());
+    public Map<Integer, Integer> getDocumentNorms(final String fieldName) {
+        Map<Integer, Integer> norms = this.normsByDocument.computeIfAbsent(fieldName, k -> new DocumentNorms(this.offHeap));
         return norms;
     }
 
+    /**
+     * norms of a field to score its postings, both of the documents in memory and of the ones written to the directory
+     * @param fieldName
+     * @return the norms, empty if the field has none
+     */
+    public Norms getNorms(final String fieldName) {
+        Norms written = this.writtenNorms.get(fieldName);
+        Map<Integer, Integer> norms = this.normsByDocument.get(fieldName);
+        if (norms == null || norms.isEmpty()) {
+            return written == null ? Norms.EMPTY : written;
+        }
+        Norms inMemory = norms instanceof DocumentNorms ? (DocumentNorms) norms : docId -> {
+            Integer norm = norms.get(docId);
+            return norm == null ? 0 : norm;
+        };
+        if (written == null) {
+            return inMemory;
+        }
+        return new Norms() {
+            @Override
+            public int norm(final int docId) {
+                int norm = inMemory.norm(docId);
+                return norm != 0 ? norm : written.norm(docId);
+            }
+
+            @Override
+            public byte encodedNorm(final int docId) {
+                int norm = inMemory.norm(docId);
+                return norm != 0 ? ByteNorms.encode(norm) : written.encodedNorm(docId);
+            }
+        };
+    }
+
+    /**
+     * @param fieldName
+     * @param norms norms of the documents of the field written to the directory
+     */
+    public void setWrittenNorms(final String fieldName, final Norms norms) {
+        this.writtenNorms.put(fieldName, norms);
+    }
+
+    /**
+     * Get the doc values of the documents in memory for fieldName
+     * If there's any defined, set up a new one
+     * @param fieldName
+     * @return
+     */
+    public Map<Integer, String> getDocValuesDocuments(final String fieldName) {
+        return this.docValuesByDocument.computeIfAbsent(fieldName, k -> newFieldMap());
+    }
+
+    /**
+     * doc values of a field, both of the documents in memory and of the ones written to the directory. When there
+     * are documents in memory, their values are merged with the written ones, since they can add values to the
+     * dictionary, and the result is kept until the index changes
+     * @param fieldName
+     * @return the doc values, empty if the field has none
+     */
+    public SortedDocValues getDocValues(final String fieldName) {
+        SortedDocValues written = this.writtenDocValues.get(fieldName);
+        Map<Integer, String> values = this.docValuesByDocument.get(fieldName);
+        if (values == null || values.isEmpty()) {
+            return written == null ? SortedDocValues.EMPTY : written;
+        }
+        long generation = getGeneration();
+        MergedDocValues merged = this.mergedDocValues.get(fieldName);
+        if (merged == null || merged.generation != generation) {
+            try {
+                merged = new MergedDocValues(generation,
+                        new SortedDocValues(ByteBuffer.wrap(SortedDocValues.encode(written, values))));
+            } catch (CorruptIndexException e) {
+                //the bytes have just been encoded
+                throw new IllegalStateException(e);
+            }
+            this.mergedDocValues.put(fieldName, merged);
+        }
+        return merged.values;
+    }
+
+    /**
+     * @param fieldName
+     * @param docValues doc values of the documents of the field written to the directory
+     */
+    public void setWrittenDocValues(final String fieldName, final SortedDocValues docValues) {
+        this.writtenDocValues.put(fieldName, docValues);
+        this.mergedDocValues.remove(fieldName);
+    }
+
     /**
      * Get list of documents stored fields for  fieldName
      * If there's any defined, set up a new one
      * @param fieldName
      * @return
      */
-    public Map<String, String> getStoredDocuments(final String fieldName) {
-        Map<String, String> stored = this.storedByDocument.computeIfAbsent(fieldName, k -> new HashMap<>());
+    public Map<Integer, String> getStoredDocuments(final String fieldName) {
+        Map<Integer, String> stored = this.storedByDocument.computeIfAbsent(fieldName, k -> newFieldMap());
         return stored;
     }
 
+    /**
+     * @param fieldName
+     * @return stored content of the field of the documents written to the directory, empty if there's none
+     */
+    public StoredFields getWrittenStored(final String fieldName) {
+        return this.writtenStored.getOrDefault(fieldName, StoredFields.EMPTY);
+    }
+
+    /**
+     * @param fieldName
+     * @param stored stored content of the field of the documents written to the directory
+     */
+    public void setWrittenStored(final String fieldName, final StoredFields stored) {
+        this.writtenStored.put(fieldName, stored);
+    }
+
+    /**
+     * @return a new map for the data of a field, safe for several threads in concurrent mode
+     */
+    protected <K, V> Map<K, V> newFieldMap() {
+        return this.concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
     /**
      * get fields which have configured the  option
      * @return a set containing fields which have configured the specified option
@@ -143,12 +439,22 @@ public class Index {
                     fields = new HashSet<>();
                 }
             } else if (fieldOption.equals(FieldInfo.STORED)) {
-                if (!this.storedByDocument.isEmpty()) {
-                    Set<String> keySet = this.storedByDocument.keySet();
-                    fields = new HashSet<>(keySet);
-                } else {
-                    fields = new HashSet<>();
+                //the fields written are kept too, the index could have been cleared since
+                fields = new HashSet<>(this.storedByDocument.keySet());
+                fields.addAll(this.writtenStored.keySet());
+            } else if (fieldOption.equals(FieldInfo.DOC_VALUES)) {
+                //the fields written are kept too, the index could have been cleared since
+                fields = new HashSet<>(this.docValuesByDocument.keySet());
+                fields.addAll(this.writtenDocValues.keySet());
+            } else if (fieldOption.equals(FieldInfo.POSITIONS)) {
+                fields = new HashSet<>();
+                for (Map.Entry<String, PostingsDictionary> entry : this.postingsDictionary.entrySet()) {
+                    if (entry.getValue().hasPositions()) {
+                        fields.add(entry.getKey());
+                    }
                 }
+            } else {
+                fields = new HashSet<>();
             }
             if(fields.size() > 0)
              this.fieldNamesByOption.put(fieldOption, fields);
@@ -157,20 +463,33 @@ public class Index {
     }
 
 
-    public void setPostingsDictionary(HashMap<String, PostingsDictionary> postingsDictionary) {
-        this.postingsDictionary = postingsDictionary;
+    public void setPostingsDictionary(Map<String, PostingsDictionary> postingsDictionary) {
+        this.postingsDictionary = new ConcurrentHashMap<>(postingsDictionary);
     }
 
     public HashMap<String, HashSet<String>> getFieldNamesByOption() {
         return this.fieldNamesByOption;
     }
 
-    public void setNormsByDocument(Map<String, Map<String, Integer>> normsByDocument) {
-        this.normsByDocument = normsByDocument;
+    public void setNormsByDocument(Map<String, Map<Integer, Integer>> normsByDocument) {
+        this.normsByDocument = new ConcurrentHashMap<>(normsByDocument);
+    }
+
+    public void setStoredByDocument(Map<String, Map<Integer, String>> storedByDocument) {
+        this.storedByDocument = new ConcurrentHashMap<>(storedByDocument);
     }
 
-    public void setStoredByDocument(Map<String, Map<String, String>> storedByDocument) {
-        this.storedByDocument = storedByDocument;
+    public void setDocValuesByDocument(Map<String, Map<Integer, String>> docValuesByDocument) {
+        this.docValuesByDocument = new ConcurrentHashMap<>(docValuesByDocument);
+        this.mergedDocValues.clear();
+    }
+
+    public DocIdMap getDocIdMap() {
+        return docIdMap;
+    }
+
+    public void setDocIdMap(DocIdMap docIdMap) {
+        this.docIdMap = docIdMap;
     }
 
     public void setFieldNamesByOption(HashMap<String, HashSet<String>> fieldNamesByOption) {
@@ -195,38 +514,122 @@ public class Index {
 
     /**
      * retrieves all stored fields for the given documentId
-     * @param documentId
-     * @return Document containing retrieved data
+     * @param documentId internal id of the document
+     * @return Document containing retrieved data, identified by its external id
      */
-    public Document document(final String documentId) {
-        Document doc = new Document(documentId);
+    public Document document(final int documentId) {
+        return document(documentId, null);
+    }
 
-        for(String fieldName: storedByDocument.keySet()) {
-            Map<String, String> storedData = this.storedByDocument.get(fieldName);
-            if (storedData.containsKey(documentId)) {
-                Field f = new Field(fieldName, storedData.get(documentId));
+    /**
+     * retrieves some stored fields for the given documentId
+     * @param documentId internal id of the document
+     * @param fieldNames stored fields to read, null for all of them
+     * @return Document containing retrieved data, identified by its external id
+     */
+    public Document document(final int documentId, final Collection<String> fieldNames) {
+        Document doc = new Document(this.docIdMap.externalId(documentId));
+
+        Collection<String> names = fieldNames;
+        if (names == null) {
+            Set<String> all = new HashSet<>(storedByDocument.keySet());
+            all.addAll(writtenStored.keySet());
+            names = all;
+        }
+        for(String fieldName: names) {
+            Map<Integer, String> storedData = this.storedByDocument.get(fieldName);
+            String data = storedData == null ? null : storedData.get(documentId);
+            if (data == null) {
+                //the document may have been written to the directory and released from memory
+                data = getWrittenStored(fieldName).get(documentId);
+            }
+            if (data != null) {
+                Field f = new Field(fieldName, data);
                 doc.addField(f);
             }
         }
         return doc;
     }
 
+    /**
+     * move all the data in memory of other index into this one. Documents in both indexes must have different ids
+     * other index has to be cleared afterwards, since some of its data is taken as it is
+     * @param other index, ie, a buffer used by a single indexer thread
+     */
+    public void merge(final Index other) {
+        for (Map.Entry<String, PostingsDictionary> entry : other.postingsDictionary.entrySet()) {
+            addTerms(getPostingsDictionary(entry.getKey()).merge(entry.getValue()));
+        }
+        for (Map.Entry<String, Map<Integer, Integer>> entry : other.normsByDocument.entrySet()) {
+            getDocumentNorms(entry.getKey()).putAll(entry.getValue());
+        }
+        for (Map.Entry<String, Map<Integer, String>> entry : other.storedByDocument.entrySet()) {
+            getStoredDocuments(entry.getKey()).putAll(entry.getValue());
+        }
+        for (Map.Entry<String, Map<Integer, String>> entry : other.docValuesByDocument.entrySet()) {
+            getDocValuesDocuments(entry.getKey()).putAll(entry.getValue());
+        }
+        this.docIdMap.putAll(other.docIdMap);
+        //ids are moved, the ones of this index are kept when it's cleared, but other index is a buffer
+        other.docIdMap.clear();
+        this.numDocs.addAndGet(other.numDocs.getAndSet(0));
+        this.ramBytesUsed.add(other.ramBytesUsed.sumThenReset());
+        //field names are computed again from the data
+        this.fieldNamesByOption.clear();
+        changed();
+    }
+
     /**
      * deletes all data in the index, reset the object to its initial state
      */
     public void reset() {
-        this.numDocs = 0;
-        this.numTerms = 0;
+        this.numDocs.set(0);
+        this.numTerms.set(0);
         this.fieldNamesByOption.clear();
         this.postingsDictionary.clear();
         this.normsByDocument.clear();
+        this.writtenNorms.clear();
         this.storedByDocument.clear();
+        this.writtenStored.clear();
+        this.docValuesByDocument.clear();
+        this.writtenDocValues.clear();
+        this.mergedDocValues.clear();
+        this.docIdMap.reset();
+        this.ramBytesUsed.reset();
+        changed();
     }
 
+    /**
+     * release the documents in memory, ie, once they have been written to disk. Dictionaries are kept, with the terms
+     * already written, and the memory of their TermsHash is reused by the next documents. Written norms, doc
+     * values and stored fields are kept too, and so is the table of ids, so the documents written can still be
+     * returned and removed by their external id. Directories may rebuild it on top of the table written
+     */
     public void clear(){
         this.fieldNamesByOption.clear();
-        this.postingsDictionary.clear();
+        for (PostingsDictionary dictionary : this.postingsDictionary.values()) {
+            dictionary.clear();
+        }
         this.normsByDocument.clear();
         this.storedByDocument.clear();
+        this.docValuesByDocument.clear();
+        this.mergedDocValues.clear();
+        this.ramBytesUsed.reset();
+        changed();
+    }
+
+    /**
+     * doc values merged at some generation of the index
+     */
+    protected static class MergedDocValues {
+
+        protected final long generation;
+
+        protected final SortedDocValues values;
+
+        protected MergedDocValues(final long generation, final SortedDocValues values) {
+            this.generation = generation;
+            this.values = values;
+        }
     }
 }
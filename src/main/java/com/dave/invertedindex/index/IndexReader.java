@@ -5,13 +5,16 @@ import com.dave.invertedindex.document.Field;
 import com.dave.invertedindex.document.Term;
 import com.dave.invertedindex.parse.DataStream;
 import com.dave.invertedindex.parse.Parser;
-import com.dave.invertedindex.store.DbFileDirectory;
 import com.dave.invertedindex.store.Directory;
 import com.dave.invertedindex.store.TxtFileDirectory;
 import com.dave.invertedindex.util.Logger;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * IndexReader provides access to read the index and perform queries
@@ -28,16 +31,111 @@ public class IndexReader {
      */
     private Index index;
 
+    /**
+     * scores the postings matched by the queries
+     */
+    private Similarity similarity = new BM25Similarity();
+
+    /**
+     * true to evaluate disjunctions with Block-Max WAND instead of MaxScore
+     */
+    private boolean blockMaxWand = false;
+
+    /**
+     * caches the top hits of the searches, null if they are not cached
+     */
+    private QueryResultCache queryResultCache;
+
+    /**
+     * reads the postings of the clauses of a query in parallel, null to read them one after another
+     */
+    private Executor executor;
+
+    /**
+     * generation of the index when its deletions were checked, shifted one bit to the left, with the lowest bit set
+     * if there were deletions. Both are kept in a single field so they are always read together
+     */
+    private volatile long deletionsState = -1;
+
+    /**
+     * token of the search run by the current thread, so the postings it reads check it, null if the search has none
+     */
+    private final ThreadLocal<CancellationToken> cancellation = new ThreadLocal<>();
+
     public IndexReader(Directory directory) {
+        this(directory, Index.getInstance());
+    }
+
+    /**
+     * @param directory where the index is saved
+     * @param index where the index data is loaded, instead of the shared instance
+     */
+    public IndexReader(Directory directory, Index index) {
         this.directory = directory;
-        this.index = Index.getInstance();
+        this.index = index;
+    }
+
+    public Similarity getSimilarity() {
+        return similarity;
     }
 
     /**
-     * open the index for reading, ie, load data from directory
+     * @param similarity used to score the next searches, BM25 by default
+     */
+    public void setSimilarity(final Similarity similarity) {
+        this.similarity = similarity;
+        if (queryResultCache != null) {
+            //cached scores were computed with the previous similarity
+            queryResultCache.clear();
+        }
+    }
+
+    public boolean isBlockMaxWand() {
+        return blockMaxWand;
+    }
+
+    /**
+     * @param blockMaxWand true to evaluate the disjunctions of the next searches with Block-Max WAND, which skips the
+     * blocks of postings whose impacts can't reach the worst top hit. It only pays off when the impacts of the blocks
+     * differ much from the impacts of their terms, otherwise MaxScore, the default, skips as many documents for less
+     * work per document
+     */
+    public void setBlockMaxWand(final boolean blockMaxWand) {
+        this.blockMaxWand = blockMaxWand;
+    }
+
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * @param queryResultCache cache of the top hits of the next searches, null to not cache them. Only searches for
+     * the top k hits are cached, the ones with a Collector are always run
+     */
+    public void setQueryResultCache(final QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * read the postings of the terms of a query in parallel, every term in a task of the executor, eg a ForkJoinPool.
+     * Worth it when postings are read from disk, since most of the time is spent waiting for the reads. Documents are
+     * still scored by a single scorer, so the top hits are the same
+     * @param executor runs the tasks, null to read the postings one after another
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * open the index for reading, ie, load data from directory. Cached results of the data read before are discarded
      */
     public void open() throws IOException, CorruptIndexException {
         directory.read(index);
+        index.changed();
     }
 
     /**
@@ -54,28 +152,309 @@ public class IndexReader {
      * @return a set of Hits with the documents that have been matched
      */
     public TreeSet<Hit> search(final String fieldName, String word) throws IOException, CorruptIndexException {
+        TreeSet<Hit> hits = new TreeSet<>();
+        search(fieldName, word, (docId, score) -> hits.add(new Hit(docId, score, index)));
+        return hits;
+    }
+
+    /**
+     * search for occurrences of a single word in the specified field, keeping only the best hits
+     * @param fieldName in which field is the word being searched
+     * @param word the word which is being searched for
+     * @param k maximum number of hits
+     * @return the best k hits, best first
+     */
+    public Hit[] search(final String fieldName, String word, int k) throws IOException, CorruptIndexException {
+        if (fieldName.isEmpty() || word.isEmpty()) {
+            throw new IllegalArgumentException("fieldName and word are required: " .concat(word). concat(" "). concat(fieldName));
+        }
+        return search(new TermQuery(fieldName, word), k);
+    }
+
+    /**
+     * search for occurrences of a single word in the specified field
+     * @param fieldName in which field is the word being searched
+     * @param word the word which is being searched for
+     * @param collector receives every document matched
+     */
+    public void search(final String fieldName, String word, Collector collector) throws IOException, CorruptIndexException {
         if (fieldName.isEmpty() || word.isEmpty()) {
             throw new IllegalArgumentException("fieldName and word are required: " .concat(word). concat(" "). concat(fieldName));
         }
-        Term term = new Term(fieldName, word);
-        return this.query(term);
+        search(new TermQuery(fieldName, word), collector);
     }
 
     public TreeSet<Hit> search(Document document) throws IOException, CorruptIndexException {
+        TreeSet<Hit> hits = new TreeSet<>();
+        search(document, (docId, score) -> hits.add(new Hit(docId, score, index)));
+        return hits;
+    }
+
+    /**
+     * @param document its fields are the words searched in every field
+     * @param k maximum number of hits
+     * @return the best k hits, best first
+     */
+    public Hit[] search(Document document, int k) throws IOException, CorruptIndexException {
         if (null == document || null == document.fields() || document.fields().size() < 1) {
             throw new IllegalArgumentException("document shouldn't be null");
         }
+        return search(query(document), k);
+    }
 
-        return query(document);
+    /**
+     * @param document its fields are the words searched in every field
+     * @param collector receives every document matched
+     */
+    public void search(Document document, Collector collector) throws IOException, CorruptIndexException {
+        if (null == document || null == document.fields() || document.fields().size() < 1) {
+            throw new IllegalArgumentException("document shouldn't be null");
+        }
+
+        search(query(document), collector);
     }
 
-    private TreeSet<Hit> query(Document document) throws IOException, CorruptIndexException {
-        Map<String, Hit> map = new HashMap<>();
+    /**
+     * @param document its fields are the words searched in every field
+     * @param k maximum number of hits
+     * @param token stops the search, see search(Query, int, CancellationToken)
+     * @return the best k hits, best first, partial if the token stopped the search
+     */
+    public TopHits search(Document document, int k, CancellationToken token) throws IOException, CorruptIndexException {
+        if (null == document || null == document.fields() || document.fields().size() < 1) {
+            throw new IllegalArgumentException("document shouldn't be null");
+        }
+        return search(query(document), k, token);
+    }
+
+    /**
+     * @param query the query
+     * @param k maximum number of hits
+     * @return the best k hits, best first
+     */
+    public Hit[] search(Query query, int k) throws IOException, CorruptIndexException {
+        QueryResultCache cache = queryResultCache;
+        if (cache == null) {
+            TopKCollector collector = new TopKCollector(k);
+            search(query, collector);
+            return collector.topHits(index);
+        }
+        //the generation is read before searching, if the index changes meanwhile the hits are not cached
+        long generation = index.getGeneration();
+        String key = query.cacheKey();
+        Hit[] hits = cache.get(key, k, generation, index);
+        if (hits == null) {
+            TopKCollector collector = new TopKCollector(k);
+            search(query, collector);
+            hits = collector.topHits(index);
+            cache.put(key, k, generation, hits);
+        }
+        return hits;
+    }
+
+    /**
+     * search until the token is cancelled or its deadline passes, so a query on very common terms can't take longer
+     * than its deadline. Partial hits are not cached, but cached hits are returned even if the token is cancelled
+     * @param query the query
+     * @param k maximum number of hits
+     * @param token checked while the postings are read and the documents collected
+     * @return the best k hits, best first. If the search was stopped, the best of the documents read until then
+     */
+    public TopHits search(Query query, int k, CancellationToken token) throws IOException, CorruptIndexException {
+        QueryResultCache cache = queryResultCache;
+        long generation = index.getGeneration();
+        String key = cache == null ? null : query.cacheKey();
+        if (cache != null) {
+            Hit[] hits = cache.get(key, k, generation, index);
+            if (hits != null) {
+                return new TopHits(hits, false);
+            }
+        }
+        TopKCollector collector = new TopKCollector(k);
+        boolean timedOut = search(query, collector, token);
+        Hit[] hits = collector.topHits(index);
+        if (cache != null && !timedOut) {
+            cache.put(key, k, generation, hits);
+        }
+        return new TopHits(hits, timedOut);
+    }
+
+    /**
+     * @param query the query
+     * @param k maximum number of hits
+     * @param sortField field with doc values
+     * @return the first k hits sorted by the value of the field, the documents with no value go last
+     */
+    public Hit[] search(Query query, int k, String sortField) throws IOException, CorruptIndexException {
+        return search(query, k, sortField, false);
+    }
+
+    /**
+     * sort the hits by the doc values of a field instead of by score. Values are compared by their ordinals in the
+     * sorted dictionary of the field, so no stored field is read
+     * @param query the query
+     * @param k maximum number of hits
+     * @param sortField field with doc values
+     * @param reverse true to sort by descending value
+     * @return the first k hits in that order, the documents with no value go last
+     */
+    public Hit[] search(Query query, int k, String sortField, boolean reverse) throws IOException, CorruptIndexException {
+        TopFieldCollector collector = new TopFieldCollector(docValues(sortField), k, reverse);
+        search(query, collector);
+        return collector.topHits(index);
+    }
+
+    /**
+     * @param fieldNames fields with doc values
+     * @return a collector counting the values of the fields, to pass to search
+     */
+    public FacetsCollector facetsCollector(String... fieldNames) {
+        SortedDocValues[] values = new SortedDocValues[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            values[i] = docValues(fieldNames[i]);
+        }
+        return new FacetsCollector(fieldNames, values);
+    }
+
+    /**
+     * count the values of some fields in the documents matching a query, without scoring them
+     * @param query the query
+     * @param fieldNames fields with doc values
+     * @return the counts, see FacetsCollector.getTopValues
+     */
+    public FacetsCollector facets(Query query, String... fieldNames) throws IOException, CorruptIndexException {
+        FacetsCollector facets = facetsCollector(fieldNames);
+        Scorer matcher = query.matcher(this);
+        if (matcher != null) {
+            int docId;
+            while ((docId = matcher.nextDoc()) != Scorer.NO_MORE_DOCS) {
+                facets.collect(docId, 0f);
+            }
+        }
+        return facets;
+    }
+
+    /**
+     * get the top hits and count the values of the facets in the same pass. Facets need all the documents matched,
+     * so none is skipped, even if it can't get in the top hits
+     * @param query the query
+     * @param k maximum number of hits
+     * @param facets collector returned by facetsCollector
+     * @return the best k hits, best first
+     */
+    public Hit[] search(Query query, int k, FacetsCollector facets) throws IOException, CorruptIndexException {
+        TopKCollector collector = new TopKCollector(k);
+        search(query, (docId, score) -> {
+            collector.collect(docId, score);
+            facets.collect(docId, score);
+        });
+        return collector.topHits(index);
+    }
+
+    /**
+     * @param fieldName a field with doc values
+     * @return the values of the field by document, written and in memory, empty if the field has none
+     */
+    public SortedDocValues docValues(final String fieldName) {
+        return index.getDocValues(fieldName);
+    }
+
+    /**
+     * count the documents matching a query without scoring them nor reading any stored field. The documents of a
+     * single term are read from the term dictionary, without reading its postings
+     * @param query the query
+     * @return number of documents matched
+     */
+    public int count(Query query) throws IOException, CorruptIndexException {
+        return query.count(this);
+    }
+
+    /**
+     * @param query the query
+     * @return true if some document matches the query, it stops at the first one
+     */
+    public boolean exists(Query query) throws IOException, CorruptIndexException {
+        return query.exists(this);
+    }
+
+    /**
+     * run a query, documents are scored and collected in order of document id. Once the collector has a minimum
+     * competitive score, ie, its top hits are full, the scorer is told so it can skip the documents scoring less
+     * @param query the query
+     * @param collector receives every document matched
+     */
+    public void search(Query query, Collector collector) throws IOException, CorruptIndexException {
+        search(query, collector, null);
+    }
+
+    /**
+     * run a query until the token is cancelled. The postings read by the scorers check it every CHECK_INTERVAL moves,
+     * even the ones skipped, and the documents collected every CHECK_INTERVAL documents, so the search stops soon
+     * after the deadline wherever it is
+     * @param query the query
+     * @param collector receives every document matched until the search is stopped
+     * @param token stops the search, null to run it to the end
+     * @return true if the token stopped the search, so the collector only has part of the documents
+     */
+    public boolean search(Query query, Collector collector, CancellationToken token) throws IOException, CorruptIndexException {
+        if (token == null) {
+            collect(query, collector, null);
+            return false;
+        }
+        CancellationToken previous = cancellation.get();
+        cancellation.set(token);
+        try {
+            token.check();
+            collect(query, collector, token);
+            return false;
+        } catch (CancellationToken.Cancelled e) {
+            return true;
+        } finally {
+            restoreCancellation(previous);
+        }
+    }
+
+    private void collect(Query query, Collector collector, CancellationToken token) throws IOException, CorruptIndexException {
+        Scorer scorer = query.scorer(this);
+        if (scorer == null) {
+            //some term required by the query is not in the index
+            return;
+        }
+        float minCompetitiveScore = Float.NEGATIVE_INFINITY;
+        int collected = 0;
+        int docId;
+        while ((docId = scorer.nextDoc()) != Scorer.NO_MORE_DOCS) {
+            collector.collect(docId, scorer.score());
+            float minScore = collector.minCompetitiveScore();
+            if (minScore > minCompetitiveScore) {
+                minCompetitiveScore = minScore;
+                scorer.setMinCompetitiveScore(minScore);
+            }
+            if (token != null && (++collected & (CancellationToken.CHECK_INTERVAL - 1)) == 0) {
+                token.check();
+            }
+        }
+    }
+
+    private void restoreCancellation(final CancellationToken previous) {
+        if (previous == null) {
+            cancellation.remove();
+        } else {
+            cancellation.set(previous);
+        }
+    }
+
+    /**
+     * @param document its fields are the words searched in every field
+     * @return a query matching the documents with any of the words, the scores of all of them are added
+     */
+    private Query query(Document document) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
         for (Map.Entry<String, Field> entry : document.fields().entrySet()) {
             String fieldName = entry.getKey();
             Field field = entry.getValue();
             if(null == field.data() || field.data().isBlank()) continue;
-            Set<String> tokens = new HashSet<>();
+            Set<String> tokens = new LinkedHashSet<>();
 
             Parser parser = field.getParser();
             if(null != parser){
@@ -90,80 +469,189 @@ public class IndexReader {
             }
 
             for (String token : tokens) {
-                Term term = new Term(fieldName, token);
-                LinkedList<Posting> postingsList = lookupData(term);
-                if(null == postingsList || postingsList.isEmpty()) continue;
-                postingsList.stream().forEach(p -> {
-
-                    //get the norm to calculate the score of this hit,
-                    int normValue = index.getDocumentNorms(term.getFieldName()).get(p.getDocumentId());
-                    //score the hit proportionally to the ratio tf/norm
-                    //use sqrt to compress the range of scores, log could be also be used...
-                    double score = Math.sqrt((double)p.getTermFrequency() / normValue);
-                    //read stored content
-                    Document doc = index.document(p.getDocumentId());
-
-                    if(map.containsKey(p.getDocumentId())){
-                        Hit hit = map.get(p.getDocumentId());
-                        hit.setScore((float) (score + hit.score()));
-                    }else{
-                        map.put(p.getDocumentId(),new Hit(doc, (float) score));
-                    }
-
-                });
+                query.add(new TermQuery(fieldName, token), BooleanQuery.Occur.SHOULD);
             }
+        }
+        return query.build();
+    }
 
 
+    /**
+     * create the scorers of several queries, in parallel if the reader has an executor. The calling thread runs the
+     * tasks not started yet by the executor instead of waiting for them, so nested queries can't run out of threads
+     * @param queries the queries
+     * @param scores false to create the matchers of the queries, whose scores won't be read
+     * @return their scorers, in the same order, null for the queries matching nothing
+     */
+    List<Scorer> scorers(final List<? extends Query> queries, final boolean scores) throws IOException, CorruptIndexException {
+        List<Scorer> scorers = new ArrayList<>(queries.size());
+        Executor executor = this.executor;
+        if (executor == null || queries.size() < 2) {
+            for (Query query : queries) {
+                scorers.add(scores ? query.scorer(this) : query.matcher(this));
+            }
+            return scorers;
+        }
+        //the threads of the executor check the token of the search too
+        CancellationToken token = cancellation.get();
+        List<FutureTask<Scorer>> tasks = new ArrayList<>(queries.size());
+        for (Query query : queries) {
+            FutureTask<Scorer> task = new FutureTask<>(() -> {
+                CancellationToken previous = cancellation.get();
+                if (token != null) {
+                    cancellation.set(token);
+                }
+                try {
+                    return scores ? query.scorer(this) : query.matcher(this);
+                } finally {
+                    restoreCancellation(previous);
+                }
+            });
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                //the task is run below by this thread
+            }
+        }
+        for (FutureTask<Scorer> task : tasks) {
+            //does nothing if the task has already been started
+            task.run();
+        }
+        for (FutureTask<Scorer> task : tasks) {
+            try {
+                scorers.add(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while reading postings", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof CorruptIndexException) {
+                    throw (CorruptIndexException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return scorers;
+    }
 
+    /**
+     * read the stored fields of the hits in one go, ie, only for the top hits that are going to be shown
+     * @param hits hits returned by a search
+     * @param fieldNames stored fields to read, all of them if none is given
+     */
+    public void loadDocuments(final Collection<Hit> hits, final String... fieldNames) {
+        Set<String> fields = fieldNames.length == 0 ? null : new HashSet<>(Arrays.asList(fieldNames));
+        for (Hit hit : hits) {
+            hit.setDocument(index.document(hit.docId(), fields));
         }
-        TreeSet<Hit> hits = new TreeSet<>();
-        hits.addAll(map.values());
+    }
 
-        return hits;
+    /**
+     * @param docId internal id of a document, as returned in a Hit
+     * @param fieldNames stored fields to read, all of them if none is given
+     * @return the document with the stored fields
+     */
+    public Document document(final int docId, final String... fieldNames) {
+        return index.document(docId, fieldNames.length == 0 ? null : Arrays.asList(fieldNames));
     }
 
+    /**
+     * @return true if some document has been removed from the index, so the number of documents of the terms can be
+     * higher than their postings. Checked once per generation of the index
+     */
+    boolean hasDeletions() {
+        long generation = index.getGeneration();
+        long state = deletionsState;
+        if (state >>> 1 != generation) {
+            state = generation << 1 | (index.getDocIdMap().hasDeletions() ? 1 : 0);
+            deletionsState = state;
+        }
+        return (state & 1) != 0;
+    }
 
     /**
-     * Perform a query for a single term. Returns a Set of Hits
-     * @param term Term that is being searched
-     * @return Documents that match are returned as Hit objects within a Set
+     * @param fieldName an indexed field
+     * @return norms of the field, to score its postings
      */
-    private TreeSet<Hit> query(final Term term) throws IOException, CorruptIndexException {
-        LinkedList<Posting> postingsList = lookupData(term);
+    Norms norms(final String fieldName) {
+        return index.getNorms(fieldName);
+    }
 
-        TreeSet<Hit> hits = new TreeSet<>();
-        if (postingsList == null) {
-            //term was not found  an empty result
-            return hits;
-        }
+    /**
+     * @param fieldName an indexed field
+     * @return statistics of the field, of all the documents written and in memory
+     */
+    FieldStatistics statistics(final String fieldName) {
+        return index.getPostingsDictionary(fieldName).getStatistics();
+    }
 
-        //traverse posting list,  get list of results and score the docs
-        for (Posting p : postingsList) {
-            //get the norm to calculate the score of this hit,
-            int normValue = index.getDocumentNorms(term.getFieldName()).get(p.getDocumentId());
-            //score the hit proportionally to the ratio tf/norm
-            //use sqrt to compress the range of scores, log could be also be used...
-            double score = Math.sqrt((double)p.getTermFrequency() / normValue);
-            //read stored content
-            Document doc = index.document(p.getDocumentId());
+    /**
+     * @param term a term
+     * @return bound of the postings of the term, written and in memory
+     */
+    Impact impact(final Term term) {
+        return index.getPostingsDictionary(term.getFieldName()).impact(term.getToken(), norms(term.getFieldName()));
+    }
 
-            //add hit to the list
-            hits.add(new Hit(doc, (float) score));
-        }
+    /**
+     * @param term a term
+     * @return number of documents containing the term, written and in memory
+     */
+    int docFreq(final Term term) {
+        return index.getPostingsDictionary(term.getFieldName()).docFreq(term.getToken());
+    }
 
-        return hits;
+    /**
+     * @param fieldName an indexed field
+     * @param prefix prefix of the terms, empty for all the terms
+     * @return the terms of the field starting with prefix, written and in memory, in dictionary order
+     */
+    List<String> terms(final String fieldName, final String prefix) {
+        PostingsDictionary dictionary = index.getPostingsDictionary(fieldName);
+        if (dictionary == null) {
+            Logger.getInstance().error(String.format("field %s is not indexed, hence, not searchable" , fieldName));
+            return Collections.emptyList();
+        }
+        return dictionary.terms(prefix);
     }
 
+    /**
+     * @param fieldName an indexed field
+     * @param automaton automaton accepting the terms
+     * @return the terms of the field accepted by the automaton, written and in memory, in dictionary order
+     */
+    List<String> terms(final String fieldName, final LevenshteinAutomaton automaton) {
+        PostingsDictionary dictionary = index.getPostingsDictionary(fieldName);
+        if (dictionary == null) {
+            Logger.getInstance().error(String.format("field %s is not indexed, hence, not searchable" , fieldName));
+            return Collections.emptyList();
+        }
+        return dictionary.terms(automaton);
+    }
 
     /**
-     * try to load the postings list for the given term, first from memory, if not in memory
-     * load from fisk
+     * read the postings of the given term written to disk and, for a TxtFileDirectory, the ones of the documents
+     * indexed in memory since the last flush, as a single list
      * @param term the term searched
-     * @return postings list for the term, if any occurrence is found
+     * @return cursor over the postings of the term, if any occurrence is found. It checks the token of the search
+     * run by this thread, if it has one
      * @throws IOException
      * @throws CorruptIndexException
      */
-    private LinkedList<Posting> lookupData(final Term term) throws IOException, CorruptIndexException {
+    PostingsCursor postings(final Term term) throws IOException, CorruptIndexException {
+        PostingsCursor cursor = readPostings(term);
+        CancellationToken token = cancellation.get();
+        return cursor == null || token == null ? cursor : new CancellablePostingsCursor(cursor, token);
+    }
+
+    private PostingsCursor readPostings(final Term term) throws IOException, CorruptIndexException {
         //get the dictionary for this field
         PostingsDictionary dictionary = index.getPostingsDictionary(term.getFieldName());
         if (dictionary == null) {
@@ -172,21 +660,15 @@ public class IndexReader {
             return null;
         }
 
-        LinkedList<Posting> postingsList = null;
+        PostingsCursor written = directory.readPostingsCursor(dictionary, term.getFieldName(), term.getToken());
         if(directory instanceof TxtFileDirectory){
-            //first check if there is any postings list for this term already in memory
-            postingsList = dictionary.getPostingsList(term.getToken());
-            if(null != postingsList && postingsList.size() > 0) return postingsList;
-        }
-
-        if (directory instanceof DbFileDirectory || dictionary.getPostingsBlock(dictionary.getKeyForTerm(term.token)).size() == 0) {
-            //if not, try to load from disk
-            dictionary = (directory).readPostingsBlock(dictionary, term.getFieldName(), term.getToken());
-            postingsList = dictionary.getPostingsList(term.getToken());
-
+            //postings in memory are read in place, documents flushed before are only on disk
+            PostingsCursor memory = dictionary.cursor(term.getToken());
+            if(null != memory && memory.size() > 0) {
+                return null == written || written.size() == 0 ? memory : new UnionPostingsCursor(written, memory);
+            }
         }
-
-        return postingsList;
+        return written;
     }
 
 
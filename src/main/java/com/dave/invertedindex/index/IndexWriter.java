@@ -1,82 +1,304 @@
 package com.dave.invertedindex.index;
 
 
+import com.dave.invertedindex.conf.FileConfigured;
 import com.dave.invertedindex.document.Document;
 import com.dave.invertedindex.document.Field;
 import com.dave.invertedindex.store.DbFileDirectory;
 import com.dave.invertedindex.store.Directory;
 import com.dave.invertedindex.store.TxtFileDirectory;
 import com.dave.invertedindex.util.Benchmark;
+import com.dave.invertedindex.util.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * This class is used to create and maintain the Index. It's not doing real job, but delegating:
  * - FieldIndexer adds the terms in a field to the index
  * - Directory saves index files to disk
  *
+ * A writer created in concurrent mode can be shared by several threads calling addDocument at the same time.
+ * Documents are added holding a shared lock, while flush, reset, clear and close take it exclusively, so the
+ * index is never written while a document is half added
+ *
+ * Other option to use several threads is giving the writer N buffers, every buffer is an independent Index with its
+ * own FieldIndexer. A thread adding a document takes a free buffer, so no buffer is ever used by two threads at the
+ * same time and nothing needs to be locked while the document is indexed. Document ids are reserved from the main
+ * index, so they are unique and increasing inside every buffer. On flush, buffers are merged into the main index,
+ * which is written to the directory
+ *
+ * The memory used by the in-memory index is estimated while documents are added. When it goes over the budget
+ * configured with RAM_BUFFER_SIZE_MB, the index is flushed to the directory and released from memory, so large
+ * corpora can be indexed with bounded memory
  */
-public class IndexWriter {
+public class IndexWriter extends FileConfigured {
 
     private Directory directory;
 
     private Index index;
 
     private FieldIndexer indexer;
+
+    /**
+     * per-thread buffers which are not in use, empty if the writer has no buffers
+     */
+    private final BlockingQueue<FieldIndexer> freeBuffers;
+
+    /**
+     * all the buffers
+     */
+    private final List<FieldIndexer> buffers = new ArrayList<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * true once the ids of the documents already in the directory are known, so new documents don't reuse them
+     */
+    private volatile boolean idsLoaded = false;
+
+    /**
+     * memory budget in bytes, 0 if the index is only flushed when requested
+     */
+    private volatile long ramBufferSize;
+
     public IndexWriter(Directory directory) {
+        this(directory, false);
+    }
+
+    /**
+     * @param directory where the index is saved
+     * @param concurrent true if several threads will add documents at the same time
+     */
+    public IndexWriter(Directory directory, boolean concurrent) {
+        this(directory, Index.getInstance(), concurrent, 0);
+    }
+
+    /**
+     * @param directory where the index is saved
+     * @param numBuffers number of per-thread buffers, ie, how many threads can add documents at the same time
+     */
+    public IndexWriter(Directory directory, int numBuffers) {
+        this(directory, Index.getInstance(), false, numBuffers);
+    }
+
+    /**
+     * @param directory where the index is saved
+     * @param index index where the documents are added, instead of the shared instance
+     * @param concurrent true if several threads will add documents at the same time directly to the index
+     * @param numBuffers number of per-thread buffers, 0 to add documents directly to the index
+     */
+    public IndexWriter(Directory directory, Index index, boolean concurrent, int numBuffers) {
         this.directory = directory;
-        this.index = Index.getInstance();
+        this.index = index;
+        this.index.setConcurrent(concurrent);
+        boolean offHeap = index.isOffHeap() || Boolean.TRUE.equals(getConf().getOffHeap());
+        this.index.setOffHeap(offHeap);
         this.indexer = new FieldIndexer(index);
+        Integer ramBufferSizeMB = getConf().getRamBufferSizeMB();
+        setRamBufferSizeMB(ramBufferSizeMB == null ? 0 : ramBufferSizeMB);
+        this.freeBuffers = new ArrayBlockingQueue<>(Math.max(numBuffers, 1));
+        for (int i = 0; i < numBuffers; i++) {
+            Index bufferIndex = new Index();
+            bufferIndex.setOffHeap(offHeap);
+            FieldIndexer buffer = new FieldIndexer(bufferIndex);
+            this.buffers.add(buffer);
+            this.freeBuffers.add(buffer);
+        }
+    }
 
+    /**
+     * @param ramBufferSizeMB memory budget for the in-memory index, 0 to flush only when requested
+     */
+    public void setRamBufferSizeMB(int ramBufferSizeMB) {
+        if (ramBufferSizeMB < 0) {
+            throw new IllegalArgumentException("ramBufferSizeMB can't be negative: " + ramBufferSizeMB);
+        }
+        this.ramBufferSize = ramBufferSizeMB * 1024L * 1024L;
+    }
+
+    /**
+     * @return estimated memory, in bytes, used by the documents indexed in memory, including the buffers
+     */
+    public long ramBytesUsed() {
+        long bytes = index.ramBytesUsed();
+        for (FieldIndexer buffer : buffers) {
+            bytes += buffer.index.ramBytesUsed();
+        }
+        return bytes;
     }
 
     /**
      * Add a document to the in-memory index.
      * Iterate over all fields and add content of each field, one by one
+     * If the memory budget is exceeded, the index is flushed and cleared
+     */
+    public void addDocument(Document doc) throws IOException, CorruptIndexException {
+        if (!idsLoaded) {
+            loadIds();
+        }
+        addToIndex(doc);
+        if (ramBufferSize > 0 && ramBytesUsed() > ramBufferSize) {
+            flushAndClear();
+        }
+    }
+
+    /**
+     * the index may have been written by other writer, new documents get ids after the ones written
      */
-    public void addDocument(Document doc) {
+    private void loadIds() throws IOException, CorruptIndexException {
+        lock.writeLock().lock();
+        try {
+            if (!idsLoaded) {
+                index.getDocIdMap().skipTo(directory.nextDocumentId());
+                idsLoaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addToIndex(Document doc) {
+        lock.readLock().lock();
+        try {
+            if (buffers.isEmpty()) {
+                //inside the index, the document is referenced by a dense int id instead of its external id
+                int docId = index.nextDocumentId(doc.getDocumentId());
+                addDocument(indexer, docId, doc);
+                index.changed();
+                return;
+            }
+            //wait until some buffer is free, if all are being used by other threads
+            FieldIndexer buffer = freeBuffers.take();
+            try {
+                int docId = index.getDocIdMap().reserve();
+                buffer.index.addDocumentId(docId, doc.getDocumentId());
+                addDocument(buffer, docId, doc);
+            } finally {
+                freeBuffers.add(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a free index buffer", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
+    private void addDocument(FieldIndexer indexer, int docId, Document doc) {
         for(String fieldName: doc.fields().keySet()) {
             Field field = doc.fields().get(fieldName);
             //for some fields (like title) we might want store them but not index them
             //skip to index its contents, since it's not in the requirements, even though it would be possible
             if (field.isStored()) {
-                index.getStoredDocuments(fieldName).put(doc.getDocumentId(), field.data());
+                indexer.index.putStored(fieldName, docId, field.data());
+            }
+            if (field.hasDocValues() && !field.isTokenized() && field.data() != null) {
+                indexer.index.putDocValue(fieldName, docId, field.data());
             }
             if (field.isIndexed()) {
-                indexer.addField(doc.getDocumentId(), field);
+                indexer.addField(docId, field);
             }
         }
     }
 
-    public void removeDocument(Document doc) throws IOException, ClassNotFoundException {
-        for(String fieldName: doc.fields().keySet()) {
-            Field field = doc.fields().get(fieldName);
-            if(directory instanceof TxtFileDirectory){
-                indexer.removeField(doc.getDocumentId(), field);
-            }else{
-                ((DbFileDirectory)directory).removeField(doc.getDocumentId(),field);
+    /**
+     * move the documents in the per-thread buffers to the main index. Must be called holding the write lock
+     */
+    private void mergeBuffers() {
+        for (FieldIndexer buffer : buffers) {
+            index.merge(buffer.index);
+            buffer.index.clear();
+        }
+    }
+
+    /**
+     * postings lists are modified in place to remove a document, so no other document can be added meanwhile
+     */
+    public void removeDocument(Document doc) throws IOException, CorruptIndexException {
+        lock.writeLock().lock();
+        try {
+            //the document could still be in some buffer
+            mergeBuffers();
+            int docId = index.getDocIdMap().docId(doc.getDocumentId());
+            if (docId < 0) {
+                //the document may have been written by other writer, so its id is not in memory
+                docId = directory.documentId(doc.getDocumentId());
+            }
+            if (docId < 0) {
+                //document is not in the index, nothing to remove
+                return;
             }
+            for(String fieldName: doc.fields().keySet()) {
+                Field field = doc.fields().get(fieldName);
+                if(directory instanceof TxtFileDirectory){
+                    indexer.removeField(docId, field);
+                    //the document may have been flushed already
+                    ((TxtFileDirectory)directory).removeField(index, docId, field);
+                }else{
+                    ((DbFileDirectory)directory).removeField(docId, field);
+                }
 
+            }
+            index.getDocIdMap().remove(docId, doc.getDocumentId());
+            index.changed();
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
 
     public long getNumDocs() {
-        return index.numDocs;
+        long numDocs = index.getNumDocs();
+        for (FieldIndexer buffer : buffers) {
+            numDocs += buffer.index.getNumDocs();
+        }
+        return numDocs;
     }
 
+    /**
+     * terms in the buffers are only counted once they are merged, since the same term can be in several buffers
+     */
     public long getNumTerms() {
-        return index.numTerms;
+        return index.getNumTerms();
     }
 
     /**
      * flush all indexed documents to disk
      */
     public void flush() throws IOException, CorruptIndexException {
-        Benchmark.getInstance().start("IndexWriter.flush");
-        directory.write(index);
-        Benchmark.getInstance().end("IndexWriter.flush");
+        lock.writeLock().lock();
+        try {
+            Benchmark.getInstance().start("IndexWriter.flush");
+            mergeBuffers();
+            directory.write(index);
+            index.changed();
+            Benchmark.getInstance().end("IndexWriter.flush");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * flush the index to disk and release its memory, unless other thread has just done it
+     */
+    private void flushAndClear() throws IOException, CorruptIndexException {
+        lock.writeLock().lock();
+        try {
+            long bytes = ramBytesUsed();
+            if (bytes <= ramBufferSize) {
+                return;
+            }
+            Logger.getInstance().info(String.format("memory budget exceeded, flushing %d bytes", bytes));
+            flush();
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -85,19 +307,42 @@ public class IndexWriter {
      * @throws CorruptIndexException
      */
     public void reset() throws IOException, CorruptIndexException {
-        directory.reset();
-        index.reset();
+        lock.writeLock().lock();
+        try {
+            directory.reset();
+            index.reset();
+            //the directory is empty now
+            idsLoaded = true;
+            for (FieldIndexer buffer : buffers) {
+                buffer.index.reset();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void clear(){
-        index.clear();
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (FieldIndexer buffer : buffers) {
+                buffer.index.reset();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
      * close all open resources and files which have been used by the index
      */
     public void close() {
-        directory.close(index);
+        lock.writeLock().lock();
+        try {
+            directory.close(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -105,6 +350,9 @@ public class IndexWriter {
      * this method only work for DbFileDirectory, not ExtFileDirectory
      */
     public void open() throws IOException, CorruptIndexException {
-        if(directory instanceof DbFileDirectory) directory.read(index);
+        if(directory instanceof DbFileDirectory) {
+            directory.read(index);
+            index.changed();
+        }
     }
 }
@@ -0,0 +1,205 @@
+package com.dave.invertedindex.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Accepts the terms within a maximum number of edits (insertions, deletions or substitutions of a character) of a
+ * query term. The state after reading some characters is the row of the edit distances between them and every prefix
+ * of the query term, capped at maxEdits + 1, so every character is read in time proportional to the length of the
+ * query term, and no state is built for characters which don't occur in it.
+ *
+ * A state is dead when none of its distances is within maxEdits, since the distances never decrease, no term starting
+ * with those characters can be accepted. intersect uses that to jump over the terms of a sorted TermDictionary: when a
+ * term reaches a dead state, the next term visited is the smallest one whose prefix is still alive, so the terms read
+ * are bounded by the automaton and not by the size of the dictionary
+ */
+public class LevenshteinAutomaton {
+
+    /**
+     * highest number of edits supported, the number of terms accepted grows too fast beyond it
+     */
+    public static final int MAX_EDITS = 2;
+
+    /**
+     * code points of the query term
+     */
+    protected final int[] term;
+
+    /**
+     * distinct code points of the query term, sorted
+     */
+    protected final int[] alphabet;
+
+    protected final int maxEdits;
+
+    /**
+     * @param term query term
+     * @param maxEdits from 0 to MAX_EDITS
+     */
+    public LevenshteinAutomaton(final String term, final int maxEdits) {
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new IllegalArgumentException("max edits must be between 0 and " + MAX_EDITS + ": " + maxEdits);
+        }
+        this.term = term.codePoints().toArray();
+        this.alphabet = Arrays.stream(this.term).distinct().sorted().toArray();
+        this.maxEdits = maxEdits;
+    }
+
+    /**
+     * @return state before reading any character
+     */
+    protected int[] start() {
+        int[] state = new int[term.length + 1];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = Math.min(i, maxEdits + 1);
+        }
+        return state;
+    }
+
+    /**
+     * @param state current state
+     * @param c code point read
+     * @return the state after reading c
+     */
+    protected int[] step(final int[] state, final int c) {
+        int[] next = new int[state.length];
+        next[0] = Math.min(state[0] + 1, maxEdits + 1);
+        for (int i = 1; i < state.length; i++) {
+            int distance = state[i - 1] + (term[i - 1] == c ? 0 : 1);
+            distance = Math.min(distance, Math.min(state[i], next[i - 1]) + 1);
+            next[i] = Math.min(distance, maxEdits + 1);
+        }
+        return next;
+    }
+
+    protected boolean isAlive(final int[] state) {
+        for (int distance : state) {
+            if (distance <= maxEdits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected boolean isAccept(final int[] state) {
+        return state[state.length - 1] <= maxEdits;
+    }
+
+    /**
+     * @param candidate a term
+     * @return true if the candidate is within maxEdits of the query term
+     */
+    public boolean accepts(final String candidate) {
+        int[] state = start();
+        for (int i = 0; i < candidate.length(); ) {
+            int c = candidate.codePointAt(i);
+            state = step(state, c);
+            if (!isAlive(state)) {
+                return false;
+            }
+            i += Character.charCount(c);
+        }
+        return isAccept(state);
+    }
+
+    /**
+     * @param dictionary sorted term dictionary
+     * @return the terms of the dictionary accepted, in dictionary order
+     */
+    public List<String> intersect(final TermDictionary dictionary) {
+        List<String> accepted = new ArrayList<>();
+        TermsEnum terms = dictionary.iterator();
+        int[][] states = new int[8][];
+        boolean more = terms.next();
+        while (more) {
+            String candidate = terms.term();
+            int[] codePoints = candidate.codePoints().toArray();
+            if (states.length <= codePoints.length) {
+                states = Arrays.copyOf(states, codePoints.length + 1);
+            }
+            states[0] = start();
+            int depth = 0;
+            while (depth < codePoints.length) {
+                int[] next = step(states[depth], codePoints[depth]);
+                if (!isAlive(next)) {
+                    break;
+                }
+                states[++depth] = next;
+            }
+            if (depth == codePoints.length) {
+                if (isAccept(states[depth])) {
+                    accepted.add(candidate);
+                }
+                //the following terms can still start with this one
+                more = terms.next();
+                continue;
+            }
+            String target = successor(codePoints, depth, states);
+            more = target != null && terms.seekCeil(target);
+        }
+        return accepted;
+    }
+
+    /**
+     * @param codePoints term which reached a dead state
+     * @param depth number of code points read before the dead state
+     * @param states state after every prefix of the term, up to depth
+     * @return the smallest string after the term which is alive, null if there is none
+     */
+    protected String successor(final int[] codePoints, int depth, final int[][] states) {
+        for (; depth >= 0; depth--) {
+            int c = nextAlive(states[depth], codePoints[depth]);
+            if (c >= 0) {
+                StringBuilder target = new StringBuilder();
+                for (int i = 0; i < depth; i++) {
+                    target.appendCodePoint(codePoints[i]);
+                }
+                return target.appendCodePoint(c).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param state a state
+     * @param after a code point
+     * @return the smallest code point after the given one leading to a live state, -1 if there is none
+     */
+    protected int nextAlive(final int[] state, final int after) {
+        //characters not in the query term lead to the same state, the smallest of them after the given one is checked
+        int other = nextCodePoint(after);
+        while (other >= 0 && Arrays.binarySearch(alphabet, other) >= 0) {
+            other = nextCodePoint(other);
+        }
+        int found = -1;
+        if (other >= 0 && isAlive(step(state, other))) {
+            found = other;
+        }
+        for (int c : alphabet) {
+            if (c <= after) {
+                continue;
+            }
+            if (found >= 0 && c > found) {
+                break;
+            }
+            if (isAlive(step(state, c))) {
+                found = c;
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the code point after c, skipping surrogates, -1 after the last one
+     */
+    protected static int nextCodePoint(final int c) {
+        if (c >= Character.MAX_CODE_POINT) {
+            return -1;
+        }
+        int next = c + 1;
+        return next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE ? Character.MAX_SURROGATE + 1 : next;
+    }
+}
@@ -0,0 +1,104 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Iterates over the postings of a PostingsList. Since postings are in an array, advance doesn't read the postings
+ * before the target: it gallops, doubling the distance from the current position until it passes the target, and
+ * then does a binary search in the last range, so reaching a posting at distance d costs O(log d)
+ */
+public class ListPostingsCursor extends PostingsCursor {
+
+    protected final PostingsList postings;
+
+    /**
+     * position of the cursor in the postings list
+     */
+    protected int index = -1;
+
+    /**
+     * posting whose positions are being read, and offset of its next position
+     */
+    protected int positionsIndex = -1;
+
+    protected int positionUpto;
+
+    public ListPostingsCursor(final PostingsList postings) {
+        this.postings = postings;
+    }
+
+    @Override
+    public int nextDoc() {
+        if (++index >= postings.size) {
+            index = postings.size;
+            return NO_MORE_DOCS;
+        }
+        return postings.docIds[index];
+    }
+
+    @Override
+    public int advance(final int target) {
+        int[] docIds = postings.docIds;
+        int size = postings.size;
+        int low = index + 1;
+        if (low >= size) {
+            index = size;
+            return NO_MORE_DOCS;
+        }
+        if (docIds[low] >= target) {
+            index = low;
+            return docIds[low];
+        }
+        //docIds[low] is before target, find a position after it
+        int step = 1;
+        int high = low + step;
+        while (high < size && docIds[high] < target) {
+            low = high;
+            step <<= 1;
+            high = low + step;
+        }
+        //the first posting from target is in (low, high]
+        int from = low + 1;
+        int to = Math.min(high, size);
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (docIds[middle] < target) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        index = from;
+        return from < size ? docIds[from] : NO_MORE_DOCS;
+    }
+
+    @Override
+    public int docId() {
+        if (index < 0) {
+            return -1;
+        }
+        return index < postings.size ? postings.docIds[index] : NO_MORE_DOCS;
+    }
+
+    @Override
+    public int termFrequency() {
+        return postings.termFrequencies[index];
+    }
+
+    @Override
+    public int size() {
+        return postings.size;
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return postings.positions != null;
+    }
+
+    @Override
+    public int nextPosition() {
+        if (positionsIndex != index) {
+            positionsIndex = index;
+            positionUpto = postings.positionStarts[index];
+        }
+        return postings.positions[positionUpto++];
+    }
+}
@@ -0,0 +1,146 @@
+package com.dave.invertedindex.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Matches the documents matched by any of its scorers, as DisjunctionScorer, but skips the documents which can't
+ * score the minimum competitive score, with the MaxScore algorithm.
+ *
+ * Scorers are sorted by their max score. The ones with the lowest max scores, as long as the sum of them is below the
+ * minimum competitive score, are non-essential: a document matched only by them can't be competitive. So candidates
+ * are only taken from the essential scorers, and the non-essential ones are only advanced to the candidates, from the
+ * highest max score down, until the score of the candidate plus the max scores still to add can't reach the minimum.
+ * As the minimum grows, more scorers become non-essential, and the postings of common terms are mostly skipped.
+ *
+ * Until a minimum is set, every document is matched. The score of a document returned is always the sum of the scores
+ * of all the scorers matching it
+ */
+public class MaxScoreScorer extends Scorer {
+
+    /**
+     * sorted by max score, lowest first
+     */
+    protected final Scorer[] scorers;
+
+    /**
+     * sum of the max scores of the scorers up to every position, included
+     */
+    protected final double[] sumMaxScores;
+
+    /**
+     * scorers before this position are non-essential
+     */
+    protected int firstEssential = 0;
+
+    protected float minCompetitiveScore = Float.NEGATIVE_INFINITY;
+
+    protected int docId = -1;
+
+    protected float score;
+
+    /**
+     * @param scorers at least one scorer, all of them with a finite max score
+     */
+    public MaxScoreScorer(final List<Scorer> scorers) {
+        List<Scorer> sorted = new ArrayList<>(scorers);
+        sorted.sort(Comparator.comparingDouble(Scorer::maxScore));
+        this.scorers = sorted.toArray(new Scorer[0]);
+        this.sumMaxScores = new double[this.scorers.length];
+        double sum = 0;
+        for (int i = 0; i < this.scorers.length; i++) {
+            sum += this.scorers[i].maxScore();
+            sumMaxScores[i] = sum;
+        }
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int nextDoc() {
+        return docId == NO_MORE_DOCS ? NO_MORE_DOCS : doNext(docId + 1);
+    }
+
+    @Override
+    public int advance(final int target) {
+        return doNext(target);
+    }
+
+    /**
+     * @param target lowest document id to consider
+     * @return first competitive document from target
+     */
+    protected int doNext(int target) {
+        candidates:
+        while (firstEssential < scorers.length) {
+            //the candidate is the first document of the essential scorers
+            int candidate = NO_MORE_DOCS;
+            for (int i = firstEssential; i < scorers.length; i++) {
+                int scorerDocId = scorers[i].docId();
+                if (scorerDocId < target) {
+                    scorerDocId = scorers[i].advance(target);
+                }
+                candidate = Math.min(candidate, scorerDocId);
+            }
+            if (candidate == NO_MORE_DOCS) {
+                break;
+            }
+            float candidateScore = 0;
+            for (int i = firstEssential; i < scorers.length; i++) {
+                if (scorers[i].docId() == candidate) {
+                    candidateScore += scorers[i].score();
+                }
+            }
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (candidateScore + sumMaxScores[i] < minCompetitiveScore) {
+                    //even if all the remaining scorers match, the candidate can't be competitive
+                    target = candidate + 1;
+                    continue candidates;
+                }
+                int scorerDocId = scorers[i].docId();
+                if (scorerDocId < candidate) {
+                    scorerDocId = scorers[i].advance(candidate);
+                }
+                if (scorerDocId == candidate) {
+                    candidateScore += scorers[i].score();
+                }
+            }
+            score = candidateScore;
+            docId = candidate;
+            return docId;
+        }
+        docId = NO_MORE_DOCS;
+        return docId;
+    }
+
+    @Override
+    public float score() {
+        return score;
+    }
+
+    @Override
+    public void setMinCompetitiveScore(final float minScore) {
+        minCompetitiveScore = minScore;
+        while (firstEssential < scorers.length && sumMaxScores[firstEssential] < minScore) {
+            firstEssential++;
+        }
+    }
+
+    @Override
+    public float maxScore() {
+        return (float) sumMaxScores[sumMaxScores.length - 1];
+    }
+
+    @Override
+    public long cost() {
+        long cost = 0;
+        for (Scorer scorer : scorers) {
+            cost += scorer.cost();
+        }
+        return cost;
+    }
+}
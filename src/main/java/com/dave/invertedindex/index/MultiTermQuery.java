@@ -0,0 +1,133 @@
+package com.dave.invertedindex.index;
+
+import com.dave.invertedindex.document.Term;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Matches the documents containing any of the terms of a field accepted by the query. By default only the terms
+ * starting with the prefix of the query are enumerated, from the sorted TermDictionary and the terms in memory, so the
+ * query doesn't scan the whole dictionary unless its prefix is empty. Subclasses can enumerate their terms otherwise.
+ *
+ * By default every document matched has the same score, 1, and the postings of all the terms are merged in a set of
+ * document ids, which is cheap even if the query matches thousands of terms. With Rewrite.SCORING the terms are
+ * scored as a disjunction of term queries, so documents with more occurrences of rarer terms score higher, at the cost
+ * of a scorer per term
+ */
+public abstract class MultiTermQuery extends Query {
+
+    public enum Rewrite {
+        CONSTANT_SCORE, SCORING
+    }
+
+    protected final String fieldName;
+
+    protected Rewrite rewrite = Rewrite.CONSTANT_SCORE;
+
+    protected MultiTermQuery(final String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public Rewrite getRewrite() {
+        return rewrite;
+    }
+
+    /**
+     * @param rewrite how the documents matched are scored, CONSTANT_SCORE by default
+     */
+    public void setRewrite(final Rewrite rewrite) {
+        this.rewrite = rewrite;
+    }
+
+    /**
+     * the rewrite is part of the key, since it changes the scores
+     */
+    @Override
+    protected String cacheKey() {
+        return toString().concat(" ").concat(rewrite.name());
+    }
+
+    /**
+     * @return the prefix of all the terms the query can accept, empty if there is none
+     */
+    protected abstract String prefix();
+
+    /**
+     * @param term a term starting with prefix()
+     * @return true if the query matches the term
+     */
+    protected abstract boolean accept(String term);
+
+    /**
+     * @param reader reader where the terms are read from
+     * @return the terms of the field matched by the query, in dictionary order. By default every term starting with
+     * prefix() is checked by accept()
+     */
+    protected List<String> terms(final IndexReader reader) {
+        List<String> terms = new ArrayList<>();
+        for (String term : reader.terms(fieldName, prefix())) {
+            if (accept(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    @Override
+    protected Scorer scorer(final IndexReader reader) throws IOException, CorruptIndexException {
+        if (rewrite == Rewrite.SCORING) {
+            List<TermQuery> queries = new ArrayList<>();
+            for (String token : terms(reader)) {
+                queries.add(new TermQuery(fieldName, token));
+            }
+            List<Scorer> scorers = new ArrayList<>();
+            for (Scorer scorer : reader.scorers(queries, true)) {
+                if (scorer != null) {
+                    scorers.add(scorer);
+                }
+            }
+            return scorers.isEmpty() ? null : BooleanQuery.disjunction(scorers, reader.isBlockMaxWand());
+        }
+        BitSet docIds = matches(reader);
+        return docIds.isEmpty() ? null : new ConstantScoreScorer(docIds, 1f);
+    }
+
+    /**
+     * the documents are the same whatever the rewrite, without scores the set of documents is cheaper
+     */
+    @Override
+    protected Scorer matcher(final IndexReader reader) throws IOException, CorruptIndexException {
+        BitSet docIds = matches(reader);
+        return docIds.isEmpty() ? null : new ConstantScoreScorer(docIds, 1f);
+    }
+
+    @Override
+    protected int count(final IndexReader reader) throws IOException, CorruptIndexException {
+        return matches(reader).cardinality();
+    }
+
+    /**
+     * @return the documents containing any of the terms
+     */
+    protected BitSet matches(final IndexReader reader) throws IOException, CorruptIndexException {
+        BitSet docIds = new BitSet();
+        for (String token : terms(reader)) {
+            PostingsCursor postings = reader.postings(new Term(fieldName, token));
+            if (postings == null) {
+                continue;
+            }
+            int docId;
+            while ((docId = postings.nextDoc()) != PostingsCursor.NO_MORE_DOCS) {
+                docIds.set(docId);
+            }
+        }
+        return docIds;
+    }
+}
@@ -0,0 +1,28 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Read access to the norms of a field, by internal document id, without boxing. Used to score every posting of a
+ * term, so implementations are dense arrays, not maps
+ */
+public interface Norms {
+
+    /**
+     * norms of a field with no documents
+     */
+    Norms EMPTY = docId -> 0;
+
+    /**
+     * @param docId internal document id
+     * @return the norm of the document, ie, number of terms of the field, 0 if the document has none
+     */
+    int norm(int docId);
+
+    /**
+     * @param docId internal document id
+     * @return the norm quantized to a byte by ByteNorms.encode, as it's written. Similarities index their tables
+     * with it, so scoring a posting doesn't need to compute anything from the norm
+     */
+    default byte encodedNorm(int docId) {
+        return ByteNorms.encode(norm(docId));
+    }
+}
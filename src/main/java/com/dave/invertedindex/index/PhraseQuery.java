@@ -0,0 +1,89 @@
+package com.dave.invertedindex.index;
+
+import com.dave.invertedindex.document.Term;
+import com.dave.invertedindex.util.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Matches the documents containing a sequence of tokens in a field indexed with positions.
+ *
+ * With a slop of 0 the tokens must be at consecutive positions, in order. With a greater slop they can be up to slop
+ * positions away from where the phrase puts them, every match adds 1/(1 + distance) to the frequency of the phrase,
+ * so the closer matches score higher. Only the positions in the postings are read, never the stored fields
+ *
+ *  Query query = new PhraseQuery("body", 1, "apple", "pie");
+ */
+public class PhraseQuery extends Query {
+
+    protected final String fieldName;
+
+    protected final String[] tokens;
+
+    protected final int slop;
+
+    public PhraseQuery(final String fieldName, final String... tokens) {
+        this(fieldName, 0, tokens);
+    }
+
+    /**
+     * @param fieldName field indexed with positions
+     * @param slop max number of positions the tokens can be away from where the phrase puts them
+     * @param tokens at least one token, in the order of the phrase
+     */
+    public PhraseQuery(final String fieldName, final int slop, final String... tokens) {
+        if (tokens.length == 0) {
+            throw new IllegalArgumentException("a phrase needs at least one token");
+        }
+        if (slop < 0) {
+            throw new IllegalArgumentException("slop can't be negative: " + slop);
+        }
+        this.fieldName = fieldName;
+        this.slop = slop;
+        this.tokens = tokens.clone();
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String[] getTokens() {
+        return tokens.clone();
+    }
+
+    public int getSlop() {
+        return slop;
+    }
+
+    @Override
+    protected Scorer scorer(final IndexReader reader) throws IOException, CorruptIndexException {
+        PostingsCursor[] postings = new PostingsCursor[tokens.length];
+        int[] docFreqs = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            Term term = new Term(fieldName, tokens[i]);
+            postings[i] = reader.postings(term);
+            if (postings[i] == null || postings[i].size() == 0) {
+                //a token is not in the index, the phrase can't be either
+                return null;
+            }
+            if (!postings[i].hasPositions()) {
+                Logger.getInstance().error(String.format("field %s is not indexed with positions, phrases can't be searched", fieldName));
+                return null;
+            }
+            docFreqs[i] = reader.docFreq(term);
+        }
+        Similarity.SimScorer simScorer = reader.getSimilarity().scorer(reader.statistics(fieldName), docFreqs);
+        return new PhraseScorer(postings, slop, simScorer, reader.norms(fieldName));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(fieldName).append(":\"");
+        sb.append(String.join(" ", Arrays.asList(tokens))).append('"');
+        if (slop > 0) {
+            sb.append('~').append(slop);
+        }
+        return sb.toString();
+    }
+}
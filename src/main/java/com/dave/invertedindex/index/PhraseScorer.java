@@ -0,0 +1,192 @@
+package com.dave.invertedindex.index;
+
+import java.util.Arrays;
+
+/**
+ * Matches the documents where the tokens of a phrase appear close enough, scoring them as TermScorer does, with the
+ * frequency of the phrase instead of the term frequency.
+ *
+ * The documents with all the tokens are found by leapfrogging over the postings, the rarest one leading as in
+ * ConjunctionScorer. Then the positions of every token are read, shifted by its offset in the phrase: the tokens of an
+ * exact match end up at the same adjusted position, and the distance of a sloppy match is the difference between the
+ * highest and the lowest adjusted positions of its tokens.
+ *
+ * With slop, a token repeated in the phrase can match the same position twice
+ */
+public class PhraseScorer extends Scorer {
+
+    protected final PostingsCursor[] postings;
+
+    protected final PostingsCursor lead;
+
+    protected final int slop;
+
+    protected final Similarity.SimScorer simScorer;
+
+    protected final Norms norms;
+
+    //adjusted positions of every token in the current document
+    protected final int[][] positions;
+
+    protected final int[] sizes;
+
+    //for sloppy matches, next position to check of every token
+    protected final int[] upto;
+
+    protected float frequency;
+
+    /**
+     * @param postings cursors with positions, one per token of the phrase, in order
+     * @param slop max distance of a match
+     * @param simScorer scores the frequency of the phrase
+     * @param norms norms of the field
+     */
+    public PhraseScorer(final PostingsCursor[] postings, final int slop, final Similarity.SimScorer simScorer,
+                        final Norms norms) {
+        this.postings = postings;
+        this.slop = slop;
+        this.simScorer = simScorer;
+        this.norms = norms;
+        PostingsCursor lead = postings[0];
+        for (PostingsCursor cursor : postings) {
+            if (cursor.size() < lead.size()) {
+                lead = cursor;
+            }
+        }
+        this.lead = lead;
+        this.positions = new int[postings.length][8];
+        this.sizes = new int[postings.length];
+        this.upto = new int[postings.length];
+    }
+
+    @Override
+    public int docId() {
+        return lead.docId();
+    }
+
+    @Override
+    public int nextDoc() {
+        return doNext(lead.nextDoc());
+    }
+
+    @Override
+    public int advance(final int target) {
+        return doNext(lead.advance(target));
+    }
+
+    /**
+     * @param docId candidate document, where the leader is
+     * @return first document from the candidate where the phrase is
+     */
+    protected int doNext(int docId) {
+        candidates:
+        while (docId != NO_MORE_DOCS) {
+            for (PostingsCursor cursor : postings) {
+                int otherDocId = cursor.docId();
+                if (otherDocId < docId) {
+                    otherDocId = cursor.advance(docId);
+                }
+                if (otherDocId > docId) {
+                    docId = lead.advance(otherDocId);
+                    continue candidates;
+                }
+            }
+            //all the tokens are in the document, check whether they are close enough
+            frequency = phraseFrequency();
+            if (frequency > 0) {
+                return docId;
+            }
+            docId = lead.nextDoc();
+        }
+        return NO_MORE_DOCS;
+    }
+
+    /**
+     * reads the positions of every token in the current document
+     * @return frequency of the phrase in the current document, 0 if it's not there
+     */
+    protected float phraseFrequency() {
+        for (int i = 0; i < postings.length; i++) {
+            int termFrequency = postings[i].termFrequency();
+            if (positions[i].length < termFrequency) {
+                positions[i] = new int[Math.max(termFrequency, positions[i].length << 1)];
+            }
+            for (int j = 0; j < termFrequency; j++) {
+                positions[i][j] = postings[i].nextPosition() - i;
+            }
+            sizes[i] = termFrequency;
+        }
+        return slop == 0 ? exactFrequency() : sloppyFrequency();
+    }
+
+    /**
+     * @return number of adjusted positions shared by all the tokens
+     */
+    protected float exactFrequency() {
+        int frequency = 0;
+        int[] first = positions[0];
+        Arrays.fill(upto, 0);
+        candidates:
+        for (int j = 0; j < sizes[0]; j++) {
+            int position = first[j];
+            for (int i = 1; i < postings.length; i++) {
+                int k = upto[i];
+                while (k < sizes[i] && positions[i][k] < position) {
+                    k++;
+                }
+                upto[i] = k;
+                if (k == sizes[i]) {
+                    //no more positions of this token, no more matches
+                    break candidates;
+                }
+                if (positions[i][k] != position) {
+                    continue candidates;
+                }
+            }
+            frequency++;
+        }
+        return frequency;
+    }
+
+    /**
+     * sweeps the adjusted positions in order, the window spanning the current one of every token is a match if
+     * it's not wider than the slop. Then the token at the lowest position moves to its next one
+     * @return sum of 1/(1 + distance) for every match
+     */
+    protected float sloppyFrequency() {
+        float frequency = 0;
+        Arrays.fill(upto, 0);
+        while (true) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minToken = 0;
+            for (int i = 0; i < postings.length; i++) {
+                int position = positions[i][upto[i]];
+                if (position < min) {
+                    min = position;
+                    minToken = i;
+                }
+                if (position > max) {
+                    max = position;
+                }
+            }
+            int distance = max - min;
+            if (distance <= slop) {
+                frequency += 1.0f / (1 + distance);
+            }
+            if (++upto[minToken] == sizes[minToken]) {
+                return frequency;
+            }
+        }
+    }
+
+    @Override
+    public float score() {
+        return simScorer.score(frequency, norms.encodedNorm(lead.docId()));
+    }
+
+    @Override
+    public long cost() {
+        return lead.size();
+    }
+}
@@ -0,0 +1,96 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Iterates over the postings of a term, in order of document id, without creating any object per posting.
+ * The cursor starts positioned before the first posting, so nextDoc() has to be called before reading any value
+ *
+ *  PostingsCursor cursor = postingsList.cursor();
+ *  while (cursor.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+ *      cursor.docId(); cursor.termFrequency();
+ *  }
+ *
+ * Postings can be read from a PostingsList, or in place from the pages where they are being indexed
+ *
+ * For fields indexed with positions, the positions of the term in the current document are read with nextPosition,
+ * in increasing order
+ *
+ * Encoded postings can be split in blocks with the impact of every block, so scorers can bound the scores of a block
+ * before reading it, see advanceShallow
+ */
+public abstract class PostingsCursor {
+
+    /**
+     * returned by nextDoc when the end of the list is reached
+     */
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * move the cursor to the next posting
+     * @return id of the next document, or NO_MORE_DOCS if there are no more postings
+     */
+    public abstract int nextDoc();
+
+    /**
+     * move the cursor to the first posting whose document is target or after it. This implementation reads the
+     * postings one by one, subclasses can skip them
+     * @param target a document id greater than the current one
+     * @return id of the document, or NO_MORE_DOCS if there are no more postings
+     */
+    public int advance(final int target) {
+        int docId;
+        while ((docId = nextDoc()) < target) {
+            //postings before target are skipped
+        }
+        return docId;
+    }
+
+    /**
+     * @return id of the document at the current position, -1 before the first call to nextDoc
+     */
+    public abstract int docId();
+
+    /**
+     * @return term frequency in the document at the current position
+     */
+    public abstract int termFrequency();
+
+    /**
+     * @return number of postings being iterated
+     */
+    public abstract int size();
+
+    /**
+     * @return true if the postings have the positions of the term in the documents
+     */
+    public boolean hasPositions() {
+        return false;
+    }
+
+    /**
+     * read the next position of the term in the current document, it can be called as many times as its term
+     * frequency. Positions not read are skipped when the cursor moves to other document
+     * @return the position
+     */
+    public int nextPosition() {
+        throw new UnsupportedOperationException("postings have no positions");
+    }
+
+    /**
+     * find the block of postings containing target, without moving the cursor, so its impact can be read. Postings
+     * are in a single block by default, only encoded postings are split
+     * @param target a document id not lower than the current one
+     * @return last document id of the block, NO_MORE_DOCS if the postings are not split in blocks or there are no
+     * postings from target
+     */
+    public int advanceShallow(final int target) {
+        return NO_MORE_DOCS;
+    }
+
+    /**
+     * @return impact of the block found by the last call to advanceShallow, null if the postings are not split
+     * in blocks
+     */
+    public Impact blockImpact() {
+        return null;
+    }
+}
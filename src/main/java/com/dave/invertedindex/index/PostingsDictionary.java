@@ -1,151 +1,608 @@
 package com.dave.invertedindex.index;
 
 import com.dave.invertedindex.document.Term;
+import com.dave.invertedindex.util.RamUsage;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class maintains the inverted index data structure
- * To be more efficient at search, the dictionary is splited in small blocks, Every of the blocks will
- * be saved to disk as a single file. Thus, is not necessary reloading the whole index to search for a single term, but
- * only the file containing the searched term
+ * Terms indexed in memory are kept in a TermsHash, which stores terms and postings in big byte pages instead of
+ * creating objects for every term and posting. Before they are written to disk, or merged with other dictionary, they
+ * are moved to a map with their postings lists. The terms
+ * already written are kept in a sorted TermDictionary, which maps every term to the pointer where the Directory
+ * stores its postings. Thus, is not necessary reloading the whole index to search for a single term, but
+ * only the postings of the searched term, and looking up a term which is not in the index doesn't need any disk access
+ *
+ * By default the dictionary can be only used by a single thread. In concurrent mode, there's no TermsHash, terms are
+ * kept in a ConcurrentHashMap and every postings list is locked while a posting is appended to it, so several threads
+ * can add documents at the same time; documents have to be added with mergePostings in this mode
  */
 public class PostingsDictionary {
 
     /**
-     * Terms are mapped to blocks, using the first 3 digits of the string's hash code
-     * For every block of terms,  keep a map with Term as key and Postings list as value.
-     * In a terms-postings list,for every indexed Term we keep a list of Postings
+     * For every term indexed in memory and still not written to disk, keep its Postings list
      */
-    protected final HashMap<String, HashMap<String, List<Posting>>> postingsBlocksByTermKey = new HashMap<>();
+    protected final Map<String, PostingsList> postingsByTerm;
 
+    /**
+     * terms being indexed by addToken, null in concurrent mode
+     */
+    protected final TermsHash termsHash;
+
+    /**
+     * can several threads add terms at the same time?
+     */
+    protected final boolean concurrent;
+
+    /**
+     * are the positions of the terms kept?
+     */
+    protected volatile boolean positions = false;
+
+    /**
+     * sorted dictionary of the terms written to disk
+     */
+    protected TermDictionary termDictionary = FrontCodedTermDictionary.empty();
+
+    /**
+     * postings lists that have been read from disk. Concurrent, since the postings of several terms can be read at
+     * the same time by a search
+     */
+    protected final Map<String, PostingsList> loadedPostings = new ConcurrentHashMap<>();
+
+    /**
+     * blocks of postings that have been read from disk, for directories which read several terms at once
+     */
+    protected final Set<Long> loadedBlocks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * estimated memory used by the terms and postings indexed in memory
+     */
+    protected final LongAdder ramBytesUsed = new LongAdder();
+
+    /**
+     * statistics of the documents indexed in memory, the ones of the documents written are in the term dictionary
+     */
+    protected final LongAdder docCount = new LongAdder();
+
+    protected final LongAdder sumTotalTermFreq = new LongAdder();
+
+    public PostingsDictionary() {
+        this(false);
+    }
+
+    /**
+     * @param concurrent whether several threads will add terms at the same time
+     */
+    public PostingsDictionary(final boolean concurrent) {
+        this(concurrent, false);
+    }
+
+    /**
+     * @param concurrent whether several threads will add terms at the same time
+     * @param offHeap whether postings are kept in direct memory while they are indexed, not valid in concurrent mode
+     */
+    public PostingsDictionary(final boolean concurrent, final boolean offHeap) {
+        this.concurrent = concurrent;
+        this.postingsByTerm = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.termsHash = concurrent ? null : new TermsHash(offHeap);
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public boolean hasPositions() {
+        return positions;
+    }
+
+    /**
+     * keep the positions of the terms in the documents. It has to be set before adding any term, since all the
+     * postings of a field must have positions to be searched by phrase
+     * @param positions true to keep positions
+     */
+    public void setPositions(final boolean positions) {
+        if (positions == this.positions) {
+            return;
+        }
+        if (!this.postingsByTerm.isEmpty() || (termsHash != null && termsHash.size() > 0)) {
+            throw new IllegalStateException("positions can't be enabled or disabled once terms have been added");
+        }
+        if (termsHash != null) {
+            termsHash.setPositions(positions);
+        }
+        this.positions = positions;
+    }
+
+    /**
+     * @return estimated memory, in bytes, used by the terms and postings indexed in memory
+     */
+    public long ramBytesUsed() {
+        long bytes = ramBytesUsed.sum();
+        if (termsHash != null) {
+            bytes += termsHash.ramBytesUsed();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return estimated memory used by a new term and its empty postings list
+     */
+    protected static long termBytes(final String term) {
+        return RamUsage.MAP_ENTRY + RamUsage.sizeOf(term) + RamUsage.POSTINGS_LIST;
+    }
 
     /**
-     * Get postings lists for a term
-     * 1. Get the block
-     * 2. Search in the block for the term and get its postings
+     * Get postings lists for a term, first from the terms indexed in memory, then from the ones read from disk
      * @param term term that is being searched
      * @return
      */
-    public LinkedList<Posting> getPostingsList(final String term) {
-        String termKey = getKeyForTerm(term);
-        HashMap<String, List<Posting>> block = this.getPostingsBlock(termKey);
+    public PostingsList getPostingsList(final String term) {
+        PostingsList postingsList = this.postingsByTerm.get(term);
+        int termId = termsHash == null ? -1 : termsHash.find(term);
+        if (termId >= 0) {
+            //postings still in the TermsHash go after the ones already moved to the map
+            PostingsList pending = termsHash.postings(termId);
+            if (postingsList == null) {
+                return pending;
+            }
+            PostingsList all = new PostingsList(postingsList.size() + pending.size(), positions);
+            all.addAll(postingsList);
+            all.addAll(pending);
+            return all;
+        }
+        if (postingsList == null) {
+            postingsList = this.loadedPostings.get(term);
+        }
+        return postingsList;
+    }
+
+    /**
+     * Get a cursor over the postings of a term indexed in memory, the ones written are read by the Directory.
+     * Postings still in the TermsHash are read in place, without copying them
+     * @param term term that is being searched
+     * @return a cursor, or null if the term has no postings in memory
+     */
+    public PostingsCursor cursor(final String term) {
+        int termId = termsHash == null ? -1 : termsHash.find(term);
+        PostingsList postingsList = this.postingsByTerm.get(term);
+        if (termId >= 0 && postingsList == null) {
+            return termsHash.cursor(termId);
+        }
+        if (termId < 0) {
+            return postingsList == null ? null : postingsList.cursor();
+        }
+        //postings both in the map and in the TermsHash are copied in a single list
+        return getPostingsList(term).cursor();
+    }
 
-        //lookup in the termsPostings list and return the postings for this term
-        return (LinkedList<Posting>)block.get(term);
+    /**
+     * @param term a term
+     * @return its postings read from disk, null if they haven't been read or the term has none
+     */
+    public PostingsList getLoadedPostingsList(final String term) {
+        return this.loadedPostings.get(term);
     }
 
     /**
-     * Add a posting list to its correspondent block
-     * @param term term being indexed, used to resolve the key for the block
+     * Add a posting list to the terms indexed in memory
+     * @param term term being indexed
      * @param postings list of Postings
      */
-    public void addPostingsList(final String term, final List<Posting> postings) {
-        String termKey = getKeyForTerm(term);
-        HashMap<String, List<Posting>> block = this.getPostingsBlock(termKey);
-        block.put(term, postings);
+    public void addPostingsList(final String term, final PostingsList postings) {
+        this.postingsByTerm.put(term, postings);
     }
 
     /**
-     * get the block where this term is mapped,
-     * If block is not yet created, add a new one
-     * @param termKey key where this term is  mapped
-     * @return a map containing the postings list for this block
+     * get the terms indexed in memory, with their postings lists
+     * @return
      */
-    public HashMap<String, List<Posting>> getPostingsBlock(final String termKey) {
-        //if there's still no data in this block, create a new map and add it to postingsTermsByKey
-        HashMap<String, List<Posting>> postingsByKey = this.postingsBlocksByTermKey.computeIfAbsent(termKey, k -> new HashMap<>());
-        return postingsByKey;
+    public Map<String, PostingsList> getPostingsByTerm() {
+        freeze();
+        return this.postingsByTerm;
     }
 
     /**
-     * get the dictionary containing all blocks of postings lists
-     * @return
+     * move the terms in the TermsHash to the map, with their postings lists. TermsHash keeps its memory, to be reused
+     * by the next documents
+     */
+    protected void freeze() {
+        if (termsHash == null || termsHash.size() == 0) {
+            return;
+        }
+        for (int termId = 0; termId < termsHash.size(); termId++) {
+            String term = termsHash.term(termId);
+            PostingsList postings = termsHash.postings(termId);
+            PostingsList postingsList = this.postingsByTerm.get(term);
+            if (postingsList == null) {
+                addPostingsList(term, postings);
+                ramBytesUsed.add(termBytes(term));
+            } else {
+                postingsList.addAll(postings);
+            }
+            ramBytesUsed.add((long) RamUsage.POSTING * postings.size() + 4L * postings.positionsSize());
+        }
+        termsHash.reset();
+    }
+
+    /**
+     * @return the terms indexed in memory, sorted in dictionary order
+     */
+    public List<String> sortedTerms() {
+        freeze();
+        List<String> terms = new ArrayList<>(this.postingsByTerm.keySet());
+        terms.sort(TermDictionary::compare);
+        return terms;
+    }
+
+    /**
+     * @param prefix prefix of the terms, empty for all the terms
+     * @return the terms starting with prefix, both the ones written and the ones indexed in memory, sorted in
+     * dictionary order. Terms written are found in their range of the TermDictionary, without reading the others
+     */
+    public List<String> terms(final String prefix) {
+        TreeSet<String> terms = new TreeSet<>(TermDictionary::compare);
+        //terms with a prefix are all together in dictionary order, from the prefix itself
+        TermsEnum written = termDictionary.range(prefix, true, null, false);
+        while (written.next() && written.term().startsWith(prefix)) {
+            terms.add(written.term());
+        }
+        for (String term : memoryTerms()) {
+            if (term.startsWith(prefix)) {
+                terms.add(term);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * @param automaton automaton accepting the terms
+     * @return the terms accepted, both the ones written and the ones indexed in memory, sorted in dictionary order.
+     * Terms written are intersected with the automaton, which skips the ranges of terms it can't accept
      */
-    public HashMap<String, HashMap<String, List<Posting>>> getPostingsBlocksDictionary() {
-        return this.postingsBlocksByTermKey;
+    public List<String> terms(final LevenshteinAutomaton automaton) {
+        TreeSet<String> terms = new TreeSet<>(TermDictionary::compare);
+        terms.addAll(automaton.intersect(termDictionary));
+        //terms in memory are not sorted, but they are at most as many as fit in the RAM buffer
+        for (String term : memoryTerms()) {
+            if (automaton.accepts(term)) {
+                terms.add(term);
+            }
+        }
+        return new ArrayList<>(terms);
     }
 
     /**
-     * use the 3 first digits of hash code to map terms to blocks
+     * @return the terms indexed in memory, in no particular order
+     */
+    protected List<String> memoryTerms() {
+        List<String> terms = new ArrayList<>(this.postingsByTerm.keySet());
+        if (termsHash != null) {
+            for (int termId = 0; termId < termsHash.size(); termId++) {
+                terms.add(termsHash.term(termId));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * count a document in the statistics of the field
+     * @param fieldLength number of tokens of the field in the document
+     */
+    public void addStatistics(final int fieldLength) {
+        if (fieldLength > 0) {
+            docCount.increment();
+            sumTotalTermFreq.add(fieldLength);
+        }
+    }
+
+    /**
+     * @return statistics of the field, for the documents written and the ones in memory
+     */
+    public FieldStatistics getStatistics() {
+        return new FieldStatistics(termDictionary.docCount() + docCount.sum(),
+                termDictionary.sumTotalTermFreq() + sumTotalTermFreq.sum());
+    }
+
+    /**
+     * @param term a term
+     * @param norms norms of the field, to find the impact of the postings in memory
+     * @return bound of the postings of the term, written or in memory. Postings in memory are read to find it
+     */
+    public Impact impact(final String term, final Norms norms) {
+        Impact impact = termDictionary.impact(term);
+        PostingsList postingsList = this.postingsByTerm.get(term);
+        if (postingsList != null) {
+            impact = impact.merge(Impact.of(postingsList.cursor(), norms));
+        }
+        int termId = termsHash == null ? -1 : termsHash.find(term);
+        if (termId >= 0) {
+            impact = impact.merge(Impact.of(termsHash.cursor(termId), norms));
+        }
+        return impact;
+    }
+
+    /**
+     * @param term a term
+     * @return number of documents containing the term, written or in memory
+     */
+    public int docFreq(final String term) {
+        int docFreq = termDictionary.docFreq(term);
+        PostingsList postingsList = this.postingsByTerm.get(term);
+        if (postingsList != null) {
+            docFreq += postingsList.size();
+        }
+        int termId = termsHash == null ? -1 : termsHash.find(term);
+        if (termId >= 0) {
+            docFreq += termsHash.docFreq(termId);
+        }
+        return docFreq;
+    }
+
+    public TermDictionary getTermDictionary() {
+        return termDictionary;
+    }
+
+    public void setTermDictionary(TermDictionary termDictionary) {
+        this.termDictionary = termDictionary;
+    }
+
+    /**
+     * replace the term dictionary with the one built by mergeTermDictionary, once it has been written with the
+     * postings in memory. Terms, postings and statistics in memory are released, since the new dictionary counts
+     * them already, otherwise they would be counted twice and written again by the next flush. Postings read from
+     * disk are dropped too, they may have grown
+     * @param termDictionary dictionary written
+     */
+    public void setWrittenTermDictionary(final TermDictionary termDictionary) {
+        this.termDictionary = termDictionary;
+        clear();
+    }
+
+    /**
+     * drop the postings read from disk, after they have been changed there
+     */
+    public void clearLoadedPostings() {
+        this.loadedPostings.clear();
+        this.loadedBlocks.clear();
+    }
+
+    /**
+     * keep a postings list read from disk
      * @param term
-     * @return the key
+     * @param postings
      */
-    public String getKeyForTerm(final String term) {
-        int hash = Math.abs(term.hashCode()); //hashes can be negative!! take absolute value
-        if(Integer.toString(hash).length() < 3) return "000";
-        return Integer.toString(hash).substring(0, 3);
+    public void addLoadedPostingsList(final String term, final PostingsList postings) {
+        this.loadedPostings.put(term, postings);
+    }
+
+    public boolean isBlockLoaded(final long block) {
+        return this.loadedBlocks.contains(block);
+    }
+
+    public void setBlockLoaded(final long block) {
+        this.loadedBlocks.add(block);
+    }
+
+    /**
+     * build the dictionary of all terms, the ones already written to disk plus the ones indexed in memory
+     * terms already written keep their pointer, and the new terms get the next free pointers, so the postings
+     * already written don't need to be moved. Pointers go from 0 to the number of terms - 1
+     * Statistics of the terms and of the field are the ones written plus the ones of the documents in memory, so once
+     * it's written, the postings in memory have to be released with setWrittenTermDictionary
+     * @param norms norms of the field, of the documents in memory at least, to find the impacts of the terms
+     * @return the new dictionary
+     */
+    public FrontCodedTermDictionary mergeTermDictionary(final Norms norms) {
+        FrontCodedTermDictionary.Builder builder = new FrontCodedTermDictionary.Builder();
+        long nextPointer = this.termDictionary.size();
+        TermsEnum existing = this.termDictionary.iterator();
+        String existingTerm = existing.next() ? existing.term() : null;
+        for (String term : sortedTerms()) {
+            PostingsList postings = this.postingsByTerm.get(term);
+            Impact impact = Impact.of(postings.cursor(), norms);
+            //copy the written terms that go before this one
+            int cmp = -1;
+            while (existingTerm != null && (cmp = TermDictionary.compare(existingTerm, term)) < 0) {
+                builder.add(existingTerm, existing.pointer(), existing.docFreq(), existing.impact());
+                existingTerm = existing.next() ? existing.term() : null;
+            }
+            if (existingTerm != null && cmp == 0) {
+                //term was already written, postings will be appended to the existing ones
+                builder.add(existingTerm, existing.pointer(), existing.docFreq() + postings.size(),
+                        existing.impact().merge(impact));
+                existingTerm = existing.next() ? existing.term() : null;
+            } else {
+                builder.add(term, nextPointer++, postings.size(), impact);
+            }
+        }
+        while (existingTerm != null) {
+            builder.add(existingTerm, existing.pointer(), existing.docFreq(), existing.impact());
+            existingTerm = existing.next() ? existing.term() : null;
+        }
+        FieldStatistics statistics = getStatistics();
+        return builder.statistics(statistics.docCount(), statistics.sumTotalTermFreq()).build();
     }
 
     /**
      * add a single term to the index dictionary
-     * 1. create postings list if this is the first occurrence of the term
-     * 1. add documentId to the postings list, if not present
-     * 2. increase term frequency if do we have already a posting
      * @param documentId
      * @param term
+     * @return true when the term was just added to the dictionary
+     */
+    public boolean addTerm(final int documentId, final Term term) {
+        return addToken(documentId, term.getToken());
+    }
+
+    /**
+     * add an occurrence of a term to the index dictionary
+     * 1. give the term an id if this is its first occurrence
+     * 2. add a posting for documentId, if this is the first occurrence in the document
+     * 3. increase term frequency if do we have already a posting
+     * if there's already a posting of this term for this document, it has to be the last one added, since we are
+     * working sequentially and single thread. Not valid in concurrent mode, use mergePostings instead
+     * @param documentId document id, greater than or equal to the ones already added
+     * @param token the term
      * @return true when the term was just added to the dictionary, ie, there was still no postings list for it
      */
-    public boolean addTerm(final String documentId, final Term term) {
-        //check if there is any postings list for this term,
-        LinkedList<Posting> postingsList = getPostingsList(term.getToken());
-        if (postingsList != null) {
-            //if there's already a posting of this term for this document, it has to be the last one added
-            //to the posting list, since we are working sequentially and single thread
-            //in other case, we would need to traverse the list to find if there's a posting with this docId
-            //... or we should first invert every document and then merge with the postings dictionary
-            Posting posting = postingsList.getLast();
-            if(posting.getDocumentId() != documentId) {
-                //add new posting element to list if this is the first occurrence in this document
-                posting = new Posting(documentId);
-                postingsList.add(posting);
-            }
-            //increase term frequency
-            posting.addOccurrence();
-            return false;
+    public boolean addToken(final int documentId, final CharSequence token) {
+        return addToken(documentId, token, 0);
+    }
+
+    /**
+     * add an occurrence of a term to the index dictionary, at a position of the document
+     * @param documentId document id, greater than or equal to the ones already added
+     * @param token the term
+     * @param position position of the term in the document, ignored if positions are not kept
+     * @return true when the term was just added to the dictionary
+     */
+    public boolean addToken(final int documentId, final CharSequence token, final int position) {
+        if (termsHash == null) {
+            throw new IllegalStateException("terms can't be added one by one in concurrent mode");
+        }
+        if (!termsHash.accepts(token)) {
+            return addLongToken(documentId, token.toString(), position);
+        }
+        return termsHash.add(documentId, token, position);
+    }
+
+    /**
+     * add an occurrence of a term too long for the terms hash, ie, the value of a big untokenized field. It's kept
+     * in postingsByTerm, which is read together with the hash, same as addToken otherwise
+     * @return true when the term was just added to the dictionary
+     */
+    protected boolean addLongToken(final int documentId, final String term, final int position) {
+        PostingsList postingsList = postingsByTerm.get(term);
+        boolean isNew = postingsList == null;
+        if (isNew) {
+            postingsList = positions ? new PostingsList(PostingsList.INITIAL_CAPACITY, true) : new PostingsList();
+            postingsByTerm.put(term, postingsList);
+            ramBytesUsed.add(termBytes(term));
+        }
+        if (postingsList.hasPositions()) {
+            boolean newPosting = postingsList.lastDocId() != documentId;
+            postingsList.addPosition(documentId, position);
+            ramBytesUsed.add(newPosting ? RamUsage.POSTING + 4L : 4L);
+        } else if (postingsList.lastDocId() == documentId) {
+            postingsList.addOccurrence();
+        } else {
+            postingsList.add(documentId, 1);
+            ramBytesUsed.add(RamUsage.POSTING);
         }
-        postingsList = new LinkedList<>();
-        //add posting element to list
-        Posting posting = new Posting(documentId);
-        posting.addOccurrence();
-        postingsList.add(posting);
-        //set the postings list in the hash map
-        addPostingsList(term.getToken(), postingsList);
-        return true;
+        return isNew;
     }
 
 
 
-    public boolean removeTerm(final String documentId, final Term term) {
-        LinkedList<Posting> postingsList = getPostingsList(term.getToken());
+    /**
+     * move the in-memory postings of other dictionary to this one. Lists of new terms are taken as they are,
+     * so other dictionary must not be used afterwards
+     * @param other dictionary of the same field, indexed by a different buffer
+     * @return number of new terms added to the dictionary
+     */
+    public int merge(final PostingsDictionary other) {
+        if (other.positions) {
+            setPositions(true);
+        }
+        freeze();
+        int count = 0;
+        for (Map.Entry<String, PostingsList> entry : other.getPostingsByTerm().entrySet()) {
+            PostingsList postingsList = this.postingsByTerm.get(entry.getKey());
+            if (postingsList == null) {
+                addPostingsList(entry.getKey(), entry.getValue());
+                count++;
+            } else {
+                postingsList.merge(entry.getValue());
+            }
+        }
+        ramBytesUsed.add(other.ramBytesUsed());
+        docCount.add(other.docCount.sumThenReset());
+        sumTotalTermFreq.add(other.sumTotalTermFreq.sumThenReset());
+        return count;
+    }
+
+    public boolean removeTerm(final int documentId, final Term term) {
+        freeze();
+        PostingsList postingsList = this.postingsByTerm.get(term.getToken());
         if (postingsList != null) {
-            return postingsList.removeIf(it -> it.getDocumentId().equals(documentId));
+            return postingsList.remove(documentId);
         }
         return false;
     }
 
     /**
-     *
+     * add the postings of a whole document, once its terms have been counted. Safe in concurrent mode, since
+     * there's a single posting per term and document, and it's appended with the postings list locked
      * @param documentId document id
      * @param inverted inverted postings list of the document
      * @return number of new terms added to the dictionary
      */
-    protected int mergePostings(final String documentId, final Map<String, Short> inverted) {
+    protected int mergePostings(final int documentId, final Map<String, Integer> inverted) {
         int count = 0;
-        for(Map.Entry entry : inverted.entrySet()) {
-            String term = (String)entry.getKey();
-            Short tf = (Short)entry.getValue();
-            Posting posting = new Posting(documentId, tf);
+        for(Map.Entry<String, Integer> entry : inverted.entrySet()) {
+            String term = entry.getKey();
             //check if there is any postings list for this term,
-            LinkedList<Posting> postingsList = getPostingsList(term);
+            PostingsList postingsList = this.postingsByTerm.get(term);
             if (postingsList == null) {
-                //if not, create a new list and add term to dictionary
-                postingsList = new LinkedList<>();
-                addPostingsList(term, postingsList);
-                count++;
+                //if not, create a new list and add term to dictionary, unless other thread just did it
+                PostingsList created = new PostingsList();
+                postingsList = this.postingsByTerm.putIfAbsent(term, created);
+                if (postingsList == null) {
+                    postingsList = created;
+                    count++;
+                    ramBytesUsed.add(termBytes(term));
+                }
+            }
+            synchronized (postingsList) {
+                postingsList.add(documentId, entry.getValue());
             }
-            postingsList.add(posting);
         }
+        ramBytesUsed.add((long) RamUsage.POSTING * inverted.size());
         return count;
     }
-}
\ No newline at end of file
+
+    /**
+     * add the postings, with positions, of a whole document. As mergePostings, safe in concurrent mode
+     * @param inverted inverted postings list of the document, a list with a single posting for every term
+     * @return number of new terms added to the dictionary
+     */
+    protected int mergePositions(final Map<String, PostingsList> inverted) {
+        int count = 0;
+        for(Map.Entry<String, PostingsList> entry : inverted.entrySet()) {
+            String term = entry.getKey();
+            PostingsList postingsList = this.postingsByTerm.get(term);
+            if (postingsList == null) {
+                PostingsList created = new PostingsList(PostingsList.INITIAL_CAPACITY, true);
+                postingsList = this.postingsByTerm.putIfAbsent(term, created);
+                if (postingsList == null) {
+                    postingsList = created;
+                    count++;
+                    ramBytesUsed.add(termBytes(term));
+                }
+            }
+            synchronized (postingsList) {
+                postingsList.addAll(entry.getValue());
+            }
+            ramBytesUsed.add(RamUsage.POSTING + 4L * entry.getValue().positionsSize());
+        }
+        return count;
+    }
+
+    /**
+     * release the terms and postings in memory, keeping the dictionary of the terms written to disk. Memory of the
+     * TermsHash is kept to be reused
+     */
+    public void clear() {
+        if (termsHash != null) {
+            termsHash.reset();
+        }
+        this.postingsByTerm.clear();
+        clearLoadedPostings();
+        this.ramBytesUsed.reset();
+        this.docCount.reset();
+        this.sumTotalTermFreq.reset();
+    }
+}
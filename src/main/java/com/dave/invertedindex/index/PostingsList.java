@@ -0,0 +1,358 @@
+package com.dave.invertedindex.index;
+
+import java.util.Arrays;
+
+/**
+ * Postings list of a single term, ie, the list of documents where the term occurs and how many times it occurs.
+ * Rather than keeping one Posting object per occurrence, postings are kept in two parallel arrays of primitives,
+ * which are grown by doubling their capacity when they are full. Postings are kept sorted by document id, since
+ * documents are added to the index with increasing ids. When several threads are indexing, documents can be
+ * appended slightly out of order, in that case the list is sorted again before it's read
+ *
+ * A list can also keep the positions of the term inside every document, for the fields indexed with positions.
+ * They are kept in a single array, in the order they are added, and every posting has the offset of its first
+ * position, so sorting or removing postings doesn't move any position
+ */
+public class PostingsList {
+
+    protected static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * ids of the documents where the term occurs
+     */
+    protected int[] docIds;
+
+    /**
+     * number of times that the term occurs in the document at the same position in docIds
+     */
+    protected int[] termFrequencies;
+
+    /**
+     * number of postings in the list
+     */
+    protected int size = 0;
+
+    /**
+     * false when some posting has been appended out of order
+     */
+    protected boolean sorted = true;
+
+    /**
+     * positions of the term in the documents, null if the list has no positions
+     */
+    protected int[] positions;
+
+    /**
+     * offset in positions of the first position of the posting at the same position in docIds
+     */
+    protected int[] positionStarts;
+
+    /**
+     * number of positions in the list
+     */
+    protected int positionsSize = 0;
+
+    public PostingsList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public PostingsList(final int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity initial number of postings
+     * @param withPositions true to keep the positions of the term in every document
+     */
+    public PostingsList(final int capacity, final boolean withPositions) {
+        this.docIds = new int[Math.max(capacity, 1)];
+        this.termFrequencies = new int[Math.max(capacity, 1)];
+        if (withPositions) {
+            this.positions = new int[Math.max(capacity, 1)];
+            this.positionStarts = new int[Math.max(capacity, 1)];
+        }
+    }
+
+    public boolean hasPositions() {
+        return positions != null;
+    }
+
+    /**
+     * @return number of positions kept, 0 if the list has no positions
+     */
+    public int positionsSize() {
+        return positionsSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int docId(final int index) {
+        return docIds[index];
+    }
+
+    public int termFrequency(final int index) {
+        return termFrequencies[index];
+    }
+
+    /**
+     * @return id of the last document added to the list, -1 if the list is empty
+     */
+    public int lastDocId() {
+        return size == 0 ? -1 : docIds[size - 1];
+    }
+
+    /**
+     * @param index position of a posting in the list
+     * @param i number of the occurrence in the document, from 0 to its term frequency - 1
+     * @return position of the occurrence in the document
+     */
+    public int position(final int index, final int i) {
+        return positions[positionStarts[index] + i];
+    }
+
+    /**
+     * append a new posting at the end of the list
+     * @param docId document id, has to be greater than the last one in the list
+     * @param termFrequency number of occurrences of the term in the document
+     */
+    public void add(final int docId, final int termFrequency) {
+        if (positions != null) {
+            throw new IllegalStateException("postings with positions need the positions of the term");
+        }
+        append(docId, termFrequency);
+    }
+
+    /**
+     * append a new posting with the positions of the term in the document
+     * @param docId document id, has to be greater than the last one in the list
+     * @param termFrequency number of occurrences of the term in the document
+     * @param positions array with the positions, in increasing order
+     * @param offset where the positions start in the array
+     */
+    public void add(final int docId, final int termFrequency, final int[] positions, final int offset) {
+        if (this.positions == null) {
+            throw new IllegalStateException("postings list has no positions");
+        }
+        growPositions(positionsSize + termFrequency);
+        System.arraycopy(positions, offset, this.positions, positionsSize, termFrequency);
+        //append may grow positionStarts, so it has to run before the array is read
+        int index = append(docId, termFrequency);
+        positionStarts[index] = positionsSize;
+        positionsSize += termFrequency;
+    }
+
+    /**
+     * add an occurrence of the term to the list, as a new posting if the document is not the last one
+     * @param docId document id, greater than or equal to the last one in the list
+     * @param position position of the term in the document, greater than the last one added for the document
+     */
+    public void addPosition(final int docId, final int position) {
+        if (this.positions == null) {
+            throw new IllegalStateException("postings list has no positions");
+        }
+        growPositions(positionsSize + 1);
+        if (size > 0 && docIds[size - 1] == docId) {
+            termFrequencies[size - 1]++;
+        } else {
+            int index = append(docId, 1);
+            positionStarts[index] = positionsSize;
+        }
+        positions[positionsSize++] = position;
+    }
+
+    /**
+     * @return index of the new posting
+     */
+    protected int append(final int docId, final int termFrequency) {
+        if (size == docIds.length) {
+            grow(size + 1);
+        }
+        if (size > 0 && docId < docIds[size - 1]) {
+            sorted = false;
+        }
+        docIds[size] = docId;
+        termFrequencies[size] = termFrequency;
+        return size++;
+    }
+
+    /**
+     * increase the term frequency of the last posting in the list, for lists without positions
+     */
+    public void addOccurrence() {
+        termFrequencies[size - 1]++;
+    }
+
+    /**
+     * append all the postings of other list, whose documents have to be greater than the ones in this list
+     * @param other postings list to append
+     */
+    public void addAll(final PostingsList other) {
+        ensureSorted();
+        other.ensureSorted();
+        if (size + other.size > docIds.length) {
+            grow(size + other.size);
+        }
+        if (size > 0 && other.size > 0 && other.docIds[0] < docIds[size - 1]) {
+            sorted = false;
+        }
+        System.arraycopy(other.docIds, 0, docIds, size, other.size);
+        System.arraycopy(other.termFrequencies, 0, termFrequencies, size, other.size);
+        if (positions != null) {
+            copyPositions(other, size);
+        }
+        size += other.size;
+    }
+
+    /**
+     * append the positions of other list, and point the postings copied from it, starting at index, to them
+     */
+    protected void copyPositions(final PostingsList other, final int index) {
+        if (other.positions == null) {
+            throw new IllegalArgumentException("can't add postings without positions to a list with positions");
+        }
+        growPositions(positionsSize + other.positionsSize);
+        System.arraycopy(other.positions, 0, positions, positionsSize, other.positionsSize);
+        for (int i = 0; i < other.size; i++) {
+            positionStarts[index + i] = other.positionStarts[i] + positionsSize;
+        }
+        positionsSize += other.positionsSize;
+    }
+
+    /**
+     * merge the postings of other list, whose documents can be interleaved with the ones in this list but
+     * not repeated. Used to join the postings indexed by different buffers
+     * @param other postings list to merge
+     */
+    public void merge(final PostingsList other) {
+        ensureSorted();
+        other.ensureSorted();
+        if (size == 0 || other.size == 0 || other.docIds[0] > docIds[size - 1]) {
+            addAll(other);
+            return;
+        }
+        int[] mergedIds = new int[Math.max(docIds.length, size + other.size)];
+        int[] mergedFrequencies = new int[mergedIds.length];
+        //positions of other list go after the ones of this list, only the offsets of the postings are merged
+        int[] mergedStarts = positions == null ? null : new int[mergedIds.length];
+        int shift = positionsSize;
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && docIds[i] < other.docIds[j])) {
+                mergedIds[k] = docIds[i];
+                mergedFrequencies[k] = termFrequencies[i];
+                if (mergedStarts != null) {
+                    mergedStarts[k] = positionStarts[i];
+                }
+                i++;
+            } else {
+                mergedIds[k] = other.docIds[j];
+                mergedFrequencies[k] = other.termFrequencies[j];
+                if (mergedStarts != null) {
+                    mergedStarts[k] = other.positionStarts[j] + shift;
+                }
+                j++;
+            }
+            k++;
+        }
+        if (mergedStarts != null) {
+            if (other.positions == null) {
+                throw new IllegalArgumentException("can't merge postings without positions to a list with positions");
+            }
+            growPositions(positionsSize + other.positionsSize);
+            System.arraycopy(other.positions, 0, positions, positionsSize, other.positionsSize);
+            positionsSize += other.positionsSize;
+            positionStarts = mergedStarts;
+        }
+        docIds = mergedIds;
+        termFrequencies = mergedFrequencies;
+        size = k;
+    }
+
+    /**
+     * remove the posting of the document, if any
+     * @param docId document id
+     * @return true if there was a posting for the document
+     */
+    public boolean remove(final int docId) {
+        ensureSorted();
+        int index = Arrays.binarySearch(docIds, 0, size, docId);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+        System.arraycopy(termFrequencies, index + 1, termFrequencies, index, size - index - 1);
+        if (positions != null) {
+            //positions of the document are left in the array, no posting points to them
+            System.arraycopy(positionStarts, index + 1, positionStarts, index, size - index - 1);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @return a new cursor positioned before the first posting
+     */
+    public PostingsCursor cursor() {
+        ensureSorted();
+        return new ListPostingsCursor(this);
+    }
+
+    /**
+     * sort the postings by document id, if they were appended out of order.
+     * Insertion sort is used, since postings are at most a few positions away from their place (as many as
+     * documents were being indexed at the same time), so it runs in nearly linear time
+     */
+    public void ensureSorted() {
+        if (sorted) {
+            return;
+        }
+        for (int i = 1; i < size; i++) {
+            int docId = docIds[i];
+            int tf = termFrequencies[i];
+            int start = positions == null ? 0 : positionStarts[i];
+            int j = i - 1;
+            while (j >= 0 && docIds[j] > docId) {
+                docIds[j + 1] = docIds[j];
+                termFrequencies[j + 1] = termFrequencies[j];
+                if (positions != null) {
+                    positionStarts[j + 1] = positionStarts[j];
+                }
+                j--;
+            }
+            docIds[j + 1] = docId;
+            termFrequencies[j + 1] = tf;
+            if (positions != null) {
+                positionStarts[j + 1] = start;
+            }
+        }
+        sorted = true;
+    }
+
+    /**
+     * double the capacity of the arrays, or more if that's still not enough
+     * @param minCapacity number of postings that have to fit
+     */
+    protected void grow(final int minCapacity) {
+        int capacity = Math.max(docIds.length << 1, minCapacity);
+        docIds = Arrays.copyOf(docIds, capacity);
+        termFrequencies = Arrays.copyOf(termFrequencies, capacity);
+        if (positionStarts != null) {
+            positionStarts = Arrays.copyOf(positionStarts, capacity);
+        }
+    }
+
+    /**
+     * @param minCapacity number of positions that have to fit
+     */
+    protected void growPositions(final int minCapacity) {
+        if (minCapacity > positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(positions.length << 1, minCapacity));
+        }
+    }
+}
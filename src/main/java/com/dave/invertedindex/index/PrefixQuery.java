@@ -0,0 +1,40 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Matches the documents containing any term of a field starting with a prefix
+ *
+ *  Query query = new PrefixQuery("body", "comp");
+ */
+public class PrefixQuery extends MultiTermQuery {
+
+    protected final String prefix;
+
+    /**
+     * @param fieldName name of the field
+     * @param prefix prefix of the terms, an empty prefix matches every term of the field
+     */
+    public PrefixQuery(final String fieldName, final String prefix) {
+        super(fieldName);
+        this.prefix = prefix;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    protected String prefix() {
+        return prefix;
+    }
+
+    @Override
+    protected boolean accept(final String term) {
+        //every term enumerated starts with the prefix
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return fieldName.concat(":").concat(prefix).concat("*");
+    }
+}
@@ -0,0 +1,57 @@
+package com.dave.invertedindex.index;
+
+import java.io.IOException;
+
+/**
+ * A query that can be run by IndexReader.search. It creates the scorer iterating over the matching documents
+ */
+public abstract class Query {
+
+    /**
+     * @param reader reader where the postings and norms are read from
+     * @return scorer of the matching documents, null if no document can match
+     */
+    protected abstract Scorer scorer(IndexReader reader) throws IOException, CorruptIndexException;
+
+    /**
+     * @param reader reader where the postings are read from
+     * @return iterator over the matching documents, for callers which never read the scores. By default the scorer,
+     * queries whose scorers do work to compute or bound the scores can return a cheaper one
+     */
+    protected Scorer matcher(final IndexReader reader) throws IOException, CorruptIndexException {
+        return scorer(reader);
+    }
+
+    /**
+     * @param reader reader where the postings are read from
+     * @return number of documents matching the query, counted without scoring them
+     */
+    protected int count(final IndexReader reader) throws IOException, CorruptIndexException {
+        Scorer matcher = matcher(reader);
+        if (matcher == null) {
+            return 0;
+        }
+        int count = 0;
+        while (matcher.nextDoc() != Scorer.NO_MORE_DOCS) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param reader reader where the postings are read from
+     * @return true if some document matches the query, it stops at the first one
+     */
+    protected boolean exists(final IndexReader reader) throws IOException, CorruptIndexException {
+        Scorer matcher = matcher(reader);
+        return matcher != null && matcher.nextDoc() != Scorer.NO_MORE_DOCS;
+    }
+
+    /**
+     * @return normalized form of the query, queries with the same key match the same documents with the same scores,
+     * so their results can be cached. By default the string of the query
+     */
+    protected String cacheKey() {
+        return toString();
+    }
+}
@@ -0,0 +1,226 @@
+package com.dave.invertedindex.index;
+
+import com.dave.invertedindex.util.RamUsage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the top hits of the last queries run by an IndexReader, so the most frequent queries are not scored again.
+ * Entries are keyed by the normalized query and the number of hits requested, and only keep the ids and scores of the
+ * hits, documents are still read when they are requested.
+ *
+ * The cache is bounded by number of entries and by estimated bytes, when it's full the least recently used entries are
+ * evicted. Every entry belongs to a generation of the Index, which changes whenever its data changes, ie, documents
+ * added or removed, the index flushed, or a new commit opened. As soon as the cache is used with a newer generation
+ * all its entries are dropped at once, and results computed on an older generation are never stored, so a search
+ * never gets hits from other data than the one it would read
+ *
+ * The cache can be shared by several threads
+ */
+public class QueryResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * estimated memory used by an entry, besides its key and hits
+     */
+    protected static final int ENTRY_BYTES = RamUsage.MAP_ENTRY + 2 * RamUsage.OBJECT_HEADER + 4 * RamUsage.REFERENCE
+            + 2 * RamUsage.ARRAY_HEADER + 4;
+
+    /**
+     * key of an entry: a query and the number of hits requested
+     */
+    protected static class Key {
+
+        protected final String query;
+
+        protected final int k;
+
+        protected Key(final String query, final int k) {
+            this.query = query;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return k == other.k && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + k;
+        }
+    }
+
+    /**
+     * the hits of a query, in parallel arrays, best first
+     */
+    protected static class Entry {
+
+        protected final int[] docIds;
+
+        protected final float[] scores;
+
+        protected final long bytes;
+
+        protected Entry(final int[] docIds, final float[] scores, final long bytes) {
+            this.docIds = docIds;
+            this.scores = scores;
+            this.bytes = bytes;
+        }
+    }
+
+    protected final int maxEntries;
+
+    protected final long maxBytes;
+
+    /**
+     * in access order, the eldest entry is the least recently used
+     */
+    protected final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * generation of the index the entries were computed on
+     */
+    protected long generation = -1;
+
+    protected long bytesUsed = 0;
+
+    protected final LongAdder hitCount = new LongAdder();
+
+    protected final LongAdder missCount = new LongAdder();
+
+    public QueryResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries max number of queries kept
+     * @param maxBytes max estimated memory used by the entries
+     */
+    public QueryResultCache(final int maxEntries, final long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("cache size must be positive: " + maxEntries + " entries, " + maxBytes + " bytes");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param query normalized query
+     * @param k number of hits requested
+     * @param generation current generation of the index
+     * @param index where the documents of the hits are read from when they are requested
+     * @return the hits cached, best first, or null if the query is not cached for this generation
+     */
+    public synchronized Hit[] get(final String query, final int k, final long generation, final Index index) {
+        advance(generation);
+        Entry entry = entries.get(new Key(query, k));
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        //hits are created for every search, they can be modified by whoever gets them
+        Hit[] hits = new Hit[entry.docIds.length];
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new Hit(entry.docIds[i], entry.scores[i], index);
+        }
+        return hits;
+    }
+
+    /**
+     * @param query normalized query
+     * @param k number of hits requested
+     * @param generation generation of the index when the search started
+     * @param hits the hits found, best first
+     */
+    public synchronized void put(final String query, final int k, final long generation, final Hit[] hits) {
+        if (generation < this.generation) {
+            //the index has changed while searching
+            return;
+        }
+        advance(generation);
+        Key key = new Key(query, k);
+        long bytes = ENTRY_BYTES + RamUsage.sizeOf(query) + 8L * hits.length;
+        if (bytes > maxBytes) {
+            return;
+        }
+        int[] docIds = new int[hits.length];
+        float[] scores = new float[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            docIds[i] = hits[i].docId();
+            scores[i] = hits[i].score();
+        }
+        Entry previous = entries.put(key, new Entry(docIds, scores, bytes));
+        if (previous != null) {
+            bytesUsed -= previous.bytes;
+        }
+        bytesUsed += bytes;
+        evict();
+    }
+
+    /**
+     * drop all the entries if they belong to an older generation than the given one
+     */
+    protected void advance(final long generation) {
+        if (generation > this.generation) {
+            entries.clear();
+            bytesUsed = 0;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * remove the least recently used entries until the cache is within its bounds
+     */
+    protected void evict() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytesUsed > maxBytes) && eldest.hasNext()) {
+            bytesUsed -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * remove all the entries
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytesUsed = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated memory used by the entries
+     */
+    public synchronized long ramBytesUsed() {
+        return bytesUsed;
+    }
+
+    /**
+     * @return number of searches answered by the cache
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return number of searches not found in the cache
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+}
@@ -0,0 +1,67 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Matches the documents of a required scorer which are not matched by an excluded one. The excluded scorer is only
+ * advanced to the documents of the required one
+ */
+public class ReqExclScorer extends Scorer {
+
+    protected final Scorer required;
+
+    protected final Scorer excluded;
+
+    public ReqExclScorer(final Scorer required, final Scorer excluded) {
+        this.required = required;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public int docId() {
+        return required.docId();
+    }
+
+    @Override
+    public int nextDoc() {
+        return toNonExcluded(required.nextDoc());
+    }
+
+    @Override
+    public int advance(final int target) {
+        return toNonExcluded(required.advance(target));
+    }
+
+    protected int toNonExcluded(int docId) {
+        while (docId != NO_MORE_DOCS) {
+            int excludedDocId = excluded.docId();
+            if (excludedDocId < docId) {
+                excludedDocId = excluded.advance(docId);
+            }
+            if (excludedDocId != docId) {
+                return docId;
+            }
+            docId = required.nextDoc();
+        }
+        return NO_MORE_DOCS;
+    }
+
+    @Override
+    public float score() {
+        return required.score();
+    }
+
+    @Override
+    public float maxScore() {
+        return required.maxScore();
+    }
+
+    @Override
+    public void setMinCompetitiveScore(final float minScore) {
+        //the score is the one of the required scorer
+        required.setMinCompetitiveScore(minScore);
+    }
+
+    @Override
+    public long cost() {
+        return required.cost();
+    }
+}
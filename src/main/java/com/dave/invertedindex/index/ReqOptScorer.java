@@ -0,0 +1,62 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Matches the documents of a required scorer, the optional one only adds its score to the documents it also matches.
+ * The optional scorer is only advanced to the documents of the required one
+ */
+public class ReqOptScorer extends Scorer {
+
+    protected final Scorer required;
+
+    protected final Scorer optional;
+
+    public ReqOptScorer(final Scorer required, final Scorer optional) {
+        this.required = required;
+        this.optional = optional;
+    }
+
+    @Override
+    public int docId() {
+        return required.docId();
+    }
+
+    @Override
+    public int nextDoc() {
+        return required.nextDoc();
+    }
+
+    @Override
+    public int advance(final int target) {
+        return required.advance(target);
+    }
+
+    @Override
+    public float score() {
+        int docId = required.docId();
+        float score = required.score();
+        int optionalDocId = optional.docId();
+        if (optionalDocId < docId) {
+            optionalDocId = optional.advance(docId);
+        }
+        if (optionalDocId == docId) {
+            score += optional.score();
+        }
+        return score;
+    }
+
+    @Override
+    public float maxScore() {
+        return required.maxScore() + optional.maxScore();
+    }
+
+    @Override
+    public void setMinCompetitiveScore(final float minScore) {
+        //the optional scorer adds at most its max score
+        required.setMinCompetitiveScore(minScore - optional.maxScore());
+    }
+
+    @Override
+    public long cost() {
+        return required.cost();
+    }
+}
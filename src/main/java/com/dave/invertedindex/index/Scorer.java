@@ -0,0 +1,71 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Iterates over the documents matched by a query, in order of document id, and scores them. As PostingsCursor, it
+ * starts positioned before the first document
+ */
+public abstract class Scorer {
+
+    /**
+     * returned by nextDoc and advance when there are no more documents
+     */
+    public static final int NO_MORE_DOCS = PostingsCursor.NO_MORE_DOCS;
+
+    /**
+     * @return id of the current document, -1 before the first call to nextDoc or advance
+     */
+    public abstract int docId();
+
+    /**
+     * @return id of the next matching document, or NO_MORE_DOCS
+     */
+    public abstract int nextDoc();
+
+    /**
+     * @param target a document id greater than the current one
+     * @return id of the first matching document which is target or after it, or NO_MORE_DOCS
+     */
+    public abstract int advance(int target);
+
+    /**
+     * @return score of the current document
+     */
+    public abstract float score();
+
+    /**
+     * @return estimation of the number of documents matched, used to decide which scorer leads an intersection
+     */
+    public abstract long cost();
+
+    /**
+     * @return upper bound of the scores of all the documents, positive infinity if the scorer can't bound them
+     */
+    public float maxScore() {
+        return Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * tells the scorer that documents scoring less than minScore are not needed anymore, so it can skip them. Scorers
+     * which can't skip documents ignore it
+     * @param minScore lowest score of the documents still competitive, it never decreases
+     */
+    public void setMinCompetitiveScore(final float minScore) {
+    }
+
+    /**
+     * moves the bound given by blockMaxScore to the block of documents containing target, without moving the scorer
+     * @param target a document id, not before the current one
+     * @return last document of the block, NO_MORE_DOCS if the scorer has no blocks, ie, a single block with all the
+     * documents bounded by maxScore
+     */
+    public int advanceShallow(final int target) {
+        return NO_MORE_DOCS;
+    }
+
+    /**
+     * @return upper bound of the scores of the documents in the block found by the last call to advanceShallow
+     */
+    public float blockMaxScore() {
+        return maxScore();
+    }
+}
@@ -0,0 +1,36 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Computes the score of the documents matching a term, from the frequency of the term in the document, the norm of
+ * the document and the statistics of the collection.
+ *
+ * Everything that doesn't depend on the document is computed once per query term, when the SimScorer is created. The
+ * norms are quantized to a byte, so a SimScorer can keep a table with the part of the score depending on the norm for
+ * the 256 values, and scoring a posting is a lookup in that table
+ *
+ * Scores must not decrease when the frequency grows, nor increase when the norm grows, so the score of the impact of
+ * a term is an upper bound of the scores of its postings, which searches use to skip documents
+ */
+public interface Similarity {
+
+    /**
+     * @param field statistics of the field of the terms
+     * @param docFreqs number of documents of every term scored together, ie, one for a term, or all the terms of a
+     *                 phrase
+     * @return scorer for the postings of the terms
+     */
+    SimScorer scorer(FieldStatistics field, int... docFreqs);
+
+    /**
+     * Scores the postings of a term
+     */
+    interface SimScorer {
+
+        /**
+         * @param frequency frequency of the term in the document, can be fractional for sloppy phrases
+         * @param norm norm of the document, encoded by ByteNorms
+         * @return score of the document
+         */
+        float score(float frequency, byte norm);
+    }
+}
@@ -0,0 +1,253 @@
+package com.dave.invertedindex.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values of a field which is not tokenized, by document, kept as a column: the distinct values are sorted in a
+ * dictionary, and every document has the ordinal of its value in it, at the position given by its id. Documents can be
+ * sorted by their ordinals, and values counted in an array indexed by ordinal, without reading any stored field.
+ *
+ * As ByteNorms, it reads a buffer, which can be a file mapped in memory or the bytes read from a db. The format is:
+ * {maxDoc}{valueCount}{bytesPerOrd}{valueOffset}*(valueCount + 1){valueBytes}{ord + 1}*maxDoc
+ * ints are 4 bytes, values are UTF-8 and sorted by code point as terms are, and every ordinal takes bytesPerOrd
+ * bytes, the fewest that fit valueCount. 0 means the document has no value
+ */
+public class SortedDocValues {
+
+    /**
+     * values of a field with no documents
+     */
+    public static final SortedDocValues EMPTY;
+
+    static {
+        try {
+            EMPTY = new SortedDocValues(ByteBuffer.wrap(encode(null, Map.of())));
+        } catch (CorruptIndexException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static final int HEADER_LENGTH = 9;
+
+    protected final ByteBuffer data;
+
+    protected final int maxDoc;
+
+    protected final int valueCount;
+
+    protected final int bytesPerOrd;
+
+    /**
+     * where the bytes of the values start
+     */
+    protected final int valuesStart;
+
+    /**
+     * where the ordinals of the documents start
+     */
+    protected final int ordsStart;
+
+    /**
+     * @param data values encoded by encode
+     * @throws CorruptIndexException if the buffer is shorter than the column it declares
+     */
+    public SortedDocValues(final ByteBuffer data) throws CorruptIndexException {
+        this.data = data;
+        if (data.limit() < HEADER_LENGTH) {
+            throw new CorruptIndexException("truncated doc values header");
+        }
+        this.maxDoc = data.getInt(0);
+        this.valueCount = data.getInt(4);
+        this.bytesPerOrd = data.get(8);
+        this.valuesStart = HEADER_LENGTH + 4 * (valueCount + 1);
+        if (maxDoc < 0 || valueCount < 0 || bytesPerOrd < 1 || bytesPerOrd > 4 || valuesStart > data.limit()) {
+            throw new CorruptIndexException("wrong doc values header");
+        }
+        this.ordsStart = valuesStart + data.getInt(HEADER_LENGTH + 4 * valueCount);
+        if (ordsStart < valuesStart || (long) ordsStart + (long) maxDoc * bytesPerOrd > data.limit()) {
+            throw new CorruptIndexException("truncated doc values");
+        }
+    }
+
+    /**
+     * @return number of document ids with room in the column, including the ones with no value
+     */
+    public int size() {
+        return maxDoc;
+    }
+
+    /**
+     * @return number of distinct values
+     */
+    public int valueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @param docId internal document id
+     * @return ordinal of the value of the document, -1 if it has none
+     */
+    public int ord(final int docId) {
+        if (docId < 0 || docId >= maxDoc) {
+            return -1;
+        }
+        int offset = ordsStart + docId * bytesPerOrd;
+        int ord = 0;
+        for (int i = 0; i < bytesPerOrd; i++) {
+            ord = (ord << 8) | (data.get(offset + i) & 0xFF);
+        }
+        return ord - 1;
+    }
+
+    /**
+     * @param ord an ordinal, from 0 to valueCount - 1
+     * @return the value with that ordinal
+     */
+    public String lookupOrd(final int ord) {
+        if (ord < 0 || ord >= valueCount) {
+            throw new IndexOutOfBoundsException("ordinal out of bounds: " + ord);
+        }
+        return new String(valueBytes(ord), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param docId internal document id
+     * @return the value of the document, null if it has none
+     */
+    public String get(final int docId) {
+        int ord = ord(docId);
+        return ord < 0 ? null : lookupOrd(ord);
+    }
+
+    /**
+     * @param value a value
+     * @return its ordinal if it's in the dictionary, otherwise (-(insertion point) - 1), as Arrays.binarySearch
+     */
+    public int lookupTerm(final String value) {
+        byte[] key = value.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = valueCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareValue(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    protected byte[] valueBytes(final int ord) {
+        int start = data.getInt(HEADER_LENGTH + 4 * ord);
+        int end = data.getInt(HEADER_LENGTH + 4 * (ord + 1));
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(valuesStart + start + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * compare the UTF-8 bytes of a value with a key, unsigned, which is the order of their code points
+     */
+    protected int compareValue(final int ord, final byte[] key) {
+        int start = valuesStart + data.getInt(HEADER_LENGTH + 4 * ord);
+        int length = data.getInt(HEADER_LENGTH + 4 * (ord + 1)) - (start - valuesStart);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (data.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * add values to the ones already encoded. Since the dictionary is sorted, new values can change the ordinals of
+     * the ones written, so the whole column is encoded again
+     * @param written values of the documents already written, null if there are none
+     * @param values values of the documents in memory, by document id, they replace the written ones
+     * @return the encoded values of all the documents
+     */
+    public static byte[] encode(final SortedDocValues written, final Map<Integer, String> values) {
+        int writtenCount = written == null ? 0 : written.valueCount;
+        String[] added = new HashSet<>(values.values()).toArray(new String[0]);
+        Arrays.sort(added, TermDictionary::compare);
+
+        //merge both sorted dictionaries, remapping the ordinals written
+        List<String> dictionary = new ArrayList<>(writtenCount + added.length);
+        int[] writtenOrds = new int[writtenCount];
+        int[] addedOrds = new int[added.length];
+        int i = 0, j = 0;
+        while (i < writtenCount || j < added.length) {
+            String writtenValue = i < writtenCount ? written.lookupOrd(i) : null;
+            int cmp = writtenValue == null ? 1 : j == added.length ? -1 : TermDictionary.compare(writtenValue, added[j]);
+            if (cmp <= 0) {
+                writtenOrds[i++] = dictionary.size();
+                if (cmp == 0) {
+                    addedOrds[j++] = dictionary.size();
+                }
+                dictionary.add(writtenValue);
+            } else {
+                addedOrds[j++] = dictionary.size();
+                dictionary.add(added[j - 1]);
+            }
+        }
+
+        int maxDoc = written == null ? 0 : written.maxDoc;
+        for (Integer docId : values.keySet()) {
+            maxDoc = Math.max(maxDoc, docId + 1);
+        }
+        int valueCount = dictionary.size();
+        //ordinals are written plus one, so the highest is valueCount
+        int bytesPerOrd = valueCount <= 0xFF ? 1 : valueCount <= 0xFFFF ? 2 : valueCount <= 0xFFFFFF ? 3 : 4;
+
+        ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        int[] offsets = new int[valueCount + 1];
+        for (int ord = 0; ord < valueCount; ord++) {
+            valueBytes.writeBytes(dictionary.get(ord).getBytes(StandardCharsets.UTF_8));
+            offsets[ord + 1] = valueBytes.size();
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + 4 * offsets.length + valueBytes.size() + maxDoc * bytesPerOrd);
+        out.putInt(maxDoc).putInt(valueCount).put((byte) bytesPerOrd);
+        for (int offset : offsets) {
+            out.putInt(offset);
+        }
+        out.put(valueBytes.toByteArray());
+        int ordsStart = out.position();
+        if (written != null) {
+            for (int docId = 0; docId < written.maxDoc; docId++) {
+                int ord = written.ord(docId);
+                if (ord >= 0) {
+                    putOrd(out, ordsStart + docId * bytesPerOrd, bytesPerOrd, writtenOrds[ord]);
+                }
+            }
+        }
+        for (Map.Entry<Integer, String> entry : values.entrySet()) {
+            int ord = addedOrds[Arrays.binarySearch(added, entry.getValue(), TermDictionary::compare)];
+            putOrd(out, ordsStart + entry.getKey() * bytesPerOrd, bytesPerOrd, ord);
+        }
+        return out.array();
+    }
+
+    protected static void putOrd(final ByteBuffer out, final int offset, final int bytesPerOrd, final int ord) {
+        int value = ord + 1;
+        for (int i = bytesPerOrd - 1; i >= 0; i--) {
+            out.put(offset + i, (byte) value);
+            value >>>= 8;
+        }
+    }
+}
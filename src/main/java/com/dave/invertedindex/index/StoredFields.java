@@ -0,0 +1,20 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Read access to the stored content of a field of the documents written to a Directory, one document at a time.
+ * Documents are only read when they are requested, ie, for the hits returned, so the content doesn't have to be kept
+ * in memory once it's written
+ */
+public interface StoredFields {
+
+    /**
+     * stored content of a field with no documents written
+     */
+    StoredFields EMPTY = docId -> null;
+
+    /**
+     * @param docId internal document id
+     * @return the content of the field for the document, null if the document has none
+     */
+    String get(int docId);
+}
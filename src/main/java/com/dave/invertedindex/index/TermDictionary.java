@@ -0,0 +1,85 @@
+package com.dave.invertedindex.index;
+
+/**
+ * A TermDictionary maps every term of a field to a pointer, which tells the Directory where the postings list of the
+ * term is stored. Terms are kept sorted, so besides the exact lookup, terms can be traversed in order, or only the
+ * terms within a range
+ *
+ * It also keeps the statistics of the terms written, which are needed to score them: the number of documents and the
+ * impact of every term, and for the whole field, the number of documents and of tokens
+ *
+ * Terms are sorted by their unicode code points, which is the same order as their UTF-8 bytes
+ */
+public interface TermDictionary {
+
+    /**
+     * returned by get when the term is not in the dictionary
+     */
+    long NOT_FOUND = -1;
+
+    /**
+     * @param term term being searched
+     * @return pointer to the postings of the term, or NOT_FOUND
+     */
+    long get(String term);
+
+    /**
+     * @param term term being searched
+     * @return number of documents containing the term, 0 if it's not in the dictionary
+     */
+    int docFreq(String term);
+
+    /**
+     * @param term term being searched
+     * @return bound of the postings of the term, Impact.NONE if it's not in the dictionary
+     */
+    Impact impact(String term);
+
+    /**
+     * @return number of terms in the dictionary
+     */
+    int size();
+
+    /**
+     * @return number of documents with some term in the field
+     */
+    long docCount();
+
+    /**
+     * @return number of tokens of the field, in all the documents
+     */
+    long sumTotalTermFreq();
+
+    /**
+     * @return an enum positioned before the first term of the dictionary
+     */
+    TermsEnum iterator();
+
+    /**
+     * @param lower lower bound, null for no lower bound
+     * @param includeLower whether lower itself is part of the range
+     * @param upper upper bound, null for no upper bound
+     * @param includeUpper whether upper itself is part of the range
+     * @return an enum positioned before the first term of the range
+     */
+    TermsEnum range(String lower, boolean includeLower, String upper, boolean includeUpper);
+
+    /**
+     * compare two terms in dictionary order, ie, by code point
+     * String.compareTo can't be used, since it compares UTF-16 chars and differs for supplementary characters
+     */
+    static int compare(final String a, final String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return ca < cb ? -1 : 1;
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
@@ -0,0 +1,61 @@
+package com.dave.invertedindex.index;
+
+import com.dave.invertedindex.document.Term;
+
+import java.io.IOException;
+
+/**
+ * Matches the documents containing a term in a field
+ */
+public class TermQuery extends Query {
+
+    protected final Term term;
+
+    public TermQuery(final Term term) {
+        this.term = term;
+    }
+
+    public TermQuery(final String fieldName, final String token) {
+        this(new Term(fieldName, token));
+    }
+
+    public Term getTerm() {
+        return term;
+    }
+
+    @Override
+    protected Scorer scorer(final IndexReader reader) throws IOException, CorruptIndexException {
+        PostingsCursor postings = reader.postings(term);
+        if (postings == null || postings.size() == 0) {
+            return null;
+        }
+        Similarity.SimScorer simScorer = reader.getSimilarity().scorer(reader.statistics(term.getFieldName()),
+                reader.docFreq(term));
+        return new TermScorer(postings, simScorer, reader.norms(term.getFieldName()), reader.impact(term));
+    }
+
+    /**
+     * the number of documents of the term is already known, unless some document has been removed, since removing
+     * postings doesn't update it
+     */
+    @Override
+    protected int count(final IndexReader reader) throws IOException, CorruptIndexException {
+        if (!reader.hasDeletions()) {
+            return reader.docFreq(term);
+        }
+        return super.count(reader);
+    }
+
+    @Override
+    protected boolean exists(final IndexReader reader) throws IOException, CorruptIndexException {
+        if (!reader.hasDeletions()) {
+            return reader.docFreq(term) > 0;
+        }
+        return super.exists(reader);
+    }
+
+    @Override
+    public String toString() {
+        return term.getFieldName().concat(":").concat(term.getToken());
+    }
+}
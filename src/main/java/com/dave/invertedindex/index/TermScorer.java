@@ -0,0 +1,88 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Scores the postings of a term with the SimScorer given by the Similarity of the reader. The score of the impact of
+ * the term bounds the scores of its postings, and the impacts of the blocks, when the postings are read in blocks,
+ * bound the scores of every block
+ */
+public class TermScorer extends Scorer {
+
+    protected final PostingsCursor postings;
+
+    protected final Similarity.SimScorer simScorer;
+
+    protected final Norms norms;
+
+    protected final float maxScore;
+
+    /**
+     * impact of the last block bounded, and its score
+     */
+    protected Impact blockImpact;
+
+    protected float blockMaxScore;
+
+    public TermScorer(final PostingsCursor postings, final Similarity.SimScorer simScorer, final Norms norms) {
+        this(postings, simScorer, norms, null);
+    }
+
+    /**
+     * @param impact bound of the postings, null if unknown
+     */
+    public TermScorer(final PostingsCursor postings, final Similarity.SimScorer simScorer, final Norms norms,
+                      final Impact impact) {
+        this.postings = postings;
+        this.simScorer = simScorer;
+        this.norms = norms;
+        this.maxScore = impact == null ? Float.POSITIVE_INFINITY : simScorer.score(impact.termFrequency(), impact.norm());
+    }
+
+    @Override
+    public int docId() {
+        return postings.docId();
+    }
+
+    @Override
+    public int nextDoc() {
+        return postings.nextDoc();
+    }
+
+    @Override
+    public int advance(final int target) {
+        return postings.advance(target);
+    }
+
+    @Override
+    public float score() {
+        return simScorer.score(postings.termFrequency(), norms.encodedNorm(postings.docId()));
+    }
+
+    @Override
+    public long cost() {
+        return postings.size();
+    }
+
+    @Override
+    public float maxScore() {
+        return maxScore;
+    }
+
+    @Override
+    public int advanceShallow(final int target) {
+        return postings.advanceShallow(target);
+    }
+
+    @Override
+    public float blockMaxScore() {
+        Impact impact = postings.blockImpact();
+        if (impact == null) {
+            return maxScore;
+        }
+        if (impact != blockImpact) {
+            //every block keeps its impact, so it's only scored when the bound moves to other block
+            blockImpact = impact;
+            blockMaxScore = Math.min(maxScore, simScorer.score(impact.termFrequency(), impact.norm()));
+        }
+        return blockMaxScore;
+    }
+}
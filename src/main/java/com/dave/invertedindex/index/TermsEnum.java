@@ -0,0 +1,42 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Iterates over the terms of a TermDictionary, in dictionary order. The enum starts positioned before the first
+ * term, so next() or seekCeil() have to be called before reading any value
+ */
+public interface TermsEnum {
+
+    /**
+     * move to the next term
+     * @return false if there are no more terms
+     */
+    boolean next();
+
+    /**
+     * move to the smallest term that is greater than or equal to target. The enum can only move forward, so target
+     * should not be smaller than the current term
+     * @param target term to seek
+     * @return false if there is no such term
+     */
+    boolean seekCeil(String target);
+
+    /**
+     * @return the current term
+     */
+    String term();
+
+    /**
+     * @return pointer to the postings of the current term
+     */
+    long pointer();
+
+    /**
+     * @return number of documents containing the current term
+     */
+    int docFreq();
+
+    /**
+     * @return bound of the postings of the current term
+     */
+    Impact impact();
+}
@@ -0,0 +1,530 @@
+package com.dave.invertedindex.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * In-memory postings of the terms of a field, kept without creating objects per term or per posting.
+ *
+ * Every term gets an int id, assigned in the order terms are seen. The UTF-8 bytes of the terms are written to a
+ * ByteBlockPool, and an open addressing hash table (linear probing) maps them to their ids. The postings of every
+ * term are appended to a stream of slices of other pool, which can be off-heap, as
+ * {docDelta << 1 | 1 if tf is 1}{tf if it's greater than 1}...
+ * all the numbers being variable length ints. The posting of the last document of every term is kept in parallel
+ * int arrays, indexed by term id, until the next document comes, since its tf can still grow.
+ *
+ * With positions, every term has a second stream with the positions of its occurrences, every one as the distance to
+ * the previous position in the same document. Positions are written as they come, so this stream is always complete.
+ *
+ * Documents have to be added with increasing ids, by a single thread
+ */
+public class TermsHash {
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected static final int EMPTY = -1;
+
+    /**
+     * maximum length in UTF-8 bytes of the terms kept in the hash, since a term and its length can't span two blocks
+     * of the pool. Longer terms have to be kept somewhere else, see accepts
+     */
+    public static final int MAX_TERM_LENGTH = ByteBlockPool.BLOCK_SIZE - 2;
+
+    /**
+     * bytes of the terms, always in the heap since they are compared on every lookup
+     */
+    protected final ByteBlockPool termPool = new ByteBlockPool();
+
+    /**
+     * streams of postings
+     */
+    protected final ByteBlockPool pool;
+
+    /**
+     * hash table of term ids
+     */
+    protected int[] table;
+
+    protected int tableMask;
+
+    /**
+     * number of terms
+     */
+    protected int size = 0;
+
+    /**
+     * per term id: address of its bytes in the pool, hash code, address where its postings stream starts and
+     * where the next byte will be written
+     */
+    protected int[] termAddresses;
+
+    protected int[] hashCodes;
+
+    protected int[] streamStarts;
+
+    protected int[] streamEnds;
+
+    /**
+     * per term id: last document where the term occurs, its distance to the previous one, and its term frequency.
+     * This posting is still not written to the stream
+     */
+    protected int[] lastDocIds;
+
+    protected int[] lastDocDeltas;
+
+    protected int[] lastFrequencies;
+
+    /**
+     * per term id: number of documents where the term occurs
+     */
+    protected int[] docFrequencies;
+
+    /**
+     * are positions kept?
+     */
+    protected boolean positions = false;
+
+    /**
+     * per term id, only with positions: address where its positions stream starts, where the next byte will be
+     * written, and last position written for the last document
+     */
+    protected int[] proxStarts;
+
+    protected int[] proxEnds;
+
+    protected int[] lastPositions;
+
+    /**
+     * UTF-8 bytes of the term being looked up, reused for every token
+     */
+    protected byte[] scratch = new byte[64];
+
+    public TermsHash() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap true to keep the postings in direct memory
+     */
+    public TermsHash(final boolean offHeap) {
+        pool = new ByteBlockPool(offHeap);
+        table = new int[INITIAL_CAPACITY];
+        Arrays.fill(table, EMPTY);
+        tableMask = table.length - 1;
+        termAddresses = new int[INITIAL_CAPACITY];
+        hashCodes = new int[INITIAL_CAPACITY];
+        streamStarts = new int[INITIAL_CAPACITY];
+        streamEnds = new int[INITIAL_CAPACITY];
+        lastDocIds = new int[INITIAL_CAPACITY];
+        lastDocDeltas = new int[INITIAL_CAPACITY];
+        lastFrequencies = new int[INITIAL_CAPACITY];
+        docFrequencies = new int[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasPositions() {
+        return positions;
+    }
+
+    /**
+     * keep the positions of the terms, or stop keeping them. Only when there are no terms
+     * @param positions true to keep positions
+     */
+    public void setPositions(final boolean positions) {
+        if (size > 0 && positions != this.positions) {
+            throw new IllegalStateException("positions can't be enabled or disabled once terms have been added");
+        }
+        if (positions && proxStarts == null) {
+            proxStarts = new int[termAddresses.length];
+            proxEnds = new int[termAddresses.length];
+            lastPositions = new int[termAddresses.length];
+        }
+        this.positions = positions;
+    }
+
+    /**
+     * @param token the term
+     * @return true if the term is not longer than MAX_TERM_LENGTH, so it can be added to the hash
+     */
+    public boolean accepts(final CharSequence token) {
+        //a char is never more than 3 bytes, so short terms don't need to be encoded
+        return token.length() * 3 <= MAX_TERM_LENGTH || encode(token) <= MAX_TERM_LENGTH;
+    }
+
+    /**
+     * add an occurrence of a term in a document, at position 0 if positions are kept
+     * @param documentId document id, greater than or equal to the last one added for any term
+     * @param token the term
+     * @return true if the term is new
+     */
+    public boolean add(final int documentId, final CharSequence token) {
+        return add(documentId, token, 0);
+    }
+
+    /**
+     * add an occurrence of a term in a document
+     * @param documentId document id, greater than or equal to the last one added for any term
+     * @param token the term
+     * @param position position of the term in the document, greater than the previous one of the same term in the
+     *                 document. Ignored if positions are not kept
+     * @return true if the term is new
+     */
+    public boolean add(final int documentId, final CharSequence token, final int position) {
+        int length = encode(token);
+        int hash = hash(scratch, length);
+        int slot = findSlot(hash, length);
+        int termId = table[slot];
+        boolean isNew = termId == EMPTY;
+        if (isNew) {
+            termId = addTerm(slot, hash, length);
+            lastDocIds[termId] = documentId;
+            lastDocDeltas[termId] = documentId;
+            lastFrequencies[termId] = 1;
+            docFrequencies[termId] = 1;
+        } else if (lastDocIds[termId] == documentId) {
+            lastFrequencies[termId]++;
+        } else {
+            writeLastPosting(termId);
+            lastDocDeltas[termId] = documentId - lastDocIds[termId];
+            lastDocIds[termId] = documentId;
+            lastFrequencies[termId] = 1;
+            docFrequencies[termId]++;
+        }
+        if (positions) {
+            if (lastFrequencies[termId] == 1) {
+                //first occurrence in the document
+                lastPositions[termId] = 0;
+            }
+            proxEnds[termId] = pool.writeVInt(proxEnds[termId], position - lastPositions[termId]);
+            lastPositions[termId] = position;
+        }
+        return isNew;
+    }
+
+    /**
+     * @param token a term
+     * @return its id, -1 if the term is not in the hash
+     */
+    public int find(final CharSequence token) {
+        int length = encode(token);
+        return table[findSlot(hash(scratch, length), length)];
+    }
+
+    /**
+     * @param termId id of a term
+     * @return the term
+     */
+    public String term(final int termId) {
+        int address = termAddresses[termId];
+        int length = termLength(address);
+        byte[] bytes = new byte[length];
+        termPool.readBytes(address + 2, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * decode the postings of a term
+     * @param termId id of a term
+     * @return a new postings list
+     */
+    public PostingsList postings(final int termId) {
+        PostingsList postings = new PostingsList(docFrequencies[termId], positions);
+        PostingsCursor cursor = cursor(termId);
+        int[] buffer = positions ? new int[8] : null;
+        while (cursor.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+            if (!positions) {
+                postings.add(cursor.docId(), cursor.termFrequency());
+                continue;
+            }
+            int termFrequency = cursor.termFrequency();
+            if (buffer.length < termFrequency) {
+                buffer = new int[Math.max(termFrequency, buffer.length << 1)];
+            }
+            for (int i = 0; i < termFrequency; i++) {
+                buffer[i] = cursor.nextPosition();
+            }
+            postings.add(cursor.docId(), termFrequency, buffer, 0);
+        }
+        return postings;
+    }
+
+    /**
+     * @param termId id returned by add or find
+     * @return number of documents of the term
+     */
+    public int docFreq(final int termId) {
+        return docFrequencies[termId];
+    }
+
+    /**
+     * @param termId id of a term
+     * @return a cursor reading the postings of the term in place, no more documents must be added meanwhile
+     */
+    public PostingsCursor cursor(final int termId) {
+        return new SliceCursor(termId);
+    }
+
+    /**
+     * @return estimated memory used by the terms and postings
+     */
+    public long ramBytesUsed() {
+        return termPool.bytesUsed() + pool.bytesUsed() + 4L * table.length + (positions ? 11L : 8L) * 4 * size;
+    }
+
+    /**
+     * forget all the terms, memory is kept to be reused
+     */
+    public void reset() {
+        termPool.reset();
+        pool.reset();
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    protected void writeLastPosting(final int termId) {
+        int address = streamEnds[termId];
+        int frequency = lastFrequencies[termId];
+        if (frequency == 1) {
+            address = pool.writeVInt(address, lastDocDeltas[termId] << 1 | 1);
+        } else {
+            address = pool.writeVInt(address, lastDocDeltas[termId] << 1);
+            address = pool.writeVInt(address, frequency);
+        }
+        streamEnds[termId] = address;
+    }
+
+    /**
+     * @return slot of the term in scratch, or the empty slot where it has to be added
+     */
+    protected int findSlot(final int hash, final int length) {
+        int slot = hash & tableMask;
+        int termId;
+        while ((termId = table[slot]) != EMPTY) {
+            if (hashCodes[termId] == hash && equals(termId, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return slot;
+    }
+
+    /**
+     * copy the term in scratch to the pool and give it the next id
+     */
+    protected int addTerm(final int slot, final int hash, final int length) {
+        if (length > MAX_TERM_LENGTH) {
+            throw new IllegalArgumentException("term is too long: " + length + " bytes");
+        }
+        int termId = size++;
+        if (termId == termAddresses.length) {
+            growTerms();
+        }
+        int address = termPool.allocate(length + 2);
+        termPool.setByte(address, (byte) length);
+        termPool.setByte(address + 1, (byte) (length >>> 8));
+        termPool.setBytes(address + 2, scratch, 0, length);
+        termAddresses[termId] = address;
+        hashCodes[termId] = hash;
+        streamStarts[termId] = pool.newSlice();
+        streamEnds[termId] = streamStarts[termId];
+        if (positions) {
+            proxStarts[termId] = pool.newSlice();
+            proxEnds[termId] = proxStarts[termId];
+        }
+        table[slot] = termId;
+        if (size << 1 > table.length) {
+            rehash();
+        }
+        return termId;
+    }
+
+    protected int termLength(final int address) {
+        return (termPool.readByte(address) & 0xFF) | ((termPool.readByte(address + 1) & 0xFF) << 8);
+    }
+
+    protected boolean equals(final int termId, final int length) {
+        int address = termAddresses[termId];
+        if (termLength(address) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (termPool.readByte(address + 2 + i) != scratch[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void growTerms() {
+        int capacity = termAddresses.length << 1;
+        termAddresses = Arrays.copyOf(termAddresses, capacity);
+        hashCodes = Arrays.copyOf(hashCodes, capacity);
+        streamStarts = Arrays.copyOf(streamStarts, capacity);
+        streamEnds = Arrays.copyOf(streamEnds, capacity);
+        lastDocIds = Arrays.copyOf(lastDocIds, capacity);
+        lastDocDeltas = Arrays.copyOf(lastDocDeltas, capacity);
+        lastFrequencies = Arrays.copyOf(lastFrequencies, capacity);
+        docFrequencies = Arrays.copyOf(docFrequencies, capacity);
+        if (positions) {
+            proxStarts = Arrays.copyOf(proxStarts, capacity);
+            proxEnds = Arrays.copyOf(proxEnds, capacity);
+            lastPositions = Arrays.copyOf(lastPositions, capacity);
+        }
+    }
+
+    /**
+     * double the size of the table, hash codes are kept per term so terms don't need to be read again
+     */
+    protected void rehash() {
+        int[] newTable = new int[table.length << 1];
+        Arrays.fill(newTable, EMPTY);
+        int mask = newTable.length - 1;
+        for (int termId = 0; termId < size; termId++) {
+            int slot = hashCodes[termId] & mask;
+            while (newTable[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = termId;
+        }
+        table = newTable;
+        tableMask = mask;
+    }
+
+    /**
+     * encode the token as UTF-8 in scratch, without creating any object
+     * @return number of bytes
+     */
+    protected int encode(final CharSequence token) {
+        int length = 0;
+        int chars = token.length();
+        if (scratch.length < chars * 3) {
+            scratch = new byte[Math.max(chars * 3, scratch.length << 1)];
+        }
+        for (int i = 0; i < chars; i++) {
+            char c = token.charAt(i);
+            if (c < 0x80) {
+                scratch[length++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[length++] = (byte) (0xC0 | (c >> 6));
+                scratch[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(token.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, token.charAt(++i));
+                scratch[length++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                //unpaired surrogate, replaced the same way String.getBytes does
+                scratch[length++] = (byte) '?';
+            } else {
+                scratch[length++] = (byte) (0xE0 | (c >> 12));
+                scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return length;
+    }
+
+    protected static int hash(final byte[] bytes, final int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        //spread the bits, since the table is indexed by the lowest ones
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Cursor decoding the postings stream of a term directly from the pool, followed by the last posting. Positions
+     * are decoded from the positions stream as they are requested
+     */
+    protected class SliceCursor extends PostingsCursor {
+
+        protected final int termId;
+
+        protected final ByteBlockPool.SliceReader reader;
+
+        protected int docId = -1;
+
+        protected int termFrequency = 0;
+
+        protected boolean last = false;
+
+        /**
+         * reader of the positions stream, null without positions
+         */
+        protected final ByteBlockPool.SliceReader proxReader;
+
+        /**
+         * positions of the current document still not read, and last position read
+         */
+        protected int pendingPositions = 0;
+
+        protected int position = 0;
+
+        protected SliceCursor(final int termId) {
+            this.termId = termId;
+            this.reader = pool.new SliceReader(streamStarts[termId], streamEnds[termId]);
+            this.proxReader = positions ? pool.new SliceReader(proxStarts[termId], proxEnds[termId]) : null;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (proxReader != null && docId != NO_MORE_DOCS) {
+                //skip the positions of the current document
+                for (; pendingPositions > 0; pendingPositions--) {
+                    proxReader.readVInt();
+                }
+            }
+            if (!reader.eof()) {
+                int code = reader.readVInt();
+                docId = docId < 0 ? code >>> 1 : docId + (code >>> 1);
+                termFrequency = (code & 1) != 0 ? 1 : reader.readVInt();
+            } else if (!last) {
+                last = true;
+                docId = lastDocIds[termId];
+                termFrequency = lastFrequencies[termId];
+            } else {
+                docId = NO_MORE_DOCS;
+                return docId;
+            }
+            pendingPositions = termFrequency;
+            position = 0;
+            return docId;
+        }
+
+        @Override
+        public boolean hasPositions() {
+            return proxReader != null;
+        }
+
+        @Override
+        public int nextPosition() {
+            if (proxReader == null) {
+                return super.nextPosition();
+            }
+            pendingPositions--;
+            position += proxReader.readVInt();
+            return position;
+        }
+
+        @Override
+        public int docId() {
+            return docId;
+        }
+
+        @Override
+        public int termFrequency() {
+            return termFrequency;
+        }
+
+        @Override
+        public int size() {
+            return docFrequencies[termId];
+        }
+    }
+}
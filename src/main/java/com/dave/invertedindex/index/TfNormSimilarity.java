@@ -0,0 +1,30 @@
+package com.dave.invertedindex.index;
+
+/**
+ * The original scoring of the index: proportional to tf/norm, with sqrt to compress the range of scores. It ignores
+ * the statistics of the collection, so all the terms weigh the same
+ */
+public class TfNormSimilarity implements Similarity {
+
+    /**
+     * inverse of the decoded norms, documents with no norm count as 1
+     */
+    protected static final float[] INVERSE_NORMS = new float[256];
+
+    static {
+        for (int i = 0; i < INVERSE_NORMS.length; i++) {
+            INVERSE_NORMS[i] = 1f / Math.max(ByteNorms.DECODE_TABLE[i], 1);
+        }
+    }
+
+    @Override
+    public SimScorer scorer(final FieldStatistics field, final int... docFreqs) {
+        //log could be also be used instead of sqrt...
+        return (frequency, norm) -> (float) Math.sqrt(frequency * INVERSE_NORMS[norm & 0xFF]);
+    }
+
+    @Override
+    public String toString() {
+        return "TfNorm";
+    }
+}
@@ -0,0 +1,157 @@
+package com.dave.invertedindex.index;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the first k hits of a search sorted by the value of a field, read from its doc values. As TopKCollector, it's
+ * a heap of primitives, but hits are compared by the ordinals of their values, so no value is read until the hits are
+ * returned. Documents with no value go last, in either order, and documents with the same value are ordered by docId.
+ *
+ * Since the order doesn't depend on the scores, it never tells the search to skip any document
+ */
+public class TopFieldCollector implements Collector {
+
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected final SortedDocValues values;
+
+    protected final int k;
+
+    protected final boolean reverse;
+
+    /**
+     * sort key of every hit, lower first: the ordinal, or its complement if the order is reversed
+     */
+    protected int[] keys;
+
+    protected int[] docIds;
+
+    protected float[] scores;
+
+    protected int size = 0;
+
+    protected int totalHits = 0;
+
+    /**
+     * @param values doc values of the field
+     * @param k maximum number of hits to keep
+     * @param reverse true to sort by descending value
+     */
+    public TopFieldCollector(final SortedDocValues values, final int k, final boolean reverse) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.values = values;
+        this.k = k;
+        this.reverse = reverse;
+        int capacity = Math.min(k, INITIAL_CAPACITY);
+        this.keys = new int[capacity];
+        this.docIds = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    @Override
+    public void collect(final int docId, final float score) {
+        totalHits++;
+        int ord = values.ord(docId);
+        int key = ord < 0 ? Integer.MAX_VALUE : reverse ? Integer.MAX_VALUE - 1 - ord : ord;
+        if (size < k) {
+            if (size == docIds.length) {
+                int capacity = (int) Math.min(k, (long) size << 1);
+                keys = Arrays.copyOf(keys, capacity);
+                docIds = Arrays.copyOf(docIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            keys[size] = key;
+            docIds[size] = docId;
+            scores[size] = score;
+            upHeap(size++);
+        } else if (worse(keys[0], docIds[0], key, docId)) {
+            keys[0] = key;
+            docIds[0] = docId;
+            scores[0] = score;
+            downHeap(0);
+        }
+    }
+
+    /**
+     * @return number of documents collected
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * empty the heap and return its hits. The collector can't be used afterwards
+     * @param index where the documents of the hits are read from when they are requested
+     * @return the hits kept, in order
+     */
+    public Hit[] topHits(final Index index) {
+        Hit[] hits = new Hit[size];
+        //the top of the heap is the last hit, so the array is filled from the end
+        for (int i = hits.length - 1; i >= 0; i--) {
+            hits[i] = new Hit(docIds[0], scores[0], index);
+            size--;
+            keys[0] = keys[size];
+            docIds[0] = docIds[size];
+            scores[0] = scores[size];
+            downHeap(0);
+        }
+        return hits;
+    }
+
+    /**
+     * @return true if the first hit goes after the second one
+     */
+    protected static boolean worse(final int keyA, final int docIdA, final int keyB, final int docIdB) {
+        if (keyA != keyB) {
+            return keyA > keyB;
+        }
+        return docIdA > docIdB;
+    }
+
+    protected void upHeap(int i) {
+        int key = keys[i];
+        int docId = docIds[i];
+        float score = scores[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(key, docId, keys[parent], docIds[parent])) {
+                break;
+            }
+            keys[i] = keys[parent];
+            docIds[i] = docIds[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        docIds[i] = docId;
+        scores[i] = score;
+    }
+
+    protected void downHeap(int i) {
+        int key = keys[i];
+        int docId = docIds[i];
+        float score = scores[i];
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            int right = child + 1;
+            if (right < size && worse(keys[right], docIds[right], keys[child], docIds[child])) {
+                child = right;
+            }
+            if (!worse(keys[child], docIds[child], key, docId)) {
+                break;
+            }
+            keys[i] = keys[child];
+            docIds[i] = docIds[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        keys[i] = key;
+        docIds[i] = docId;
+        scores[i] = score;
+    }
+}
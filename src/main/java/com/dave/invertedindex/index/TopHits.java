@@ -0,0 +1,40 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Top hits of a search which can be stopped by a CancellationToken. If it was stopped, the hits are the best of the
+ * documents read until then, which are usually the ones with the lowest ids, not the best of the whole index
+ */
+public class TopHits {
+
+    protected final Hit[] hits;
+
+    protected final boolean timedOut;
+
+    /**
+     * @param hits the hits, best first
+     * @param timedOut true if the search was stopped before reading all the documents
+     */
+    public TopHits(final Hit[] hits, final boolean timedOut) {
+        this.hits = hits;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * @return the hits, best first
+     */
+    public Hit[] getHits() {
+        return hits;
+    }
+
+    /**
+     * @return true if the search was stopped by its token, so the hits are partial
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits%s", hits.length, timedOut ? " (timed out)" : "");
+    }
+}
@@ -0,0 +1,166 @@
+package com.dave.invertedindex.index;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the k best hits of a search, in a min-heap of primitive docIds and scores, so collecting a document costs
+ * O(log k) at most and creates no object. The worst hit kept is at the top of the heap, and a new document only
+ * gets in if it beats it.
+ *
+ * Hits are ordered by score, and documents with the same score by docId, the lower first, so the result doesn't
+ * depend on the order the documents are collected and no hit is lost for having the same score as other
+ */
+public class TopKCollector implements Collector {
+
+    /**
+     * initial size of the heap, it grows up to k, so a big k doesn't allocate memory for hits that are never found
+     */
+    protected static final int INITIAL_CAPACITY = 16;
+
+    protected final int k;
+
+    protected int[] docIds;
+
+    protected float[] scores;
+
+    /**
+     * number of hits in the heap
+     */
+    protected int size = 0;
+
+    /**
+     * number of documents collected, including the ones not kept
+     */
+    protected int totalHits = 0;
+
+    /**
+     * @param k maximum number of hits to keep
+     */
+    public TopKCollector(final int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        int capacity = Math.min(k, INITIAL_CAPACITY);
+        this.docIds = new int[capacity];
+        this.scores = new float[capacity];
+    }
+
+    @Override
+    public void collect(final int docId, final float score) {
+        totalHits++;
+        if (size < k) {
+            if (size == docIds.length) {
+                int capacity = (int) Math.min(k, (long) size << 1);
+                docIds = Arrays.copyOf(docIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            docIds[size] = docId;
+            scores[size] = score;
+            upHeap(size++);
+        } else if (lessThan(docIds[0], scores[0], docId, score)) {
+            //replace the worst hit
+            docIds[0] = docId;
+            scores[0] = score;
+            downHeap(0);
+        }
+    }
+
+    /**
+     * @return number of documents collected. Searches skip the documents which can't get in the top hits once the
+     * heap is full, so it's a lower bound of the number of matching documents
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return number of hits kept, up to k
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return score of the worst hit kept once the heap is full, so documents scoring less can be skipped,
+     * or negative infinity if there is still room
+     */
+    @Override
+    public float minCompetitiveScore() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * @return the hits kept, best first, documents are not loaded
+     */
+    public Hit[] topHits() {
+        return topHits(null);
+    }
+
+    /**
+     * empty the heap and return its hits. The collector can't be used afterwards
+     * @param index where the documents of the hits are read from when they are requested
+     * @return the hits kept, best first
+     */
+    public Hit[] topHits(final Index index) {
+        Hit[] hits = new Hit[size];
+        //the top of the heap is the worst hit, so the array is filled from the end
+        for (int i = hits.length - 1; i >= 0; i--) {
+            hits[i] = new Hit(docIds[0], scores[0], index);
+            size--;
+            docIds[0] = docIds[size];
+            scores[0] = scores[size];
+            downHeap(0);
+        }
+        return hits;
+    }
+
+    /**
+     * @return true if the first hit is worse than the second one
+     */
+    protected static boolean lessThan(final int docIdA, final float scoreA, final int docIdB, final float scoreB) {
+        if (scoreA != scoreB) {
+            return scoreA < scoreB;
+        }
+        return docIdA > docIdB;
+    }
+
+    protected void upHeap(int i) {
+        int docId = docIds[i];
+        float score = scores[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!lessThan(docId, score, docIds[parent], scores[parent])) {
+                break;
+            }
+            docIds[i] = docIds[parent];
+            scores[i] = scores[parent];
+            i = parent;
+        }
+        docIds[i] = docId;
+        scores[i] = score;
+    }
+
+    protected void downHeap(int i) {
+        int docId = docIds[i];
+        float score = scores[i];
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            int right = child + 1;
+            if (right < size && lessThan(docIds[right], scores[right], docIds[child], scores[child])) {
+                child = right;
+            }
+            if (!lessThan(docIds[child], scores[child], docId, score)) {
+                break;
+            }
+            docIds[i] = docIds[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        docIds[i] = docId;
+        scores[i] = score;
+    }
+}
@@ -0,0 +1,95 @@
+package com.dave.invertedindex.index;
+
+/**
+ * Reads the postings of a term from two cursors as a single list, in order of document id, eg, the postings written
+ * to disk and the ones of the documents indexed in memory since the last flush. A document in both lists is read
+ * once, from the second cursor, which has the newest postings
+ *
+ * Postings are not split in blocks with their own impacts, so scorers bound them with the impact of the term, which
+ * is the one of both lists merged
+ */
+class UnionPostingsCursor extends PostingsCursor {
+
+    protected final PostingsCursor first;
+
+    protected final PostingsCursor second;
+
+    /**
+     * document where every cursor is, -1 before the first call to nextDoc
+     */
+    protected int firstDoc = -1;
+
+    protected int secondDoc = -1;
+
+    protected int docId = -1;
+
+    /**
+     * cursor of the current document
+     */
+    protected PostingsCursor current;
+
+    UnionPostingsCursor(final PostingsCursor first, final PostingsCursor second) {
+        this.first = first;
+        this.second = second;
+        this.current = second;
+    }
+
+    @Override
+    public int nextDoc() {
+        //the cursors on the current document move, a document in both lists moves both
+        if (firstDoc == docId) {
+            firstDoc = first.nextDoc();
+        }
+        if (secondDoc == docId) {
+            secondDoc = second.nextDoc();
+        }
+        return setCurrent();
+    }
+
+    @Override
+    public int advance(final int target) {
+        if (firstDoc < target) {
+            firstDoc = first.advance(target);
+        }
+        if (secondDoc < target) {
+            secondDoc = second.advance(target);
+        }
+        return setCurrent();
+    }
+
+    protected int setCurrent() {
+        if (secondDoc <= firstDoc) {
+            current = second;
+            docId = secondDoc;
+        } else {
+            current = first;
+            docId = firstDoc;
+        }
+        return docId;
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int termFrequency() {
+        return current.termFrequency();
+    }
+
+    @Override
+    public int size() {
+        return first.size() + second.size();
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return first.hasPositions() && second.hasPositions();
+    }
+
+    @Override
+    public int nextPosition() {
+        return current.nextPosition();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dave.invertedindex.index;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches the documents containing any term of a field matching a pattern, where * matches any sequence of characters,
+ * even an empty one, and ? matches a single character. The rest of characters match themselves. Only the terms
+ * starting with the characters before the first wildcard are checked, so patterns starting with a wildcard have to
+ * check every term of the field
+ *
+ *  Query query = new WildcardQuery("body", "comp?t*");
+ */
+public class WildcardQuery extends MultiTermQuery {
+
+    public static final char WILDCARD_STRING = '*';
+
+    public static final char WILDCARD_CHAR = '?';
+
+    protected final String pattern;
+
+    /**
+     * characters of the pattern before the first wildcard
+     */
+    protected final String prefix;
+
+    /**
+     * pattern translated to a regular expression, null if it has no wildcards
+     */
+    protected final Pattern regex;
+
+    /**
+     * @param fieldName name of the field
+     * @param pattern pattern of the terms
+     */
+    public WildcardQuery(final String fieldName, final String pattern) {
+        super(fieldName);
+        this.pattern = pattern;
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        int firstWildcard = -1;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != WILDCARD_STRING && c != WILDCARD_CHAR) {
+                continue;
+            }
+            if (firstWildcard < 0) {
+                firstWildcard = i;
+            }
+            if (i > literalStart) {
+                regex.append(Pattern.quote(pattern.substring(literalStart, i)));
+            }
+            //a ? matches a whole code point, even if it takes two chars
+            regex.append(c == WILDCARD_STRING ? ".*" : ".");
+            literalStart = i + 1;
+        }
+        if (literalStart < pattern.length()) {
+            regex.append(Pattern.quote(pattern.substring(literalStart)));
+        }
+        this.prefix = firstWildcard < 0 ? pattern : pattern.substring(0, firstWildcard);
+        this.regex = firstWildcard < 0 ? null : Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    protected String prefix() {
+        return prefix;
+    }
+
+    @Override
+    protected boolean accept(final String term) {
+        return regex == null ? term.equals(pattern) : regex.matcher(term).matches();
+    }
+
+    @Override
+    public String toString() {
+        return fieldName.concat(":").concat(pattern);
+    }
+}
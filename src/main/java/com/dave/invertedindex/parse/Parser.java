@@ -11,16 +11,17 @@ import java.util.HashMap;
  * Parser  must override createStreamChain with their custom rules ie components.
  *
  * To improve efficiency, components are created only once, and streamChainPerFields holds then the reference to
- * the StreamChain defined for every field
+ * the StreamChain defined for every field. Components keep the state of the text being parsed, so every thread
+ * gets its own chains
  */
 public abstract class Parser extends FileConfigured {
 
-    public static HashMap<String, StreamChain> streamChainPerField = new HashMap<>();
+    public static final ThreadLocal<HashMap<String, StreamChain>> streamChainPerField = ThreadLocal.withInitial(HashMap::new);
 
     public abstract StreamChain createStreamChain(final String fieldName);
 
     public final DataStream dataStream(String fieldName, String text) {
-        StreamChain stream = streamChainPerField.computeIfAbsent(fieldName, k -> createStreamChain(fieldName));
+        StreamChain stream = streamChainPerField.get().computeIfAbsent(fieldName, k -> createStreamChain(fieldName));
         stream.setData(text);
         return stream.getDataStream();
     }
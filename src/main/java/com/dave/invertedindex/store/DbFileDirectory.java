@@ -7,14 +7,14 @@ import com.dave.invertedindex.parse.DataStream;
 import com.dave.invertedindex.parse.Parser;
 import com.dave.invertedindex.store.codec.*;
 import com.dave.invertedindex.store.file.FieldConfigFile;
-import com.dave.invertedindex.store.file.NormsFile;
 import com.dave.invertedindex.store.file.PostingsFile;
-import com.dave.util.SerializeUtil;
 import org.mapdb.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -29,6 +29,24 @@ public class DbFileDirectory implements Directory {
     protected static final String NORMS_FILE = "norms.db";
     protected static final String POSTINGS_FILE = "postings.db";
     protected static final String STORED_CONTENT_FILE = "stored.db";
+    /**
+     * names of the maps, inside the stored content file, keeping the internal <-> external document ids table
+     */
+    protected static final String EXTERNAL_IDS_MAP = "_docids.external";
+    protected static final String INTERNAL_IDS_MAP = "_docids.internal";
+    /**
+     * name of the map, inside the postings file, keeping the sorted term dictionary of every field
+     */
+    protected static final String TERMS_MAP = "_terms";
+    /**
+     * name of the map, inside the norms file, keeping the norms of every field, encoded by ByteNorms in an array
+     * indexed by document id
+     */
+    protected static final String NORMS_MAP = "_norms";
+    /**
+     * name of the map, inside the norms file, keeping the doc values of every field, encoded by SortedDocValues
+     */
+    protected static final String DOC_VALUES_MAP = "_docvalues";
 
     private static DB NORMS_DB;
     private static DB POSTINGS_DB;
@@ -75,53 +93,119 @@ public class DbFileDirectory implements Directory {
 
     }
 
-    Map<String, ConcurrentMap> dbMap = new HashMap<>();
-
-    private ConcurrentMap<String, Integer> getDocumentNormsDB(String fieldName){
-        String key = NORMS_FILE.concat(".").concat(fieldName);
-        if(!dbMap.containsKey(key)){
-            ConcurrentMap<String, Integer> map = NORMS_DB
-                    .hashMap(fieldName, Serializer.STRING, Serializer.INTEGER)
-                    .createOrOpen();
+    /**
+     * maps opened, by file and name. Concurrent, since the postings of several terms can be read at the same time
+     */
+    Map<String, ConcurrentMap> dbMap = new ConcurrentHashMap<>();
 
-            dbMap.put(key,map);
-        }
+    private ConcurrentMap<String, byte[]> getNormsDB(){
+        String key = NORMS_FILE.concat(".").concat(NORMS_MAP);
+        return dbMap.computeIfAbsent(key, k -> NORMS_DB
+                .hashMap(NORMS_MAP, Serializer.STRING, Serializer.BYTE_ARRAY)
+                .createOrOpen());
+    }
 
-        return dbMap.get(key);
+    private ConcurrentMap<String, byte[]> getDocValuesDB(){
+        String key = NORMS_FILE.concat(".").concat(DOC_VALUES_MAP);
+        return dbMap.computeIfAbsent(key, k -> NORMS_DB
+                .hashMap(DOC_VALUES_MAP, Serializer.STRING, Serializer.BYTE_ARRAY)
+                .createOrOpen());
     }
 
-    private ConcurrentMap<String, byte[]> getPostingsDB(String fieldName){
+    private ConcurrentMap<Long, byte[]> getPostingsDB(String fieldName){
         String key = POSTINGS_FILE.concat(".").concat(fieldName);
-        if(!dbMap.containsKey(key)) {
-            ConcurrentMap<String, byte[]> map = POSTINGS_DB
-                    .hashMap(fieldName, Serializer.STRING, Serializer.BYTE_ARRAY)
-                    .createOrOpen();
-            dbMap.put(key,map);
-        }
-        return dbMap.get(key);
+        return dbMap.computeIfAbsent(key, k -> POSTINGS_DB
+                .hashMap(fieldName, Serializer.LONG, Serializer.BYTE_ARRAY)
+                .createOrOpen());
+    }
+
+    private ConcurrentMap<String, byte[]> getTermsDB(){
+        String key = POSTINGS_FILE.concat(".").concat(TERMS_MAP);
+        return dbMap.computeIfAbsent(key, k -> POSTINGS_DB
+                .hashMap(TERMS_MAP, Serializer.STRING, Serializer.BYTE_ARRAY)
+                .createOrOpen());
     }
 
-    private ConcurrentMap<String, String> getStoreDB(String fieldName){
-        String key = NORMS_FILE.concat(".").concat(fieldName);
-        if(!dbMap.containsKey(key)) {
-            ConcurrentMap<String, String> map = STORED_DB
-                    .hashMap(fieldName, Serializer.STRING, Serializer.STRING)
-                    .createOrOpen();
-            dbMap.put(key,map);
+    /**
+     * sorted term dictionaries of the fields, they are decoded only once
+     */
+    protected final Map<String, FrontCodedTermDictionary> termDictionaries = new HashMap<>();
+
+    /**
+     * @param fieldName name of the field
+     * @return sorted dictionary of the terms written for the field, empty if there is none
+     */
+    protected FrontCodedTermDictionary getTermDictionary(String fieldName) throws CorruptIndexException {
+        FrontCodedTermDictionary terms = termDictionaries.get(fieldName);
+        if (terms == null) {
+            byte[] data = getTermsDB().get(fieldName);
+            terms = data == null ? FrontCodedTermDictionary.empty() : termsCodec.decode(data);
+            termDictionaries.put(fieldName, terms);
         }
-        return dbMap.get(key);
+        return terms;
+    }
+
+    private ConcurrentMap<Integer, String> getStoreDB(String fieldName){
+        String key = STORED_CONTENT_FILE.concat(".").concat(fieldName);
+        return dbMap.computeIfAbsent(key, k -> STORED_DB
+                .hashMap(fieldName, Serializer.INTEGER, Serializer.STRING)
+                .createOrOpen());
+    }
+
+    private ConcurrentMap<Integer, String> getExternalIdsDB(){
+        String key = STORED_CONTENT_FILE.concat(".").concat(EXTERNAL_IDS_MAP);
+        return dbMap.computeIfAbsent(key, k -> STORED_DB
+                .hashMap(EXTERNAL_IDS_MAP, Serializer.INTEGER, Serializer.STRING)
+                .createOrOpen());
     }
 
+    private ConcurrentMap<String, Integer> getInternalIdsDB(){
+        String key = STORED_CONTENT_FILE.concat(".").concat(INTERNAL_IDS_MAP);
+        return dbMap.computeIfAbsent(key, k -> STORED_DB
+                .hashMap(INTERNAL_IDS_MAP, Serializer.STRING, Serializer.INTEGER)
+                .createOrOpen());
+    }
+
+
 
+    /**
+     * encodes the postings lists stored in the postings db
+     */
+    protected final BinaryPostingsCodec postingsCodec = new BinaryPostingsCodec();
+
+    /**
+     * encodes the term dictionaries stored in the postings db
+     */
+    protected final TermDictionaryCodec termsCodec = new TermDictionaryCodec();
 
-    public void removeField(final String documentId, final Field field) throws IOException, ClassNotFoundException {
-        ConcurrentMap<String, byte[]> dictionary = getPostingsDB(field.name());
+    /**
+     * postings read last, with the headers of their blocks already read, null to read them from the db every time
+     */
+    protected PostingsCache postingsCache = new PostingsCache();
+
+    public PostingsCache getPostingsCache() {
+        return postingsCache;
+    }
+
+    /**
+     * @param postingsCache cache of the postings read, null to disable it
+     */
+    public void setPostingsCache(final PostingsCache postingsCache) {
+        this.postingsCache = postingsCache;
+    }
+
+    public void removeField(final int documentId, final Field field) throws IOException, CorruptIndexException {
+        ConcurrentMap<Long, byte[]> dictionary = getPostingsDB(field.name());
+        FrontCodedTermDictionary terms = getTermDictionary(field.name());
+        //postings left are encoded again, the impacts of their blocks need the norms
+        byte[] fieldNorms = getNormsDB().get(field.name());
+        Norms norms = fieldNorms == null ? Norms.EMPTY : new ByteNorms(ByteBuffer.wrap(fieldNorms));
         if (field.isStored()) {
             getStoreDB(field.name()).remove(documentId);
         }else if(field.isIndexed()){
             //identifiers or keywords can be indexed without being tokenized
             if (!field.isTokenized()) {
-                removePosting(dictionary, field.data(), documentId);
+                removePosting(dictionary, field.name(), terms.get(field.data()), documentId, norms);
             } else {
                 //get the stream that  provides the terms
                 Parser parser = field.getParser();
@@ -131,28 +215,30 @@ public class DbFileDirectory implements Directory {
                 while (stream.hasMoreTokens()) {
                     String token = stream.out();
                     if (token.length() > 0) {
-                        removePosting(dictionary, token, documentId);
+                        removePosting(dictionary, field.name(), terms.get(token), documentId, norms);
                     }
                 }
 
             }
 
         }
-
-        getDocumentNormsDB(field.name()).remove(documentId);
+        //the norm is left as it is, no posting points to the document anymore
     }
 
-    private boolean removePosting(ConcurrentMap<String, byte[]> dictionary, String term, String documentId) throws IOException, ClassNotFoundException {
-        byte[] bytes = dictionary.get(term);
+    private boolean removePosting(ConcurrentMap<Long, byte[]> dictionary, String fieldName, long pointer, int documentId, Norms norms) throws CorruptIndexException {
+        if(pointer == TermDictionary.NOT_FOUND) return false;
+        byte[] bytes = dictionary.get(pointer);
         if(null == bytes) return false;
-        List<Posting> postings = SerializeUtil.toListObject(bytes);
-        boolean b = postings.removeIf(posting -> posting.getDocumentId().equals(documentId));
+        PostingsList postings = postingsCodec.decode(bytes);
+        boolean b = postings.remove(documentId);
         if(b){
+            //the term is kept in the dictionary even when it has no more postings, so pointers don't change
             if(postings.isEmpty()){
-                dictionary.remove(term);
+                dictionary.remove(pointer);
             }else{
-                dictionary.put(term,SerializeUtil.toByteArrayList(postings));
+                dictionary.put(pointer, postingsCodec.encode(postings, norms));
             }
+            invalidatePostings(fieldName, pointer);
         }
         return b;
     }
@@ -167,9 +253,10 @@ public class DbFileDirectory implements Directory {
 
         //for every field store a file
         for(String fieldName: indexedFields) {
-            Map<String, Integer> documentNorms = index.getDocumentNorms(fieldName);
-
-            getDocumentNormsDB(fieldName).putAll(documentNorms);
+            //norms of the field are a single array, new documents are added to the one already written
+            byte[] norms = ByteNorms.encode(getNormsDB().get(fieldName), index.getDocumentNorms(fieldName));
+            getNormsDB().put(fieldName, norms);
+            index.setWrittenNorms(fieldName, new ByteNorms(ByteBuffer.wrap(norms)));
 
             writePostings(index, fieldName);
             indexedFields.add(fieldName);
@@ -178,8 +265,41 @@ public class DbFileDirectory implements Directory {
         Set<String> storedFields = index.getFieldNamesByOption(FieldInfo.STORED);
         //for every stored field
         for(String fieldName: storedFields) {
-            getStoreDB(fieldName).putAll(index.getStoredDocuments(fieldName));
+            ConcurrentMap<Integer, String> store = getStoreDB(fieldName);
+            store.putAll(index.getStoredDocuments(fieldName));
+            //documents released from memory are read from the db
+            index.setWrittenStored(fieldName, store::get);
+        }
+        //the column of every field with doc values is written again, with the values in memory merged
+        for (String fieldName : index.getFieldNamesByOption(FieldInfo.DOC_VALUES)) {
+            Map<Integer, String> values = index.getDocValuesDocuments(fieldName);
+            if (values.isEmpty()) {
+                continue;
+            }
+            byte[] written = getDocValuesDB().get(fieldName);
+            byte[] docValues = SortedDocValues.encode(written == null ? null : new SortedDocValues(ByteBuffer.wrap(written)), values);
+            getDocValuesDB().put(fieldName, docValues);
+            index.setWrittenDocValues(fieldName, new SortedDocValues(ByteBuffer.wrap(docValues)));
+        }
+        //results are translated back to external ids using this table
+        DocIdMap docIdMap = index.getDocIdMap();
+        if (docIdMap.getExternalIds() != getExternalIdsDB()) {
+            getExternalIdsDB().putAll(docIdMap.getExternalIds());
+            getInternalIdsDB().putAll(docIdMap.getInternalIds());
+        }
+        //documents removed after they were written are unmapped, so the index opened again knows they were removed
+        for (Map.Entry<Integer, String> entry : docIdMap.getRemovedIds().entrySet()) {
+            getInternalIdsDB().remove(entry.getValue(), entry.getKey());
         }
+        //from now on the ids are mapped in the table written, as when the index is read, so the ones in memory are
+        //released and the documents written can still be found once the index is cleared
+        if (docIdMap.getExternalIds() != getExternalIdsDB()) {
+            DocIdMap written = new DocIdMap(getExternalIdsDB(), getInternalIdsDB(), docIdMap.getRemovedIds());
+            written.skipTo(docIdMap.getNextId());
+            index.setDocIdMap(written);
+        }
+        //fields with positions are also kept, so postings of new documents have positions too
+        index.getFieldNamesByOption(FieldInfo.POSITIONS);
         //to reload index from disk, it's necessary to keep a file with names of the fields that are indexed and stored
         FieldConfigFile fiFile = new FieldConfigFile(this.directoryPath.concat(DbFileDirectory.FIELDS_CONFIG_FILE), new FieldConfigCodec());
         fiFile.delete();
@@ -189,22 +309,36 @@ public class DbFileDirectory implements Directory {
 
 
     /**
-     * write the files containing the postings data. since there's too much info to save it in one single file, every
-     * block is saved to a file, and identified by the first 2 letters of the terms the block is keeping
+     * write the postings data. Postings of every term are stored under the pointer assigned by the sorted term
+     * dictionary, which is also stored. If the term was already written, new postings are appended to the old ones
      * @param index the index
      */
-    protected void writePostings(Index index, String fieldName) throws IOException {
+    protected void writePostings(Index index, String fieldName) throws IOException, CorruptIndexException {
         PostingsDictionary dictionary = index.getPostingsDictionary(fieldName);
-        ConcurrentMap<String, byte[]> postingsDB = getPostingsDB(fieldName);
-
-        for (HashMap<String, List<Posting>> b : dictionary.getPostingsBlocksDictionary().values()) {
-
-            for (Map.Entry<String, List<Posting>> entry : b.entrySet()) {
-                postingsDB.put(entry.getKey(), SerializeUtil.toByteArrayList(entry.getValue()));
+        ConcurrentMap<Long, byte[]> postingsDB = getPostingsDB(fieldName);
+        if (dictionary.getTermDictionary().size() == 0) {
+            //terms already written keep their pointers
+            dictionary.setTermDictionary(getTermDictionary(fieldName));
+        }
+        Norms norms = index.getNorms(fieldName);
+        FrontCodedTermDictionary terms = dictionary.mergeTermDictionary(norms);
+
+        for (Map.Entry<String, PostingsList> entry : dictionary.getPostingsByTerm().entrySet()) {
+            long pointer = terms.get(entry.getKey());
+            PostingsList postings = entry.getValue();
+            byte[] written = postingsDB.get(pointer);
+            if (written != null) {
+                PostingsList merged = postingsCodec.decode(written);
+                merged.addAll(postings);
+                postings = merged;
             }
-
+            postingsDB.put(pointer, postingsCodec.encode(postings, norms));
+            invalidatePostings(fieldName, pointer);
         }
-
+        getTermsDB().put(fieldName, termsCodec.encode(terms));
+        termDictionaries.put(fieldName, terms);
+        //postings in memory are in the files now
+        dictionary.setWrittenTermDictionary(terms);
     }
 
     /**
@@ -212,12 +346,16 @@ public class DbFileDirectory implements Directory {
      * @return the index with the necessary data to start a search
      */
     public Index read(Index index) throws IOException, CorruptIndexException {
+        //postings cached could belong to other index
+        if (postingsCache != null) {
+            postingsCache.clear();
+        }
         //init HashMaps that will keep the index
-        Map<String, Map<String, Integer>> norms = new HashMap<>();
+        Map<String, Norms> norms = new HashMap<>();
 
         HashMap<String, PostingsDictionary> dictionary = new HashMap<>();
 
-        Map<String, Map<String, String>> stored = new HashMap<>();
+        Map<String, Map<Integer, String>> stored = new HashMap<>();
 
         //now load fields config info
         FieldConfigFile fiFile = new FieldConfigFile(this.directoryPath.concat(DbFileDirectory.FIELDS_CONFIG_FILE), new FieldConfigCodec());
@@ -229,14 +367,31 @@ public class DbFileDirectory implements Directory {
         }
 
         Set<String> indexedFields = fields.get(FieldInfo.INDEXED);
+        Set<String> positionsFields = fields.get(FieldInfo.POSITIONS);
         for(String fieldName: indexedFields) {
-            norms.put(fieldName, getDocumentNormsDB(fieldName));
-
-            //leave dictionary empty, data will be loaded dynamically when needed
-            PostingsDictionary fieldDictionary = new PostingsDictionary();
+            //norms of the field are read in one go
+            byte[] fieldNorms = getNormsDB().get(fieldName);
+            norms.put(fieldName, new ByteNorms(ByteBuffer.wrap(fieldNorms == null ? new byte[0] : fieldNorms)));
+
+            //only the sorted terms are loaded, postings will be loaded dynamically when needed
+            PostingsDictionary fieldDictionary = new PostingsDictionary(index.isConcurrent());
+            fieldDictionary.setPositions(positionsFields != null && positionsFields.contains(fieldName));
+            fieldDictionary.setTermDictionary(getTermDictionary(fieldName));
             dictionary.put(fieldName, fieldDictionary);
         }
 
+        Map<String, SortedDocValues> docValues = new HashMap<>();
+        Set<String> docValuesFields = fields.get(FieldInfo.DOC_VALUES);
+        if (docValuesFields != null) {
+            for (String fieldName : docValuesFields) {
+                //doc values of the field are read in one go, as the norms
+                byte[] fieldDocValues = getDocValuesDB().get(fieldName);
+                if (fieldDocValues != null) {
+                    docValues.put(fieldName, new SortedDocValues(ByteBuffer.wrap(fieldDocValues)));
+                }
+            }
+        }
+
         Set<String> storedFields = fields.get(FieldInfo.STORED);
         if(null != storedFields){
             //for every  stored field, load stored field file
@@ -246,47 +401,121 @@ public class DbFileDirectory implements Directory {
         }
 
         //at this point, we have already all what we need to start, set data in the index and return it
-        index.setNormsByDocument(norms);
+        index.setNormsByDocument(new HashMap<>());
+        for (Map.Entry<String, Norms> entry : norms.entrySet()) {
+            index.setWrittenNorms(entry.getKey(), entry.getValue());
+        }
         index.setPostingsDictionary(dictionary);
         index.setStoredByDocument(stored);
+        index.setDocValuesByDocument(new HashMap<>());
+        for (Map.Entry<String, SortedDocValues> entry : docValues.entrySet()) {
+            index.setWrittenDocValues(entry.getKey(), entry.getValue());
+        }
         index.setFieldNamesByOption(fields);
+        //ids table is not loaded in memory, external ids are read from disk only for the results
+        index.setDocIdMap(new DocIdMap(getExternalIdsDB(), getInternalIdsDB()));
         return index;
     }
 
     /**
-     * read a file corresponding to a postings block, parse the data and add it to the dictionary
-     * @param dictionary PostingsDictionary where the data will be loaded
+     * read the postings of a term from the db and decode them
+     * postings are not kept in the dictionary, since they can change when documents are removed
+     * @param dictionary PostingsDictionary of the field
      * @param fieldName name of the field
-     * @param term which block is going to be loaded
-     * @return the dictionary containing the data extracted from the file
+     * @param term term whose postings are read
+     * @return the postings list of the term, null if the term is not in the index
      * @throws IOException
      * @throws CorruptIndexException
      */
     @Override
-    public PostingsDictionary readPostingsBlock(PostingsDictionary dictionary, String fieldName, String term) throws IOException {
-        ConcurrentMap<String, byte[]> postingsDB = getPostingsDB(fieldName);
+    public PostingsList readPostings(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException {
+        long pointer = dictionary.getTermDictionary().get(term);
+        if (pointer == TermDictionary.NOT_FOUND) {
+            return null;
+        }
+        byte[] postings =  getPostingsDB(fieldName).get(pointer);
+        if(null == postings || postings.length == 0){
+            return null;
+        }
+        return postingsCodec.decode(postings);
+    }
 
-        String key = dictionary.getKeyForTerm(term);
+    /**
+     * read the postings of a term in place, without decoding them: blocks are only decoded when the cursor gets to
+     * them, and their impacts let the scorers skip the ones that can't be competitive. The postings read are kept in
+     * the PostingsCache, so the terms searched often are read from the db once
+     * @param dictionary PostingsDictionary of the field
+     * @param fieldName name of the field
+     * @param term term whose postings are read
+     * @return cursor over the postings of the term, null if the term is not in the index
+     */
+    @Override
+    public PostingsCursor readPostingsCursor(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException {
+        long pointer = dictionary.getTermDictionary().get(term);
+        if (pointer == TermDictionary.NOT_FOUND) {
+            return null;
+        }
+        PostingsCache cache = postingsCache;
+        if (cache == null) {
+            byte[] postings = getPostingsDB(fieldName).get(pointer);
+            if (null == postings || postings.length == 0) {
+                return null;
+            }
+            return postingsCodec.cursor(postings);
+        }
+        BlockPostings postings = cache.get(fieldName, pointer);
+        if (postings == null) {
+            //the version is read first, so postings written meanwhile are not cached
+            long version = cache.version();
+            byte[] bytes = getPostingsDB(fieldName).get(pointer);
+            if (null == bytes || bytes.length == 0) {
+                return null;
+            }
+            postings = postingsCodec.read(bytes);
+            cache.put(fieldName, pointer, postings, version);
+        }
+        return postings.cursor();
+    }
 
-        byte[] postings =  postingsDB.get(term);
+    /**
+     * drop the cached postings of a term, after they have been written or removed
+     */
+    protected void invalidatePostings(final String fieldName, final long pointer) {
+        PostingsCache cache = postingsCache;
+        if (cache != null) {
+            cache.invalidate(fieldName, pointer);
+        }
+    }
 
-        HashMap<String, List<Posting>> hashMap = new HashMap<>();
-        try {
-            if(null != postings && postings.length > 0){
-                hashMap.put(term, new LinkedList<>(SerializeUtil.toListObject(postings)));
-            }
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+    /**
+     * @return one more than the highest id in the table of ids, 0 if it hasn't been written
+     */
+    @Override
+    public int nextDocumentId() throws IOException, CorruptIndexException {
+        int nextId = 0;
+        for (Integer docId : getExternalIdsDB().keySet()) {
+            nextId = Math.max(nextId, docId + 1);
         }
-        dictionary.getPostingsBlocksDictionary().put(key,hashMap );
+        return nextId;
+    }
 
-        return dictionary;
+    /**
+     * @return the internal id mapped to the external id in the table of ids, -1 if there's none or the document
+     * has been removed
+     */
+    @Override
+    public int documentId(final String externalId) throws IOException, CorruptIndexException {
+        Integer docId = getInternalIdsDB().get(externalId);
+        return docId == null ? -1 : docId;
     }
 
     /**
      * delete index files
      */
     public void reset() throws IOException, CorruptIndexException {
+        if (postingsCache != null) {
+            postingsCache.clear();
+        }
         File folder = new File(this.directoryPath);
         //if the directory does not exist, create it
         if (!folder.exists()) {
@@ -310,8 +539,6 @@ public class DbFileDirectory implements Directory {
         HashSet<String> indexedFields = index.getFieldNamesByOption(FieldInfo.INDEXED);
         //for every field store a file
         for(String fieldName: indexedFields) {
-            NormsFile fNorms = new NormsFile(this.directoryPath.concat(DbFileDirectory.NORMS_FILE).concat(fieldName), new NormsCodec());
-            fNorms.close();
             PostingsFile pFile = new PostingsFile(this.directoryPath.concat(DbFileDirectory.POSTINGS_FILE).concat(fieldName), new PostingsCodec());
             pFile.close();
         }
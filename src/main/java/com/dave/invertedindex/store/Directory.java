@@ -2,7 +2,9 @@ package com.dave.invertedindex.store;
 
 import com.dave.invertedindex.index.CorruptIndexException;
 import com.dave.invertedindex.index.Index;
+import com.dave.invertedindex.index.PostingsCursor;
 import com.dave.invertedindex.index.PostingsDictionary;
+import com.dave.invertedindex.index.PostingsList;
 
 import java.io.IOException;
 
@@ -23,7 +25,41 @@ public interface Directory {
      */
     public Index read(Index index) throws IOException, CorruptIndexException;
 
-    public PostingsDictionary readPostingsBlock(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException;
+    /**
+     * read the postings list of a term from disk
+     * @param dictionary dictionary of the field, its TermDictionary tells where the postings are stored
+     * @param fieldName name of the field
+     * @param term term whose postings are read
+     * @return the postings list, null if the term is not in the index
+     */
+    public PostingsList readPostings(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException;
+
+    /**
+     * read the postings of a term from disk to iterate over them. By default the postings list is read and a cursor
+     * over it is returned, directories with a block format can read it in place
+     * @param dictionary dictionary of the field, its TermDictionary tells where the postings are stored
+     * @param fieldName name of the field
+     * @param term term whose postings are read
+     * @return cursor over the postings, null if the term is not in the index
+     */
+    public default PostingsCursor readPostingsCursor(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException {
+        PostingsList postings = readPostings(dictionary, fieldName, term);
+        return postings == null ? null : postings.cursor();
+    }
+
+    /**
+     * @return the first internal document id which has not been written, 0 if there are no documents. A writer
+     * adding documents to an index already written starts from it, so ids written are not reused
+     */
+    public int nextDocumentId() throws IOException, CorruptIndexException;
+
+    /**
+     * look up a document in the table of ids written, ie, when its id is not in memory since it was written by other
+     * writer
+     * @param externalId id of the document given by the user
+     * @return the internal id of the document, -1 if it has not been written or it has been removed
+     */
+    public int documentId(String externalId) throws IOException, CorruptIndexException;
 
     /**
      * reset the index, ie, delete all files stored in disk
@@ -0,0 +1,241 @@
+package com.dave.invertedindex.store;
+
+import com.dave.invertedindex.store.codec.BlockPostings;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the postings of the terms read last by a Directory, with the headers of their blocks already read, so the
+ * terms searched often are not read from disk on every search. Entries are keyed by field and pointer of the term,
+ * and weighted by their number of postings, the cache never holds more than maxWeight postings.
+ *
+ * Lookups don't take any lock: they only mark the entry as referenced. When the cache is full, entries are evicted
+ * in the order they were added, but the ones referenced since the last time they were checked get a second chance
+ * (CLOCK), so hot terms stay in the cache.
+ *
+ * Postings written must invalidate their entry. Since a search can read postings from disk while they are being
+ * written, the postings read are only added if no entry has been invalidated since the read started, see version()
+ */
+public class PostingsCache {
+
+    /**
+     * default max number of postings kept
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 4L * 1024 * 1024;
+
+    /**
+     * key of an entry: the field, and the pointer of the term in its TermDictionary
+     */
+    protected static class Key {
+
+        protected final String fieldName;
+
+        protected final long pointer;
+
+        protected Key(final String fieldName, final long pointer) {
+            this.fieldName = fieldName;
+            this.pointer = pointer;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return pointer == other.pointer && fieldName.equals(other.fieldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fieldName.hashCode() + Long.hashCode(pointer);
+        }
+    }
+
+    protected static class Entry {
+
+        protected final Key key;
+
+        protected final BlockPostings postings;
+
+        protected final long weight;
+
+        /**
+         * set by every lookup, cleared when the entry gets a second chance
+         */
+        protected volatile boolean referenced = false;
+
+        protected Entry(final Key key, final BlockPostings postings, final long weight) {
+            this.key = key;
+            this.postings = postings;
+            this.weight = weight;
+        }
+    }
+
+    protected final long maxWeight;
+
+    protected final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * entries in the order they are checked for eviction. It can also hold entries already replaced or invalidated,
+     * which are skipped. Guarded by this
+     */
+    protected final ArrayDeque<Entry> clock = new ArrayDeque<>();
+
+    /**
+     * number of postings in the cache. Guarded by this
+     */
+    protected long weight = 0;
+
+    /**
+     * incremented by every invalidation
+     */
+    protected volatile long version = 0;
+
+    protected final LongAdder hitCount = new LongAdder();
+
+    protected final LongAdder missCount = new LongAdder();
+
+    protected final LongAdder evictionCount = new LongAdder();
+
+    public PostingsCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxWeight max number of postings kept
+     */
+    public PostingsCache(final long maxWeight) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("cache size must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param fieldName name of the field
+     * @param pointer pointer of the term
+     * @return the postings of the term, null if they are not cached
+     */
+    public BlockPostings get(final String fieldName, final long pointer) {
+        Entry entry = entries.get(new Key(fieldName, pointer));
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hitCount.increment();
+        return entry.postings;
+    }
+
+    /**
+     * @return version to pass to put, it has to be read before reading the postings
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @param fieldName name of the field
+     * @param pointer pointer of the term
+     * @param postings postings of the term
+     * @param version value of version() before the postings were read
+     */
+    public synchronized void put(final String fieldName, final long pointer, final BlockPostings postings, final long version) {
+        long entryWeight = Math.max(postings.size(), 1);
+        if (version != this.version || entryWeight > maxWeight) {
+            //some postings have been written since these were read, they could be stale
+            return;
+        }
+        Key key = new Key(fieldName, pointer);
+        Entry entry = new Entry(key, postings, entryWeight);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        clock.addLast(entry);
+        weight += entryWeight;
+        evict();
+        if (clock.size() > 2 * entries.size() + 16) {
+            //forget the entries replaced or invalidated, so the clock doesn't grow without bounds
+            clock.removeIf(e -> entries.get(e.key) != e);
+        }
+    }
+
+    /**
+     * evict entries until the weight is within maxWeight. Must be called holding the lock
+     */
+    protected void evict() {
+        while (weight > maxWeight && !clock.isEmpty()) {
+            Entry entry = clock.pollFirst();
+            if (entries.get(entry.key) != entry) {
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.addLast(entry);
+                continue;
+            }
+            entries.remove(entry.key);
+            weight -= entry.weight;
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * remove the postings of a term, once they have been written again or removed
+     * @param fieldName name of the field
+     * @param pointer pointer of the term
+     */
+    public synchronized void invalidate(final String fieldName, final long pointer) {
+        version++;
+        Entry entry = entries.remove(new Key(fieldName, pointer));
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    /**
+     * remove all the entries
+     */
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+        clock.clear();
+        weight = 0;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of postings in the cache
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return number of lookups which found the postings in the cache
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return number of lookups which didn't find the postings in the cache
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return number of entries evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+}
@@ -1,15 +1,23 @@
 package com.dave.invertedindex.store;
 
+import com.dave.invertedindex.document.Field;
 import com.dave.invertedindex.document.FieldInfo;
 import com.dave.invertedindex.index.*;
+import com.dave.invertedindex.parse.DataStream;
+import com.dave.invertedindex.parse.Parser;
+import com.dave.invertedindex.store.codec.DocIdsCodec;
 import com.dave.invertedindex.store.codec.FieldConfigCodec;
-import com.dave.invertedindex.store.codec.NormsCodec;
 import com.dave.invertedindex.store.codec.PostingsCodec;
 import com.dave.invertedindex.store.codec.StoredFieldsCodec;
+import com.dave.invertedindex.store.codec.TermDictionaryCodec;
+import com.dave.invertedindex.store.file.DocIdsFile;
+import com.dave.invertedindex.store.file.DocValuesFile;
 import com.dave.invertedindex.store.file.FieldConfigFile;
 import com.dave.invertedindex.store.file.NormsFile;
 import com.dave.invertedindex.store.file.PostingsFile;
 import com.dave.invertedindex.store.file.StoredFieldsFile;
+import com.dave.invertedindex.store.file.StoredFieldsOffsets;
+import com.dave.invertedindex.store.file.TermsFile;
 import com.dave.invertedindex.util.Logger;
 
 import java.io.File;
@@ -28,6 +36,15 @@ public class TxtFileDirectory implements Directory {
     protected static final String NORMS_FILE = "norms.";
     protected static final String POSTINGS_FILE = "postings.";
     protected static final String STORED_CONTENT_FILE = "stored.";
+    protected static final String DOC_IDS_FILE = "docids";
+    protected static final String DELETED_DOC_IDS_FILE = "docids.deleted";
+    protected static final String TERMS_FILE = "terms.";
+    protected static final String DOC_VALUES_FILE = "docvalues.";
+
+    /**
+     * postings are saved in blocks of 2^BLOCK_SHIFT terms, the block of a term is given by its postings pointer
+     */
+    protected static final int BLOCK_SHIFT = 7;
 
     /**
      * path where the directory files are
@@ -46,8 +63,10 @@ public class TxtFileDirectory implements Directory {
         HashSet<String> indexedFields = index.getFieldNamesByOption(FieldInfo.INDEXED);
         //for every field store a file
         for(String fieldName: indexedFields) {
-            NormsFile fNorms = new NormsFile(this.directoryPath.concat(TxtFileDirectory.NORMS_FILE).concat(fieldName), new NormsCodec());
+            NormsFile fNorms = new NormsFile(this.directoryPath.concat(TxtFileDirectory.NORMS_FILE).concat(fieldName));
             fNorms.write(index.getDocumentNorms(fieldName));
+            //map the file again, since it may have grown
+            index.setWrittenNorms(fieldName, fNorms.read());
             writePostings(index, fieldName);
             indexedFields.add(fieldName);
         }
@@ -55,10 +74,47 @@ public class TxtFileDirectory implements Directory {
         Set<String> storedFields = index.getFieldNamesByOption(FieldInfo.STORED);
         //for every stored field
         for(String fieldName: storedFields) {
-            StoredFieldsFile fStored = new StoredFieldsFile(this.directoryPath.concat(TxtFileDirectory.STORED_CONTENT_FILE).concat(fieldName), new StoredFieldsCodec());
+            String storedPath = this.directoryPath.concat(TxtFileDirectory.STORED_CONTENT_FILE).concat(fieldName);
+            StoredFieldsFile fStored = new StoredFieldsFile(storedPath, new StoredFieldsCodec());
             fStored.write(index.getStoredDocuments(fieldName));
+            //documents released from memory are read from the file, only the entries just appended are read again
+            StoredFields written = index.getWrittenStored(fieldName);
+            StoredFieldsOffsets offsets = written instanceof StoredFieldsOffsets
+                    && ((StoredFieldsOffsets) written).getPath().equals(storedPath)
+                    ? (StoredFieldsOffsets) written : new StoredFieldsOffsets(storedPath);
+            offsets.update();
+            index.setWrittenStored(fieldName, offsets);
             storedFields.add(fieldName);
         }
+        //the column of every field with doc values is written again, with the values in memory merged
+        for (String fieldName : index.getFieldNamesByOption(FieldInfo.DOC_VALUES)) {
+            Map<Integer, String> values = index.getDocValuesDocuments(fieldName);
+            if (values.isEmpty()) {
+                continue;
+            }
+            DocValuesFile fDocValues = new DocValuesFile(this.directoryPath.concat(TxtFileDirectory.DOC_VALUES_FILE).concat(fieldName));
+            fDocValues.write(SortedDocValues.encode(fDocValues.read(), values));
+            index.setWrittenDocValues(fieldName, fDocValues.read());
+        }
+        //results are translated back to external ids using this table
+        DocIdsFile fDocIds = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DOC_IDS_FILE), new DocIdsCodec());
+        //the file is appended, the ids are kept in memory but only the new ones are written
+        fDocIds.write(index.getDocIdMap().getUnwrittenIds());
+        index.getDocIdMap().setWritten();
+        //documents removed are still counted by the term dictionaries, the table of ids is appended, so they are
+        //kept apart, and the file is written again with all of them, also the ones removed by other writers
+        Map<Integer, String> removedIds = index.getDocIdMap().getRemovedIds();
+        DocIdsFile fDeleted = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DELETED_DOC_IDS_FILE), new DocIdsCodec());
+        HashMap<Integer, String> writtenRemovedIds = (HashMap<Integer, String>)fDeleted.read();
+        if (writtenRemovedIds != null) {
+            removedIds.putAll(writtenRemovedIds);
+        }
+        fDeleted.delete();
+        if (!removedIds.isEmpty()) {
+            fDeleted.write(removedIds);
+        }
+        //fields with positions are also kept, so postings of new documents have positions too
+        index.getFieldNamesByOption(FieldInfo.POSITIONS);
         //to reload index from disk, it's necessary to keep a file with names of the fields that are indexed and stored
         FieldConfigFile fiFile = new FieldConfigFile(this.directoryPath.concat(TxtFileDirectory.FIELDS_CONFIG_FILE), new FieldConfigCodec());
         fiFile.write(index.getFieldNamesByOption());
@@ -68,23 +124,131 @@ public class TxtFileDirectory implements Directory {
 
     /**
      * write the files containing the postings data. since there's too much info to save it in one single file, every
-     * block is saved to a file, and identified by the first 2 letters of the terms the block is keeping
+     * block is saved to a file, and identified by the number of the block. Terms are assigned to blocks by their
+     * postings pointer, which the sorted term dictionary keeps for every term
      * @param index the index
      */
     protected void writePostings(Index index, String fieldName) throws IOException, CorruptIndexException {
-        //reuse same object to write all files, to reduce memory overhead and avoid problems with GC
-        PostingsFile pFile = new PostingsFile("", new PostingsCodec());
+        PostingsDictionary dictionary = index.getPostingsDictionary(fieldName);
+        TermsFile tFile = new TermsFile(this.directoryPath.concat(TxtFileDirectory.TERMS_FILE).concat(fieldName), new TermDictionaryCodec());
+        //terms already written to disk keep their pointers
+        readTermDictionary(dictionary, tFile);
+        FrontCodedTermDictionary terms = dictionary.mergeTermDictionary(index.getNorms(fieldName));
+
+        //group the postings by the block where they have to be written
+        HashMap<Long, HashMap<String, PostingsList>> blocks = new HashMap<>();
+        for (Map.Entry<String, PostingsList> entry : dictionary.getPostingsByTerm().entrySet()) {
+            long block = terms.get(entry.getKey()) >>> BLOCK_SHIFT;
+            blocks.computeIfAbsent(block, k -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+        }
+
         //al files will have this prefix
         String fileName = this.directoryPath.concat(TxtFileDirectory.POSTINGS_FILE).concat(fieldName);
-        PostingsDictionary dictionary = index.getPostingsDictionary(fieldName);
-        for(Map.Entry entry : dictionary.getPostingsBlocksDictionary().entrySet()) {
-            String key = (String)entry.getKey();
-            HashMap<String, List<Posting>> block = (HashMap<String, List<Posting>>) entry.getValue();
-            //sufix for fileName is the block key
-            String blockFileName = fileName.concat("_").concat(key);
-            pFile.setPath(blockFileName);
+        for (Map.Entry<Long, HashMap<String, PostingsList>> entry : blocks.entrySet()) {
+            //sufix for fileName is the block number
+            String blockFileName = fileName.concat("_").concat(Long.toString(entry.getKey()));
+            PostingsFile pFile = new PostingsFile(blockFileName, new PostingsCodec());
+            //if the block was already written, new postings are appended to the ones of the terms already there
+            HashMap<String, PostingsList> block = (HashMap<String, PostingsList>) pFile.read();
+            if (block == null) {
+                block = entry.getValue();
+            } else {
+                for (Map.Entry<String, PostingsList> postings : entry.getValue().entrySet()) {
+                    PostingsList written = block.get(postings.getKey());
+                    if (written == null) {
+                        block.put(postings.getKey(), postings.getValue());
+                    } else {
+                        written.addAll(postings.getValue());
+                    }
+                }
+                pFile.delete();
+            }
             pFile.write(block);
         }
+        tFile.write(terms);
+        //postings in memory are in the files now
+        dictionary.setWrittenTermDictionary(terms);
+    }
+
+    /**
+     * set the term dictionary written as the one of the dictionary, unless it has one already, ie, when documents
+     * are added or removed by a writer which has not read the index
+     */
+    protected void readTermDictionary(final PostingsDictionary dictionary, final TermsFile tFile) throws IOException, CorruptIndexException {
+        if (dictionary.getTermDictionary().size() == 0) {
+            FrontCodedTermDictionary written = tFile.read();
+            if (written != null) {
+                dictionary.setTermDictionary(written);
+            }
+        }
+    }
+
+    /**
+     * remove the postings of a document from the blocks already written, the ones in memory are removed by
+     * FieldIndexer. As in DbFileDirectory, the number of documents of the terms is left as it is
+     * @param index the index, its term dictionaries tell where the postings are
+     * @param documentId internal id of the document
+     * @param field a field of the document
+     */
+    public void removeField(final Index index, final int documentId, final Field field) throws IOException, CorruptIndexException {
+        if (!field.isIndexed() || field.data() == null) {
+            return;
+        }
+        PostingsDictionary dictionary = index.getPostingsDictionary(field.name());
+        if (dictionary == null) {
+            return;
+        }
+        readTermDictionary(dictionary, new TermsFile(this.directoryPath.concat(TxtFileDirectory.TERMS_FILE).concat(field.name()), new TermDictionaryCodec()));
+        Set<String> tokens = new HashSet<>();
+        //identifiers or keywords can be indexed without being tokenized
+        if (!field.isTokenized()) {
+            tokens.add(field.data());
+        } else {
+            Parser parser = field.getParser();
+            DataStream stream = parser.dataStream(field.name(), field.data());
+            stream.start();
+            while (stream.hasMoreTokens()) {
+                String token = stream.out();
+                if (token.length() > 0) {
+                    tokens.add(token);
+                }
+            }
+        }
+
+        //group the terms by block, so every block is written once
+        HashMap<Long, List<String>> blocks = new HashMap<>();
+        for (String token : tokens) {
+            long pointer = dictionary.getTermDictionary().get(token);
+            if (pointer != TermDictionary.NOT_FOUND) {
+                blocks.computeIfAbsent(pointer >>> BLOCK_SHIFT, k -> new ArrayList<>()).add(token);
+            }
+        }
+        String fileName = this.directoryPath.concat(TxtFileDirectory.POSTINGS_FILE).concat(field.name());
+        for (Map.Entry<Long, List<String>> entry : blocks.entrySet()) {
+            PostingsFile pFile = new PostingsFile(fileName.concat("_").concat(Long.toString(entry.getKey())), new PostingsCodec());
+            HashMap<String, PostingsList> block = (HashMap<String, PostingsList>) pFile.read();
+            if (block == null) {
+                continue;
+            }
+            boolean removed = false;
+            for (String token : entry.getValue()) {
+                PostingsList postings = block.get(token);
+                if (postings != null && postings.remove(documentId)) {
+                    removed = true;
+                    if (postings.isEmpty()) {
+                        //the term is kept in the dictionary, so pointers don't change
+                        block.remove(token);
+                    }
+                }
+            }
+            if (removed) {
+                pFile.delete();
+                pFile.write(block);
+            }
+        }
+        if (!blocks.isEmpty()) {
+            dictionary.clearLoadedPostings();
+        }
     }
 
     /**
@@ -93,11 +257,11 @@ public class TxtFileDirectory implements Directory {
      */
     public Index read(Index index) throws IOException, CorruptIndexException {
         //init HashMaps that will keep the index
-        Map<String, Map<String, Integer>> norms = new HashMap<>();
+        Map<String, Norms> norms = new HashMap<>();
 
         HashMap<String, PostingsDictionary> dictionary = new HashMap<>();
 
-        Map<String, Map<String, String>> stored = new HashMap<>();
+        Map<String, Map<Integer, String>> stored = new HashMap<>();
 
         //now load fields config info
         FieldConfigFile fiFile = new FieldConfigFile(this.directoryPath.concat(TxtFileDirectory.FIELDS_CONFIG_FILE), new FieldConfigCodec());
@@ -108,28 +272,49 @@ public class TxtFileDirectory implements Directory {
             return null;
         }
 
+        //load the table to translate internal ids to external ids, the reverse mapping is built from it
+        DocIdsFile fDocIds = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DOC_IDS_FILE), new DocIdsCodec());
+        HashMap<Integer, String> externalIds = (HashMap<Integer, String>)fDocIds.read();
+        if (externalIds == null) {
+            Logger.getInstance().error("error reading document ids file");
+            return null;
+        }
+        DocIdsFile fDeleted = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DELETED_DOC_IDS_FILE), new DocIdsCodec());
+        HashMap<Integer, String> removedIds = (HashMap<Integer, String>)fDeleted.read();
+        if (removedIds == null) {
+            removedIds = new HashMap<>();
+        }
+        HashMap<String, Integer> internalIds = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : externalIds.entrySet()) {
+            //a document removed and added again has a new id, the highest
+            if (!removedIds.containsKey(entry.getKey())) {
+                internalIds.merge(entry.getValue(), entry.getKey(), Math::max);
+            }
+        }
+
         Set<String> indexedFields = fields.get(FieldInfo.INDEXED);
+        Set<String> positionsFields = fields.get(FieldInfo.POSITIONS);
         for(String fieldName: indexedFields) {
-            /*
-             * for every field indexed, need to load norms
-             * if the index would have millions of docs  and several fields, loading this file would take some seconds,
-             * which wouldn't be good...
-             * TODO the norms file could be loaded dynamically like the postings,  whether splitting file in small pieces
-             * TODO and/or with random access to the file instead of traversing it sequentially looking for the docID
-             * TODO but there's a trade-off, if many different files have to be read from disk and parsed, the delay
-             * TODO would be also noticeable when there are many docs to return. It would be necessary a multi-thread
-             * TODO solution that would allow to parse different files in parallel,
-             */
-            NormsFile fNorms = new NormsFile(this.directoryPath.concat(TxtFileDirectory.NORMS_FILE.concat(fieldName)), new NormsCodec());
-            HashMap<String,Integer> fieldNorms = (HashMap<String,Integer>)fNorms.read();
-            if (fieldNorms == null || fieldNorms.isEmpty()) {
+            //for every field indexed, need to load norms. The file is mapped in memory, not parsed, so it takes the
+            //same time whatever the number of documents
+            NormsFile fNorms = new NormsFile(this.directoryPath.concat(TxtFileDirectory.NORMS_FILE).concat(fieldName));
+            ByteNorms fieldNorms = fNorms.read();
+            if (fieldNorms == null || fieldNorms.size() == 0) {
                 Logger.getInstance().error("empty norms file for field: " .concat(fieldName));
                 return null;
             }
             norms.put(fieldName, fieldNorms);
 
-            //leave dictionary empty, data will be loaded dynamically when needed
-            PostingsDictionary fieldDictionary = new PostingsDictionary();
+            //only the sorted terms are loaded, postings will be loaded dynamically when needed
+            TermsFile tFile = new TermsFile(this.directoryPath.concat(TxtFileDirectory.TERMS_FILE).concat(fieldName), new TermDictionaryCodec());
+            FrontCodedTermDictionary terms = tFile.read();
+            if (terms == null) {
+                Logger.getInstance().error("missing terms file for field: ".concat(fieldName));
+                return null;
+            }
+            PostingsDictionary fieldDictionary = new PostingsDictionary(index.isConcurrent());
+            fieldDictionary.setPositions(positionsFields != null && positionsFields.contains(fieldName));
+            fieldDictionary.setTermDictionary(terms);
             dictionary.put(fieldName, fieldDictionary);
         }
 
@@ -137,11 +322,11 @@ public class TxtFileDirectory implements Directory {
         //for every  stored field, load stored field file
         for(String fieldName: storedFields) {
             /*
-             * The same problem as with the norms... that could be improved loading data on demand, splitting file in
-             * small chunks, parallel access using threads
+             * if the index would have millions of docs, loading this file would take some seconds... that could be
+             * improved loading data on demand, splitting file in small chunks, parallel access using threads
              */
             StoredFieldsFile fStored = new StoredFieldsFile(this.directoryPath.concat(TxtFileDirectory.STORED_CONTENT_FILE).concat(fieldName), new StoredFieldsCodec());
-            HashMap<String, String> fieldStored = (HashMap<String, String>)fStored.read();
+            HashMap<Integer, String> fieldStored = (HashMap<Integer, String>)fStored.read();
             if (fieldStored == null || fieldStored.isEmpty()) {
                 Logger.getInstance().error("error reading stored content file ".concat(fieldName));
                 return null;
@@ -149,33 +334,109 @@ public class TxtFileDirectory implements Directory {
             stored.put(fieldName, fieldStored);
 
         }
+
+        Map<String, SortedDocValues> docValues = new HashMap<>();
+        Set<String> docValuesFields = fields.get(FieldInfo.DOC_VALUES);
+        if (docValuesFields != null) {
+            for (String fieldName : docValuesFields) {
+                //mapped in memory, as the norms
+                DocValuesFile fDocValues = new DocValuesFile(this.directoryPath.concat(TxtFileDirectory.DOC_VALUES_FILE).concat(fieldName));
+                SortedDocValues fieldDocValues = fDocValues.read();
+                if (fieldDocValues == null) {
+                    Logger.getInstance().error("missing doc values file for field: ".concat(fieldName));
+                    return null;
+                }
+                docValues.put(fieldName, fieldDocValues);
+            }
+        }
         //at this point, we have already all what we need to start, set data in the index and return it
-        index.setNormsByDocument(norms);
+        //norms in memory are replaced by the written ones, as the postings
+        index.setNormsByDocument(new HashMap<>());
+        for (Map.Entry<String, Norms> entry : norms.entrySet()) {
+            index.setWrittenNorms(entry.getKey(), entry.getValue());
+        }
         index.setPostingsDictionary(dictionary);
         index.setStoredByDocument(stored);
+        index.setDocValuesByDocument(new HashMap<>());
+        for (Map.Entry<String, SortedDocValues> entry : docValues.entrySet()) {
+            index.setWrittenDocValues(entry.getKey(), entry.getValue());
+        }
         index.setFieldNamesByOption(fields);
+        index.setDocIdMap(new DocIdMap(externalIds, internalIds, removedIds));
         return index;
     }
 
     /**
-     * read a file corresponding to a postings block, parse the data and add it to the dictionary
+     * read the file corresponding to the postings block of the term, parse the data and add it to the dictionary
      * @param dictionary PostingsDictionary where the data will be loaded
      * @param fieldName name of the field
-     * @param term which block is going to be loaded
-     * @return the dictionary containing the data extracted from the file
+     * @param term term whose block is going to be loaded
+     * @return the postings list of the term, null if the term is not in the index
      * @throws IOException
      * @throws CorruptIndexException
      */
-    public PostingsDictionary readPostingsBlock(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException {
-        //al files will have this prefix
-        String fileName = this.directoryPath.concat(TxtFileDirectory.POSTINGS_FILE).concat(fieldName);
-        //suffix for fileName is the block key;
-        String key = dictionary.getKeyForTerm(term);
-        String blockFileName = fileName.concat("_").concat(key);
-        PostingsFile pFile = new PostingsFile(blockFileName, new PostingsCodec());
-        HashMap<String, List<Posting>> postingsBlock = (HashMap<String, List<Posting>>)pFile.read();
-        dictionary.getPostingsBlocksDictionary().put(key, postingsBlock);
-        return dictionary;
+    public PostingsList readPostings(PostingsDictionary dictionary, String fieldName, String term) throws IOException, CorruptIndexException {
+        long pointer = dictionary.getTermDictionary().get(term);
+        if (pointer == TermDictionary.NOT_FOUND) {
+            //the term is not in the index, there's no need to read any file
+            return null;
+        }
+        long block = pointer >>> BLOCK_SHIFT;
+        if (!dictionary.isBlockLoaded(block)) {
+            //al files will have this prefix
+            String fileName = this.directoryPath.concat(TxtFileDirectory.POSTINGS_FILE).concat(fieldName);
+            //suffix for fileName is the block number
+            String blockFileName = fileName.concat("_").concat(Long.toString(block));
+            PostingsFile pFile = new PostingsFile(blockFileName, new PostingsCodec());
+            HashMap<String, PostingsList> postingsBlock = (HashMap<String, PostingsList>)pFile.read();
+            if (postingsBlock == null) {
+                throw new CorruptIndexException("missing postings file ".concat(blockFileName));
+            }
+            for (Map.Entry<String, PostingsList> entry : postingsBlock.entrySet()) {
+                dictionary.addLoadedPostingsList(entry.getKey(), entry.getValue());
+            }
+            dictionary.setBlockLoaded(block);
+        }
+        //only the postings written, the ones in memory are read from the dictionary
+        return dictionary.getLoadedPostingsList(term);
+    }
+
+    /**
+     * @return one more than the highest id in the table of ids, 0 if it hasn't been written
+     */
+    @Override
+    public int nextDocumentId() throws IOException, CorruptIndexException {
+        DocIdsFile fDocIds = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DOC_IDS_FILE), new DocIdsCodec());
+        HashMap<Integer, String> externalIds = (HashMap<Integer, String>)fDocIds.read();
+        int nextId = 0;
+        if (externalIds != null) {
+            for (Integer docId : externalIds.keySet()) {
+                nextId = Math.max(nextId, docId + 1);
+            }
+        }
+        return nextId;
+    }
+
+    /**
+     * @return the highest internal id mapped to the external id in the table of ids, -1 if there's none or the
+     * document has been removed
+     */
+    @Override
+    public int documentId(final String externalId) throws IOException, CorruptIndexException {
+        DocIdsFile fDocIds = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DOC_IDS_FILE), new DocIdsCodec());
+        HashMap<Integer, String> externalIds = (HashMap<Integer, String>)fDocIds.read();
+        if (externalIds == null) {
+            return -1;
+        }
+        DocIdsFile fDeleted = new DocIdsFile(this.directoryPath.concat(TxtFileDirectory.DELETED_DOC_IDS_FILE), new DocIdsCodec());
+        HashMap<Integer, String> removedIds = (HashMap<Integer, String>)fDeleted.read();
+        int documentId = -1;
+        for (Map.Entry<Integer, String> entry : externalIds.entrySet()) {
+            if (entry.getValue().equals(externalId) && (removedIds == null || !removedIds.containsKey(entry.getKey()))) {
+                documentId = Math.max(documentId, entry.getKey());
+            }
+        }
+        return documentId;
     }
 
     /**
@@ -205,8 +466,6 @@ public class TxtFileDirectory implements Directory {
         HashSet<String> indexedFields = index.getFieldNamesByOption(FieldInfo.INDEXED);
         //for every field store a file
         for(String fieldName: indexedFields) {
-            NormsFile fNorms = new NormsFile(this.directoryPath.concat(TxtFileDirectory.NORMS_FILE).concat(fieldName), new NormsCodec());
-            fNorms.close();
             PostingsFile pFile = new PostingsFile(this.directoryPath.concat(TxtFileDirectory.POSTINGS_FILE).concat(fieldName), new PostingsCodec());
             pFile.close();
         }
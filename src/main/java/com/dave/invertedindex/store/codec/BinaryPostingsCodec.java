@@ -0,0 +1,183 @@
+package com.dave.invertedindex.store.codec;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.Norms;
+import com.dave.invertedindex.index.PostingsCursor;
+import com.dave.invertedindex.index.PostingsList;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes a postings list to a compact array of bytes, and decodes it back
+ * Document ids are sorted, so only the difference with the previous id is written. Every number is written as a
+ * variable length int (7 bits per byte, the high bit tells whether more bytes follow), so small gaps and
+ * frequencies take a single byte.
+ *
+ * Postings are split in blocks of BLOCK_SIZE, every block starts with a header telling its last document, its length
+ * and its impact, ie, the highest term frequency and the lowest norm of its documents. So the postings can be read
+ * in place by a BlockPostingsCursor, which skips the blocks without decoding them. The format is:
+ * {size << 1 | 1 if there are positions}{block1}{block2}...
+ * and every block:
+ * {lastDocIdDelta}{length in bytes of the postings}{maxTermFrequency}{minNorm}{docIdDelta1}{termFrequency1}{positions1}{docIdDelta2}...
+ * the last document of a block is written as the difference with the last one of the previous block, and the norm as
+ * a single byte. Positions of a document are written only if the list has positions: as many as its term frequency,
+ * every one as the difference with the previous one in the document
+ */
+public class BinaryPostingsCodec {
+
+    /**
+     * number of postings per block, the last block can have less
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    /**
+     * @param postings postings list to encode
+     * @return the encoded list, the impacts of its blocks don't take norms into account
+     */
+    public byte[] encode(final PostingsList postings) {
+        return encode(postings, Norms.EMPTY);
+    }
+
+    /**
+     * @param postings postings list to encode
+     * @param norms norms of the field, to find the impacts of the blocks
+     * @return the encoded list
+     */
+    public byte[] encode(final PostingsList postings, final Norms norms) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(postings.size() * 2 + 5);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+        writeVInt(out, postings.size() << 1 | (postings.hasPositions() ? 1 : 0));
+        int lastDocId = 0;
+        int lastBlockDocId = 0;
+        int maxTermFrequency = 0;
+        int minNorm = 0xFF;
+        int inBlock = 0;
+        PostingsCursor cursor = postings.cursor();
+        int docId;
+        while ((docId = cursor.nextDoc()) != PostingsCursor.NO_MORE_DOCS) {
+            writeVInt(block, docId - lastDocId);
+            writeVInt(block, cursor.termFrequency());
+            if (postings.hasPositions()) {
+                int lastPosition = 0;
+                for (int i = 0; i < cursor.termFrequency(); i++) {
+                    int position = cursor.nextPosition();
+                    writeVInt(block, position - lastPosition);
+                    lastPosition = position;
+                }
+            }
+            maxTermFrequency = Math.max(maxTermFrequency, cursor.termFrequency());
+            minNorm = Math.min(minNorm, Byte.toUnsignedInt(norms.encodedNorm(docId)));
+            lastDocId = docId;
+            if (++inBlock == BLOCK_SIZE) {
+                writeBlock(out, block, lastDocId - lastBlockDocId, maxTermFrequency, minNorm);
+                lastBlockDocId = lastDocId;
+                maxTermFrequency = 0;
+                minNorm = 0xFF;
+                inBlock = 0;
+            }
+        }
+        if (inBlock > 0) {
+            writeBlock(out, block, lastDocId - lastBlockDocId, maxTermFrequency, minNorm);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * write the header of a block and its postings, the buffer of the postings is emptied
+     */
+    protected static void writeBlock(final ByteArrayOutputStream out, final ByteArrayOutputStream block,
+                                     final int lastDocIdDelta, final int maxTermFrequency, final int minNorm) {
+        writeVInt(out, lastDocIdDelta);
+        writeVInt(out, block.size());
+        writeVInt(out, maxTermFrequency);
+        out.write(minNorm);
+        out.writeBytes(block.toByteArray());
+        block.reset();
+    }
+
+    /**
+     * @param data bytes written by encode
+     * @return the decoded postings list
+     * @throws CorruptIndexException if data is not well formed
+     */
+    public PostingsList decode(final byte[] data) throws CorruptIndexException {
+        int[] pos = {0};
+        int header = readVInt(data, pos);
+        int size = header >>> 1;
+        boolean withPositions = (header & 1) != 0;
+        PostingsList postings = new PostingsList(size, withPositions);
+        int docId = 0;
+        int[] positions = withPositions ? new int[8] : null;
+        for (int i = 0; i < size; i++) {
+            if (i % BLOCK_SIZE == 0) {
+                //the header is only needed to skip blocks
+                readVInt(data, pos);
+                readVInt(data, pos);
+                readVInt(data, pos);
+                pos[0]++;
+            }
+            docId += readVInt(data, pos);
+            int termFrequency = readVInt(data, pos);
+            if (!withPositions) {
+                postings.add(docId, termFrequency);
+                continue;
+            }
+            if (positions.length < termFrequency) {
+                positions = new int[Math.max(termFrequency, positions.length << 1)];
+            }
+            int position = 0;
+            for (int j = 0; j < termFrequency; j++) {
+                position += readVInt(data, pos);
+                positions[j] = position;
+            }
+            postings.add(docId, termFrequency, positions, 0);
+        }
+        return postings;
+    }
+
+    /**
+     * @param data bytes written by encode
+     * @return a cursor reading the postings in place, only the headers of the blocks are read upfront
+     * @throws CorruptIndexException if data is not well formed
+     */
+    public PostingsCursor cursor(final byte[] data) throws CorruptIndexException {
+        return read(data).cursor();
+    }
+
+    /**
+     * @param data bytes written by encode
+     * @return the postings with the headers of their blocks read, so cursors can be created without reading them again
+     * @throws CorruptIndexException if data is not well formed
+     */
+    public BlockPostings read(final byte[] data) throws CorruptIndexException {
+        return new BlockPostings(data);
+    }
+
+    protected static void writeVInt(final ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * @param data encoded data
+     * @param pos single element array holding the read position, it's moved forward
+     * @return the int read
+     */
+    protected static int readVInt(final byte[] data, final int[] pos) throws CorruptIndexException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new CorruptIndexException("truncated postings data");
+            }
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new CorruptIndexException("malformed variable length int in postings data");
+    }
+}
@@ -0,0 +1,77 @@
+package com.dave.invertedindex.store.codec;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.Impact;
+import com.dave.invertedindex.index.PostingsCursor;
+
+/**
+ * Postings encoded by BinaryPostingsCodec, with the headers of their blocks already read. The postings themselves are
+ * decoded by the cursors, as they move over them. It never changes, so it can be shared by several cursors and threads
+ */
+public class BlockPostings {
+
+    protected final byte[] data;
+
+    protected final int size;
+
+    protected final boolean withPositions;
+
+    /**
+     * last document of every block
+     */
+    protected final int[] lastDocIds;
+
+    /**
+     * offset in data where the postings of every block start
+     */
+    protected final int[] offsets;
+
+    protected final Impact[] impacts;
+
+    /**
+     * @param data bytes written by BinaryPostingsCodec.encode
+     * @throws CorruptIndexException if the headers are not well formed
+     */
+    public BlockPostings(final byte[] data) throws CorruptIndexException {
+        this.data = data;
+        int[] pos = {0};
+        int header = BinaryPostingsCodec.readVInt(data, pos);
+        this.size = header >>> 1;
+        this.withPositions = (header & 1) != 0;
+        int blocks = (size + BinaryPostingsCodec.BLOCK_SIZE - 1) / BinaryPostingsCodec.BLOCK_SIZE;
+        this.lastDocIds = new int[blocks];
+        this.offsets = new int[blocks];
+        this.impacts = new Impact[blocks];
+        int lastDocId = 0;
+        for (int i = 0; i < blocks; i++) {
+            lastDocId += BinaryPostingsCodec.readVInt(data, pos);
+            int length = BinaryPostingsCodec.readVInt(data, pos);
+            int maxTermFrequency = BinaryPostingsCodec.readVInt(data, pos);
+            if (pos[0] + 1 + length > data.length) {
+                throw new CorruptIndexException("truncated postings block");
+            }
+            impacts[i] = new Impact(maxTermFrequency, data[pos[0]++]);
+            lastDocIds[i] = lastDocId;
+            offsets[i] = pos[0];
+            pos[0] += length;
+        }
+    }
+
+    /**
+     * @return number of postings
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean hasPositions() {
+        return withPositions;
+    }
+
+    /**
+     * @return a new cursor positioned before the first posting
+     */
+    public PostingsCursor cursor() {
+        return new BlockPostingsCursor(this);
+    }
+}
@@ -0,0 +1,223 @@
+package com.dave.invertedindex.store.codec;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.Impact;
+import com.dave.invertedindex.index.PostingsCursor;
+
+import java.util.Arrays;
+
+/**
+ * Reads postings encoded by BinaryPostingsCodec in place. The headers of the blocks are read beforehand, by
+ * BlockPostings, a block is only decoded when the cursor moves into it, so advance jumps over whole blocks, and
+ * advanceShallow gives the impact of a block without decoding it
+ */
+public class BlockPostingsCursor extends PostingsCursor {
+
+    protected final byte[] data;
+
+    protected final int size;
+
+    protected final boolean withPositions;
+
+    /**
+     * last document of every block
+     */
+    protected final int[] lastDocIds;
+
+    /**
+     * offset in data where the postings of every block start
+     */
+    protected final int[] offsets;
+
+    protected final Impact[] impacts;
+
+    /**
+     * current block, -1 before the first one
+     */
+    protected int block = -1;
+
+    /**
+     * postings of the current block already read
+     */
+    protected int upto = 0;
+
+    /**
+     * block found by advanceShallow
+     */
+    protected int shallowBlock = -1;
+
+    protected int pos;
+
+    protected int docId = -1;
+
+    protected int termFrequency = 0;
+
+    /**
+     * positions of the current document not read yet
+     */
+    protected int pendingPositions = 0;
+
+    protected int position = 0;
+
+    /**
+     * @param data bytes written by BinaryPostingsCodec.encode
+     * @throws CorruptIndexException if the headers are not well formed
+     */
+    public BlockPostingsCursor(final byte[] data) throws CorruptIndexException {
+        this(new BlockPostings(data));
+    }
+
+    /**
+     * @param postings postings whose headers have been read
+     */
+    public BlockPostingsCursor(final BlockPostings postings) {
+        this.data = postings.data;
+        this.size = postings.size;
+        this.withPositions = postings.withPositions;
+        this.lastDocIds = postings.lastDocIds;
+        this.offsets = postings.offsets;
+        this.impacts = postings.impacts;
+    }
+
+    @Override
+    public int nextDoc() {
+        if (docId == NO_MORE_DOCS) {
+            return docId;
+        }
+        skipPositions();
+        if (block < 0 || upto == blockSize(block)) {
+            if (block + 1 == lastDocIds.length) {
+                return exhaust();
+            }
+            enterBlock(block + 1);
+        }
+        docId += readVInt();
+        termFrequency = readVInt();
+        upto++;
+        pendingPositions = withPositions ? termFrequency : 0;
+        position = 0;
+        return docId;
+    }
+
+    @Override
+    public int advance(final int target) {
+        if (docId == NO_MORE_DOCS) {
+            return docId;
+        }
+        int targetBlock = findBlock(target);
+        if (targetBlock == lastDocIds.length) {
+            return exhaust();
+        }
+        if (targetBlock != block) {
+            //the blocks in between are skipped without decoding them
+            skipPositions();
+            enterBlock(targetBlock);
+        }
+        int doc;
+        while ((doc = nextDoc()) < target) {
+            //postings of the block before target are skipped
+        }
+        return doc;
+    }
+
+    @Override
+    public int advanceShallow(final int target) {
+        shallowBlock = findBlock(target);
+        return shallowBlock == lastDocIds.length ? NO_MORE_DOCS : lastDocIds[shallowBlock];
+    }
+
+    @Override
+    public Impact blockImpact() {
+        if (shallowBlock < 0) {
+            return null;
+        }
+        return shallowBlock == lastDocIds.length ? Impact.NONE : impacts[shallowBlock];
+    }
+
+    /**
+     * @return first block from the current one whose last document is target or after it, the number of blocks if
+     * there is none
+     */
+    protected int findBlock(final int target) {
+        int from = Math.max(block, 0);
+        if (from < lastDocIds.length && lastDocIds[from] >= target) {
+            return from;
+        }
+        int found = Arrays.binarySearch(lastDocIds, from, lastDocIds.length, target);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    protected void enterBlock(final int block) {
+        this.block = block;
+        this.upto = 0;
+        this.pos = offsets[block];
+        //ids of the block are deltas from the last document of the previous one
+        this.docId = block == 0 ? 0 : lastDocIds[block - 1];
+        this.pendingPositions = 0;
+    }
+
+    protected int blockSize(final int block) {
+        return Math.min(BinaryPostingsCodec.BLOCK_SIZE, size - block * BinaryPostingsCodec.BLOCK_SIZE);
+    }
+
+    protected int exhaust() {
+        block = lastDocIds.length;
+        docId = NO_MORE_DOCS;
+        termFrequency = 0;
+        pendingPositions = 0;
+        return docId;
+    }
+
+    protected void skipPositions() {
+        while (pendingPositions > 0) {
+            readVInt();
+            pendingPositions--;
+        }
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int termFrequency() {
+        return termFrequency;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return withPositions;
+    }
+
+    @Override
+    public int nextPosition() {
+        if (!withPositions) {
+            return super.nextPosition();
+        }
+        if (pendingPositions == 0) {
+            throw new IllegalStateException("all the positions of the document have been read");
+        }
+        pendingPositions--;
+        position += readVInt();
+        return position;
+    }
+
+    /**
+     * read a variable length int at the current position. Blocks were checked when the headers were read
+     */
+    protected int readVInt() {
+        byte b = data[pos++];
+        int value = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = data[pos++];
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}
@@ -1,21 +1,21 @@
 package com.dave.invertedindex.store.codec;
 
 import com.dave.invertedindex.index.CorruptIndexException;
-import com.dave.invertedindex.store.codec.Codec;
 
 import java.util.Formatter;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
- *  Format used to store the norms is:
- * {documentId1}:{norm1}\n
- * {documentId2}:{norm2}\n
+ * Handles the parsing/unparsing of the table mapping internal document ids to external ids
+ * Format used to store the ids is:
+ * {documentId1}:{externalId1}\n
+ * {documentId2}:{externalId2}\n
  * ...
  */
-public class NormsCodec implements Codec {
+public class DocIdsCodec implements Codec {
 
-    private final static String FORMAT_STRING = "%d:%d";
+    private final static String FORMAT_STRING = "%d:%s";
 
     protected static final Pattern SEPARATOR = Pattern.compile(":");
 
@@ -27,26 +27,24 @@ public class NormsCodec implements Codec {
         if (key == null || val == null) {
             throw new CorruptIndexException("corrupted data in entry");
         }
-        String documentId = (String) key;
-        int count = ((Integer) val).intValue();
-        formatter.format(FORMAT_STRING, documentId, count);
+        int documentId = ((Integer) key).intValue();
+        String externalId = (String) val;
+        formatter.format(FORMAT_STRING, documentId, externalId);
         formatter.format("\n");
     }
 
     @Override
     public Map.Entry readEntry(String data) throws CorruptIndexException {
-        //split on ":" to get documentId and count
-        String[] parts = SEPARATOR.split(data);
+        //split on the first ":" only, external ids might contain it
+        String[] parts = SEPARATOR.split(data, 2);
         if (parts.length != 2 || parts[0].length() == 0 || parts[1].length() == 0) {
             throw new CorruptIndexException("wrong data format: ".concat(data));
         }
         try {
-            String documentId = parts[0];
-            int count = Integer.parseInt(parts[1]);
-            return new Codec.Entry<>(documentId, count);
+            int documentId = Integer.parseInt(parts[0]);
+            return new Codec.Entry<>(documentId, parts[1]);
         } catch (NumberFormatException e) {
             throw new CorruptIndexException("wrong data format ".concat(e.getMessage()));
         }
-
     }
-}
\ No newline at end of file
+}
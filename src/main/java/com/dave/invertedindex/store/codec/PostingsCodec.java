@@ -1,7 +1,8 @@
 package com.dave.invertedindex.store.codec;
 
 import com.dave.invertedindex.index.CorruptIndexException;
-import com.dave.invertedindex.index.Posting;
+import com.dave.invertedindex.index.PostingsCursor;
+import com.dave.invertedindex.index.PostingsList;
 
 import java.util.*;
 import java.util.regex.Pattern;
@@ -15,14 +16,19 @@ import java.util.regex.Pattern;
  *
  * The format of the postingList is;
  * {documentId1, termFrequency1};{documentId2, termFrequency2}; ...
+ * or, if the list has positions,
+ * {documentId1, termFrequency1, position1 positionDelta2 ...};...
+ * where every position but the first one of the document is the difference with the previous one
  */
 public class PostingsCodec implements Codec {
     private final static String FORMAT_STRING_1 = "%s:";
     private final static String FORMAT_STRING_2 = "%d,%d;";
+    private final static String FORMAT_STRING_3 = "%d,%d,";
 
     protected static final Pattern SEPARATOR_1 = Pattern.compile(":");
     protected static final Pattern SEPARATOR_2 = Pattern.compile(";");
     protected static final Pattern SEPARATOR_3 = Pattern.compile(",");
+    protected static final Pattern SEPARATOR_4 = Pattern.compile(" ");
 
     @Override
     public void writeEntry(Formatter formatter, Map.Entry entry) throws CorruptIndexException {
@@ -33,13 +39,25 @@ public class PostingsCodec implements Codec {
             throw new CorruptIndexException("corrupted data in map entry");
         }
         String term = (String) key;
-        List<Posting> postings = (List<Posting>) val;
+        PostingsList postings = (PostingsList) val;
+        if (postings.isEmpty()) {
+            throw new CorruptIndexException("corrupted data in posting entry");
+        }
         formatter.format(FORMAT_STRING_1,term);
-        for(Posting p: postings) {
-            if (p == null) {
-                throw new CorruptIndexException("corrupted data in posting entry");
+        PostingsCursor cursor = postings.cursor();
+        while (cursor.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+            if (!postings.hasPositions()) {
+                formatter.format(FORMAT_STRING_2, cursor.docId(), cursor.termFrequency());
+                continue;
+            }
+            formatter.format(FORMAT_STRING_3, cursor.docId(), cursor.termFrequency());
+            int lastPosition = 0;
+            for (int i = 0; i < cursor.termFrequency(); i++) {
+                int position = cursor.nextPosition();
+                formatter.format(i == 0 ? "%d" : " %d", position - lastPosition);
+                lastPosition = position;
             }
-            formatter.format(FORMAT_STRING_2, p.getDocumentId(), p.getTermFrequency());
+            formatter.format(";");
         }
         formatter.format("\n");
     }
@@ -57,18 +75,40 @@ public class PostingsCodec implements Codec {
         if (parts.length == 0) {
             throw new CorruptIndexException("wrong data format: ".concat(data));
         }
-        LinkedList<Posting> postingsList = new LinkedList<>();
+        //all the postings of a list have positions or none has
+        boolean withPositions = SEPARATOR_3.split(parts[0]).length == 3;
+        PostingsList postingsList = new PostingsList(parts.length, withPositions);
+        int[] positions = new int[0];
         for(String p: parts) {
             //for every posting list, values are delimited by comma
             String[] postingStr = SEPARATOR_3.split(p);
-            if (postingStr.length != 2 || postingStr[0].length() == 0 || postingStr[1].length() == 0) {
+            if (postingStr.length != (withPositions ? 3 : 2) || postingStr[0].length() == 0 || postingStr[1].length() == 0) {
                 throw new CorruptIndexException("wrong data format: ".concat(data));
             }
-            String documentId = postingStr[0];
-            short termFreq = Short.parseShort(postingStr[1]);
-            //construct a posting from the read values
-            Posting posting = new Posting(documentId, termFreq);
-            postingsList.add(posting);
+            try {
+                int documentId = Integer.parseInt(postingStr[0]);
+                int termFreq = Integer.parseInt(postingStr[1]);
+                if (!withPositions) {
+                    //append a posting with the read values
+                    postingsList.add(documentId, termFreq);
+                    continue;
+                }
+                String[] positionsStr = SEPARATOR_4.split(postingStr[2]);
+                if (positionsStr.length != termFreq) {
+                    throw new CorruptIndexException("wrong data format: ".concat(data));
+                }
+                if (positions.length < termFreq) {
+                    positions = new int[termFreq];
+                }
+                int position = 0;
+                for (int i = 0; i < termFreq; i++) {
+                    position += Integer.parseInt(positionsStr[i]);
+                    positions[i] = position;
+                }
+                postingsList.add(documentId, termFreq, positions, 0);
+            } catch (NumberFormatException e) {
+                throw new CorruptIndexException("wrong data format ".concat(e.getMessage()));
+            }
         }
         //create a new Entry and return it
         return new Codec.Entry<>(term, postingsList);
@@ -28,7 +28,7 @@ public class StoredFieldsCodec implements Codec {
         if (key == null || val == null) {
             throw new CorruptIndexException("corrupted data in entry");
         }
-        String documentId = (String) key;
+        int documentId = ((Integer) key).intValue();
         String content = (String)val;
         if (content.length() == 0) { //if there is no content, it's not necessary to write this to disk
             return;
@@ -44,8 +44,12 @@ public class StoredFieldsCodec implements Codec {
             throw new CorruptIndexException("wrong data format: ".concat(data));
         }
 
-        String documentId = parts[0];
-        //stored field can be empty?? it shouldn't be, empty fields are not stored
-        return new Codec.Entry<>(documentId, parts[1]);
+        try {
+            int documentId = Integer.parseInt(parts[0]);
+            //stored field can be empty?? it shouldn't be, empty fields are not stored
+            return new Codec.Entry<>(documentId, parts[1]);
+        } catch (NumberFormatException e) {
+            throw new CorruptIndexException("wrong data format ".concat(e.getMessage()));
+        }
     }
 }
\ No newline at end of file
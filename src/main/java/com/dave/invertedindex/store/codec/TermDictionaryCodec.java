@@ -0,0 +1,45 @@
+package com.dave.invertedindex.store.codec;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.FrontCodedTermDictionary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes a term dictionary to an array of bytes, and decodes it back
+ * The format is the one defined by FrontCodedTermDictionary.write
+ */
+public class TermDictionaryCodec {
+
+    /**
+     * @param terms dictionary to encode
+     * @return the encoded dictionary
+     */
+    public byte[] encode(final FrontCodedTermDictionary terms) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) terms.sizeInBytes() + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            terms.write(out);
+        } catch (IOException e) {
+            //can't happen writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param data bytes written by encode
+     * @return the decoded dictionary
+     * @throws CorruptIndexException if data is not well formed
+     */
+    public FrontCodedTermDictionary decode(final byte[] data) throws CorruptIndexException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            return FrontCodedTermDictionary.read(in);
+        } catch (IOException e) {
+            throw new CorruptIndexException(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dave.invertedindex.store.file;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.store.codec.Codec;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Write/Read the table mapping internal document ids to external ids
+ */
+public class DocIdsFile extends TxtFile {
+
+    public DocIdsFile(String path, Codec codec) {
+        this.path = path;
+        this.codec = codec;
+    }
+
+    @Override
+    protected HashMap<?, ?> parseData() throws IOException, CorruptIndexException {
+        HashMap<Integer, String> docIds = new HashMap<>();
+        String rawData = null;
+        //traverse the file and parse one by one the ids using codec
+        while ((rawData = this.reader.readLine()) != null) {
+            Map.Entry<Integer, String> entry = this.codec.readEntry(rawData);
+            docIds.put(entry.getKey(), entry.getValue());
+        }
+        return docIds;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.dave.invertedindex.store.file;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.SortedDocValues;
+import com.dave.invertedindex.util.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Write/Read the doc values of a field. The file is binary, in the format of SortedDocValues, and it's mapped in
+ * memory to be read, instead of being parsed.
+ * New values can change the ordinals of the ones written, so the whole file is written again every time. It's written
+ * to a temporary file which then replaces the old one, so the mappings of the old file stay valid
+ */
+public class DocValuesFile {
+
+    /**
+     * path to the file
+     */
+    protected String path;
+
+    public DocValuesFile(String path) {
+        this.path = path;
+    }
+
+    /**
+     * map the file in memory, the mapping is valid after the file is closed
+     * @return the doc values, or null if the file doesn't exist
+     */
+    public SortedDocValues read() throws IOException, CorruptIndexException {
+        Path p = Paths.get(this.path);
+        if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SortedDocValues(buffer);
+        }
+    }
+
+    /**
+     * @param docValues doc values encoded by SortedDocValues.encode
+     */
+    public void write(byte[] docValues) throws IOException {
+        Path p = Paths.get(this.path);
+        Path tmp = Paths.get(this.path.concat(".tmp"));
+        Files.write(tmp, docValues);
+        Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(Paths.get(this.path));
+        } catch (Exception e) {
+            Logger.getInstance().error("file could not be deleted ".concat(this.path), e);
+        }
+    }
+}
@@ -1,33 +1,85 @@
 package com.dave.invertedindex.store.file;
 
-import com.dave.invertedindex.index.CorruptIndexException;
-import com.dave.invertedindex.store.codec.Codec;
+import com.dave.invertedindex.index.ByteNorms;
+import com.dave.invertedindex.util.Logger;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.Map;
 
 /**
- * Manage write read of document norms file
+ * Write/Read the norms of a field. The file is binary and fixed width: the norm of a document, encoded in one byte
+ * by ByteNorms, is at the offset given by its internal id. Documents with no norm are 0.
+ * Since every document keeps its offset, new documents are written in place, and the file is mapped in memory to be
+ * read, instead of being parsed
  */
-public class NormsFile extends TxtFile {
+public class NormsFile {
 
+    /**
+     * path to the file
+     */
+    protected String path;
 
-    public NormsFile(String path, Codec codec) {
+    public NormsFile(String path) {
         this.path = path;
-        this.codec = codec;
     }
 
-    @Override
-    protected HashMap<?, ?> parseData() throws IOException, CorruptIndexException {
-        HashMap<Long, Integer> norms = new HashMap<>();
-        String rawData = null;
-        //traverse the file and parse one by one the postings of every term using codec
-        while ((rawData = this.reader.readLine()) != null) {
-            Map.Entry<Long, Integer> entry = this.codec.readEntry(rawData);
-            norms.put(entry.getKey(), entry.getValue());
+    /**
+     * map the file in memory, the mapping is valid after the file is closed
+     * @return the norms, or null if the file doesn't exist
+     */
+    public ByteNorms read() throws IOException {
+        Path p = Paths.get(this.path);
+        if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ByteNorms(buffer);
+        }
+    }
+
+    /**
+     * write the norms at the offsets of their documents, the file is created or grown if needed. Documents already
+     * written keep their norms
+     * @param norms norms by internal document id
+     */
+    public void write(Map<Integer, Integer> norms) throws IOException {
+        if (norms.isEmpty()) {
+            return;
+        }
+        int minDocId = Integer.MAX_VALUE;
+        int maxDocId = -1;
+        for (Integer docId : norms.keySet()) {
+            minDocId = Math.min(minDocId, docId);
+            maxDocId = Math.max(maxDocId, docId);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(this.path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //the range can have documents with no norm in memory, they keep the value in the file
+            ByteBuffer range = ByteBuffer.allocate(maxDocId - minDocId + 1);
+            while (range.hasRemaining() && channel.read(range, minDocId + range.position()) > 0) {
+                //keep reading until the end of the range or of the file
+            }
+            byte[] bytes = range.array();
+            for (Map.Entry<Integer, Integer> entry : norms.entrySet()) {
+                bytes[entry.getKey() - minDocId] = ByteNorms.encode(entry.getValue());
+            }
+            range.clear();
+            while (range.hasRemaining()) {
+                channel.write(range, minDocId + range.position());
+            }
         }
-        return norms;
     }
 
-}
\ No newline at end of file
+    public void delete() {
+        try {
+            Files.deleteIfExists(Paths.get(this.path));
+        } catch (Exception e) {
+            Logger.getInstance().error("file could not be deleted ".concat(this.path), e);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.dave.invertedindex.store.file;
 
 import com.dave.invertedindex.index.CorruptIndexException;
-import com.dave.invertedindex.index.Posting;
+import com.dave.invertedindex.index.PostingsList;
 import com.dave.invertedindex.store.codec.Codec;
 
 import java.io.IOException;
@@ -20,11 +20,11 @@ public class PostingsFile extends TxtFile {
 
 
     protected HashMap<?,?> parseData() throws IOException, CorruptIndexException {
-        HashMap<String, List<Posting>> postings = new HashMap<>();
+        HashMap<String, PostingsList> postings = new HashMap<>();
         String rawData = null;
         //traverse the file and parse one by one the postings of every term using codec
         while ((rawData = this.reader.readLine()) != null) {
-            Map.Entry<String, List<Posting>> entry = this.codec.readEntry(rawData);
+            Map.Entry<String, PostingsList> entry = this.codec.readEntry(rawData);
             if (entry != null) {
                 postings.put(entry.getKey(), entry.getValue());
             }
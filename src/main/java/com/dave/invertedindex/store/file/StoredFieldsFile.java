@@ -19,11 +19,11 @@ public class StoredFieldsFile extends TxtFile {
 
     @Override
     protected  HashMap<?, ?> parseData() throws IOException, CorruptIndexException {
-        HashMap<Long, String> storedFields = new HashMap<>();
+        HashMap<Integer, String> storedFields = new HashMap<>();
         String rawData = null;
         //traverse the file and parse one by one the postings of every term using codec
         while ((rawData = this.reader.readLine()) != null) {
-            Map.Entry<Long, String> entry = this.codec.readEntry(rawData);
+            Map.Entry<Integer, String> entry = this.codec.readEntry(rawData);
             storedFields.put(entry.getKey(), entry.getValue());
         }
         return storedFields;
@@ -0,0 +1,127 @@
+package com.dave.invertedindex.store.file;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.StoredFields;
+import com.dave.invertedindex.util.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * Stored content of a field read from its stored fields file one document at a time. Only where the content of every
+ * document starts and its length are kept in memory, in arrays indexed by internal id, and the file is read in place
+ * when a document is requested.
+ * The file is appended on every write, so the offsets are updated reading only the entries added since the last
+ * update. A document written several times keeps its last entry, the same as StoredFieldsFile.read
+ */
+public class StoredFieldsOffsets implements StoredFields {
+
+    protected static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * path to the file
+     */
+    protected final String path;
+
+    /**
+     * offset of the content of every document, by internal id
+     */
+    protected long[] starts = new long[0];
+
+    /**
+     * length in bytes of the content of every document, 0 if the document has none
+     */
+    protected int[] lengths = new int[0];
+
+    /**
+     * bytes of the file already read
+     */
+    protected long indexed = 0;
+
+    public StoredFieldsOffsets(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * read the offsets of the entries appended to the file since the last update. An entry is
+     * {documentId}:{content}\n, as written by StoredFieldsCodec
+     */
+    public synchronized void update() throws IOException, CorruptIndexException {
+        Path p = Paths.get(this.path);
+        if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = this.indexed;
+            int docId = 0;
+            long contentStart = -1;
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                buffer.flip();
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n') {
+                        if (contentStart < 0) {
+                            throw new CorruptIndexException("wrong data format in ".concat(this.path));
+                        }
+                        put(docId, contentStart, (int) (position - contentStart));
+                        docId = 0;
+                        contentStart = -1;
+                        this.indexed = position + 1;
+                    } else if (contentStart < 0) {
+                        if (b == ':') {
+                            contentStart = position + 1;
+                        } else if (b >= '0' && b <= '9') {
+                            docId = docId * 10 + (b - '0');
+                        } else {
+                            throw new CorruptIndexException("wrong data format in ".concat(this.path));
+                        }
+                    }
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    protected void put(final int docId, final long start, final int length) {
+        if (docId >= lengths.length) {
+            int size = Math.max(docId + 1, lengths.length << 1);
+            starts = Arrays.copyOf(starts, size);
+            lengths = Arrays.copyOf(lengths, size);
+        }
+        starts[docId] = start;
+        lengths[docId] = length;
+    }
+
+    @Override
+    public String get(final int docId) {
+        long start;
+        int length;
+        synchronized (this) {
+            if (docId < 0 || docId >= lengths.length || lengths[docId] == 0) {
+                return null;
+            }
+            start = starts[docId];
+            length = lengths[docId];
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(this.path), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                //keep reading until the end of the content
+            }
+            return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Logger.getInstance().error("error reading stored content file ".concat(this.path), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.dave.invertedindex.store.file;
+
+import com.dave.invertedindex.index.CorruptIndexException;
+import com.dave.invertedindex.index.FrontCodedTermDictionary;
+import com.dave.invertedindex.store.codec.TermDictionaryCodec;
+import com.dave.invertedindex.util.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * Write/Read the sorted term dictionary of a field. Unlike the other index files this one is binary, it's loaded
+ * in one go when the index is opened
+ */
+public class TermsFile {
+
+    /**
+     * path to the file
+     */
+    protected String path;
+
+    protected TermDictionaryCodec codec;
+
+    public TermsFile(String path, TermDictionaryCodec codec) {
+        this.path = path;
+        this.codec = codec;
+    }
+
+    /**
+     * @return the dictionary, or null if the file doesn't exist
+     */
+    public FrontCodedTermDictionary read() throws IOException, CorruptIndexException {
+        Path p = Paths.get(this.path);
+        if (!Files.exists(p, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        return codec.decode(Files.readAllBytes(p));
+    }
+
+    /**
+     * write the dictionary, replacing the previous file if any
+     * @param terms dictionary
+     */
+    public void write(FrontCodedTermDictionary terms) throws IOException {
+        Files.write(Paths.get(this.path), codec.encode(terms));
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(Paths.get(this.path));
+        } catch (Exception e) {
+            Logger.getInstance().error("file could not be deleted ".concat(this.path), e);
+        }
+    }
+}
@@ -16,5 +16,15 @@ public class Config {
     public static String INDEX_PATH = "";
     public static String INDEX_NAME = "index";
 
+    /**
+     * memory for the in-memory index before it's flushed to disk, 0 to flush only when requested
+     */
+    public static Integer RAM_BUFFER_SIZE_MB = 0;
+
+    /**
+     * keep postings and norms of the in-memory index in direct memory
+     */
+    public static Boolean OFF_HEAP = false;
+
 
 }
@@ -0,0 +1,51 @@
+package com.dave.invertedindex.util;
+
+/**
+ * Estimated sizes, in bytes, of the objects kept by the in-memory index. They are approximations for a 64 bits JVM
+ * with compressed references, good enough to decide when the index has to be flushed, not to measure the heap
+ */
+public final class RamUsage {
+
+    public static final int OBJECT_HEADER = 12;
+
+    public static final int REFERENCE = 4;
+
+    public static final int ARRAY_HEADER = 16;
+
+    /**
+     * boxed Integer
+     */
+    public static final int INTEGER = 16;
+
+    /**
+     * entry of a hash map: the node object, plus its slot in the table, which is never completely full
+     */
+    public static final int MAP_ENTRY = 40;
+
+    /**
+     * a posting is a doc id and a term frequency. Arrays grow by doubling, so a bit more is reserved
+     */
+    public static final int POSTING = 12;
+
+    /**
+     * an empty PostingsList, with the arrays of its initial capacity
+     */
+    public static final int POSTINGS_LIST = OBJECT_HEADER + 2 * REFERENCE + 8 + 2 * (ARRAY_HEADER + 4 * 4);
+
+    /**
+     * norm of a document field, ie, an entry with two Integers
+     */
+    public static final int NORM = MAP_ENTRY + 2 * INTEGER;
+
+    private RamUsage() {
+    }
+
+    /**
+     * @param s a string
+     * @return estimated size of the String object and its chars
+     */
+    public static long sizeOf(final String s) {
+        //value is stored as LATIN1 when possible, but count 2 bytes per char, to be safe with any text
+        return OBJECT_HEADER + REFERENCE + 8 + ARRAY_HEADER + 2L * s.length();
+    }
+}
@@ -0,0 +1,100 @@
+import com.dave.invertedindex.document.Document;
+import com.dave.invertedindex.document.Field;
+import com.dave.invertedindex.document.FieldInfo;
+import com.dave.invertedindex.index.Hit;
+import com.dave.invertedindex.index.Index;
+import com.dave.invertedindex.index.IndexReader;
+import com.dave.invertedindex.index.IndexWriter;
+import com.dave.invertedindex.index.Query;
+import com.dave.invertedindex.index.TermQuery;
+import com.dave.invertedindex.parse.CommonTokenizer;
+import com.dave.invertedindex.store.DbFileDirectory;
+import com.dave.invertedindex.store.Directory;
+import com.dave.invertedindex.store.TxtFileDirectory;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Regression check for the automatic flush: documents are added until the memory budget is exceeded and the index
+ * is flushed and cleared, then some of the documents flushed are removed and searched again.
+ * Hits must keep their external ids and stored fields, and removed documents must not be found, also once the index
+ * is opened again. Exits with status 1 if any check fails
+ */
+public final class AutoFlushRemove {
+
+    static final int NUM_DOCS = 6000;
+
+    static int failures = 0;
+
+    private static Document createDocument(int i) {
+        Document doc = new Document("doc" + i);
+        doc.addField(new Field("title", "title" + i, new FieldInfo(false, true)));
+        StringBuilder body = new StringBuilder("common w").append(i % 50);
+        for (int j = 0; j < 8; j++) {
+            body.append(" x").append((i * 31 + j * 7) % 997);
+        }
+        doc.addField(new Field("body", body.toString(), new FieldInfo(true, false, CommonTokenizer.class)));
+        return doc;
+    }
+
+    private static void check(boolean condition, String message) {
+        System.out.printf("%s %s\n", condition ? "ok  " : "FAIL", message);
+        if (!condition) {
+            failures++;
+        }
+    }
+
+    private static boolean hitsHaveDocuments(Hit[] hits) {
+        for (Hit hit : hits) {
+            Document doc = hit.document();
+            Field title = doc.fields().get("title");
+            if (doc.getDocumentId() == null || title == null
+                    || !title.data().equals(doc.getDocumentId().replace("doc", "title"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void run(String name, Directory writerDirectory, Directory readerDirectory) throws Exception {
+        Index index = new Index();
+        IndexWriter writer = new IndexWriter(writerDirectory, index, false, 0);
+        writer.reset();
+        writer.setRamBufferSizeMB(1);
+        for (int i = 0; i < NUM_DOCS; i++) {
+            writer.addDocument(createDocument(i));
+        }
+        check(writer.ramBytesUsed() < 1024 * 1024, name + ": index flushed when the budget was exceeded");
+        //db searches only read the postings written
+        writer.flush();
+
+        IndexReader reader = new IndexReader(writerDirectory, index);
+        Query query = new TermQuery("body", "w0");
+        check(hitsHaveDocuments(reader.search(query, NUM_DOCS)), name + ": flushed hits keep ids and stored fields");
+
+        int removed = 0;
+        for (int i = 0; i < NUM_DOCS; i += 100) {
+            writer.removeDocument(createDocument(i));
+            removed++;
+        }
+        writer.flush();
+        writer.close();
+        int expected = NUM_DOCS / 50 - removed;
+        check(reader.count(query) == expected, name + ": removed documents are not counted");
+        check(reader.search(query, NUM_DOCS).length == expected, name + ": removed documents are not found");
+
+        IndexReader reopened = new IndexReader(readerDirectory, new Index());
+        reopened.open();
+        check(reopened.count(query) == expected, name + ": removed documents are not counted once reopened");
+        check(hitsHaveDocuments(reopened.search(query, NUM_DOCS)), name + ": reopened hits keep ids and stored fields");
+    }
+
+    public static void main(String[] args) throws Exception {
+        String path = Files.createTempDirectory("autoflush").toString().concat(File.separator);
+        run("txt", new TxtFileDirectory(path.concat("txt/")), new TxtFileDirectory(path.concat("txt/")));
+        run("db", new DbFileDirectory(path.concat("db/")), new DbFileDirectory(path.concat("db/")));
+        System.out.printf("\n%s\n", failures == 0 ? "all checks passed" : failures + " checks failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -125,12 +125,17 @@ public final class Indexer {
         BufferedReader reader = new BufferedReader(fr, 65536);
 
         String line;
-        while ((line = reader.readLine()) != null) {
-            Document doc = documentFromString(line);
-            if (doc == null) {
-                continue;
+        try {
+            while ((line = reader.readLine()) != null) {
+                Document doc = documentFromString(line);
+                if (doc == null) {
+                    continue;
+                }
+                //the index is flushed to disk meanwhile if it goes over RAM_BUFFER_SIZE_MB
+                indexer.addDocument(doc);
             }
-            indexer.addDocument(doc);
+        } catch (CorruptIndexException e) {
+            this.log.error("Index corrupted ", e);
         }
 
         try {
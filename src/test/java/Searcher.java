@@ -14,7 +14,7 @@ import org.ansj.splitWord.analysis.IndexAnalysis;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.TreeSet;
 
 /**
@@ -26,6 +26,11 @@ public class Searcher {
 
     IndexReader reader;
 
+    /**
+     * number of results shown
+     */
+    static final int TOP_HITS = 10;
+
 
     public  Searcher() {
         this.log = new Logger();
@@ -52,12 +57,12 @@ public class Searcher {
      * @param term
      * @return
      */
-    public TreeSet<Hit> search(String term) {
-        TreeSet<Hit> resultSet = null;
+    public Hit[] search(String term) {
+        Hit[] resultSet = null;
         IndexReader reader = null;
         try {
             //search for term occurrences in body field
-            resultSet = this.reader.search(Indexer.FieldName.BODY.toString(), term);
+            resultSet = this.reader.search(Indexer.FieldName.BODY.toString(), term, TOP_HITS);
         } catch (IOException e) {
             this.log.error("There was an IO error reading the index files ", e);
         } catch (CorruptIndexException e) {
@@ -98,17 +103,17 @@ public class Searcher {
      * @param hits
      * @param term
      */
-    public String printHits(TreeSet<Hit> hits, String term) {
-        if(hits == null || hits.isEmpty()) {
+    public String printHits(Hit[] hits, String term) {
+        if(hits == null || hits.length == 0) {
             return String.format("No documents found matching the term %s \n", term);
         }
 
-        String out = String.format("%d Documents found matching the term %s: \n", hits.size(), term);
+        String out = String.format("Top %d Documents found matching the term %s: \n", hits.length, term);
+        //only the title is shown, read it for all the hits at once
+        this.reader.loadDocuments(Arrays.asList(hits), "title");
 
-        Iterator it = hits.descendingSet().iterator();
         int i = 1;
-        while(it.hasNext()) {
-            Hit hit = (Hit) it.next();
+        for (Hit hit : hits) {
             out = out.concat(String.format("%d - %f - %s \n", i++, hit.score(), hit.document().fields().get("title").data()));
         }
 
@@ -129,7 +134,7 @@ public class Searcher {
         try {
             Searcher searcher = new Searcher();
             searcher.openIndexReader();
-            TreeSet<Hit> results = searcher.search(args[0]);
+            Hit[] results = searcher.search(args[0]);
             System.out.println(searcher.printHits(results, args[0]));
         } catch (IOException e) {
             e.printStackTrace();